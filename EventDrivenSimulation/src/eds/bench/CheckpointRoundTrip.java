@@ -0,0 +1,235 @@
+/**
+ * 
+ */
+package eds.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+import eds.continuous.DormandPrince;
+import eds.continuous.Rosenbrock;
+import eds.core.ASimUnit;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+import eds.core.StateInput;
+import eds.core.StateOutput;
+import eds.examples.continuous.TankLevel;
+import eds.io.ATraceStream;
+import eds.io.BinaryTraceFile;
+import eds.io.CsvTraceStream;
+import eds.io.TraceSource;
+
+/**
+ * Checks that models survive a checkpoint: each model is paused at 
+ * several times, saved in a snapshot and restored in a new simulator, 
+ * which plays the rest of the run; its results must be identical to 
+ * those of an uninterrupted run, and valid for the model (the reference
+ * run is checked too, so that a bug shared by both runs is detected).
+ *
+ * Usage: java eds.bench.CheckpointRoundTrip
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     EDSimulator
+ */
+public final class CheckpointRoundTrip {
+
+	// Builds one of the models checked, and summarizes its results
+	private static abstract class AModel {
+		final String name;
+
+		AModel(String name) {
+			this.name=name;
+		}
+
+		abstract EDSimulator build();
+
+		abstract String summary(EDSimulator simulator);
+
+		// Checks the results of a run (by default, any result is valid)
+		boolean valid(EDSimulator simulator) {
+			return true;
+		}
+	}
+
+	// Target of the arrivals of the traces: counts them and sums their times
+	private static final class Counter extends ASimUnit {
+		long count;
+		double sum;
+
+		@Override
+		public boolean init(double beginTime,double endTime) {
+			count=0;
+			sum=0;
+			return true;
+		}
+
+		@Override
+		public boolean play(String action) {
+			count++;
+			sum+=getTime();
+			return true;
+		}
+
+		@Override
+		public void saveState(StateOutput out) throws IOException {
+			out.writeLong(count);
+			out.writeDouble(sum);
+		}
+
+		@Override
+		public void loadState(StateInput in) throws IOException {
+			count=in.readLong();
+			sum=in.readDouble();
+		}
+	}
+
+	// Random increasing times (nbTimes arrivals, 1 per unit of time on average)
+	private static double[] trace(Random random,int nbTimes) {
+		double[] times=new double[nbTimes];
+		double t=0;
+		for(int i=0;i<nbTimes;i++) {
+			t+=-Math.log(1-random.nextDouble());
+			times[i]=t;
+		}
+		return times;
+	}
+
+	// The runs of the simulator are reproducible
+	private static EDSimulator seeded(EDSimulator simulator) {
+		simulator.setReplicationSeed(1,false);
+		return simulator;
+	}
+
+	// Runs simulator until the end of its run, and returns the summary
+	// of the run (read before the units are initialized again), prefixed
+	// by "invalid: " if the results are not valid
+	private static String finish(final AModel model,final EDSimulator simulator) {
+		final String[] summary=new String[1];
+		EDSimulatorListener listener=new EDSimulatorListener() {
+			@Override
+			public void simulationStepped(EDSimulatorEvt e) {
+			}
+			@Override
+			public void simulationTerminated(EDSimulatorEvt e) {
+			}
+			@Override
+			public void simulationRunEnded(EDSimulatorEvt e) {
+				summary[0]=(model.valid(simulator) ? "" : "invalid: ")+model.summary(simulator);
+			}
+		};
+		simulator.addSimulatorListener(listener);
+		simulator.execute();
+		simulator.removeSimulatorListener(listener);
+		return summary[0];
+	}
+
+	// Number of restored runs whose results differ from the reference
+	private static int check(AModel model,int nbPauses) throws IOException {
+		String reference=finish(model,model.build());
+		int errors=0;
+		if(reference.startsWith("invalid")) {
+			errors++;
+			System.out.println(model.name+" reference run: "+reference);
+		}
+		for(int i=1;i<=nbPauses;i++) {
+			EDSimulator simulator=model.build();
+			double pause=simulator.getBeginTime()+i*(simulator.getEndTime()-simulator.getBeginTime())/(nbPauses+1);
+			simulator.setPauseTime(pause);
+			simulator.execute();
+			byte[] snapshot=simulator.snapshot();
+			EDSimulator copy=model.build();
+			copy.restore(snapshot);
+			String restored=finish(model,copy);
+			if(!reference.equals(restored)) {
+				errors++;
+				System.out.println(model.name+" restored at "+pause+": "+restored+" instead of "+reference);
+			}
+		}
+		System.out.println(model.name+": "+reference+", "+nbPauses+" restores, "+errors+" error(s)");
+		return errors;
+	}
+
+	/**
+	 * The main program
+	 * @param args [nbPauses]
+	 * @throws IOException 
+	 */
+	public static void main(String[] args) throws IOException {
+		int nbPauses=(args.length>0) ? Integer.parseInt(args[0]) : 5;
+		// Traces: two binary streams and one CSV stream
+		Random random=new Random(1);
+		final File binary=File.createTempFile("trace",".bin");
+		final File csv=File.createTempFile("trace",".csv");
+		binary.deleteOnExit();
+		csv.deleteOnExit();
+		BinaryTraceFile.write(binary,new double[][] {trace(random,5000),trace(random,3000)});
+		try(PrintWriter out=new PrintWriter(csv)) {
+			out.println("time");
+			for(double t:trace(random,4000)) {out.println(t);}
+		}
+		AModel[] models={
+			new AModel("TankLevel (Dormand-Prince)") {
+				@Override
+				EDSimulator build() {
+					return seeded(TankLevel.newSimulator(new DormandPrince()));
+				}
+				@Override
+				String summary(EDSimulator simulator) {
+					return TankLevel.getSummary(simulator);
+				}
+				@Override
+				boolean valid(EDSimulator simulator) {
+					return TankLevel.isLevelValid(simulator);
+				}
+			},
+			new AModel("TankLevel (Rosenbrock)") {
+				@Override
+				EDSimulator build() {
+					return seeded(TankLevel.newSimulator(new Rosenbrock()));
+				}
+				@Override
+				String summary(EDSimulator simulator) {
+					return TankLevel.getSummary(simulator);
+				}
+				@Override
+				boolean valid(EDSimulator simulator) {
+					return TankLevel.isLevelValid(simulator);
+				}
+			}
+			,
+			new AModel("TraceSource") {
+				@Override
+				EDSimulator build() {
+					try {
+						Counter counter=new Counter();
+						ATraceStream[] streams=new BinaryTraceFile(binary).getStreams();
+						TraceSource source=new TraceSource(counter,"arrival",streams[0],streams[1],new CsvTraceStream(csv));
+						EDSimulator simulator=new EDSimulator(0,4000);
+						simulator.addSimUnit(source);
+						simulator.addSimUnit(counter);
+						simulator.setNbRuns(1);
+						return simulator;
+					}
+					catch(IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+				@Override
+				String summary(EDSimulator simulator) {
+					Counter counter=(Counter)simulator.getSimUnit(1);
+					return "arrivals="+((TraceSource)simulator.getSimUnit(0)).getNbArrivals()+" count="+counter.count+" sum="+counter.sum;
+				}
+			}
+		};
+		int errors=0;
+		for(AModel model:models) {errors+=check(model,nbPauses);}
+		System.out.println(errors+" error(s)");
+		if(errors>0) {System.exit(1);}
+	}
+
+}
@@ -0,0 +1,272 @@
+/**
+ *
+ */
+package eds.bench;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eds.blocks.EntityPool;
+import eds.blocks.Queue;
+import eds.blocks.Server;
+import eds.core.ADistribution;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+import eds.core.SourceUnit;
+
+/**
+ * Stress check of the control API of EDSimulator: simulators of the 
+ * medical laboratory share a small thread pool, and one controller 
+ * thread per simulator drives it with random runUntil(), step(), 
+ * pauseAsync() and resumes. Each simulation must give exactly the results
+ * of the same simulation run without interruption (same seed), runUntil()
+ * must pause at its target time and step() after its number of events,
+ * even after a step() or a runUntil() interrupted by pauseAsync() (whose
+ * target must be dropped).
+ * Then two controller threads race with step() on one simulator: only 
+ * one loop may run at a time (the other step() fails with an 
+ * IllegalStateException), and the results must still be those of the 
+ * uninterrupted simulation.
+ * A final phase stops the simulators with stopAsync() from other threads.
+ *
+ * Usage: java eds.bench.ControlStress [nbSimulators] [nbControls]
+ *
+ * @author Pierre E. Chauvet
+ * @see    EDSimulator
+ */
+public final class ControlStress {
+
+	private static final double OPENING=8*60*60*200; // 200 days (s)
+	private static final int NB_RUNS=3; // runs per simulation
+
+	// A simulator of the laboratory and the results of its runs
+	private static final class Lab {
+		final EDSimulator simulator=new EDSimulator(0,OPENING);
+		final Server exam;
+		final StringBuilder results=new StringBuilder();
+
+		Lab(long seed) {
+			EntityPool users=new EntityPool();
+			exam=new Server(2,ADistribution.normal(7*60,60),Queue.FIFO,users);
+			Server admin=new Server(1,ADistribution.normal(4*60,60),Queue.FIFO,users);
+			admin.setNext(exam,60);
+			simulator.addSimUnit(exam);
+			simulator.addSimUnit(admin);
+			simulator.addSimUnit(new SourceUnit(ADistribution.uniform(2*60,5*60),OPENING,admin,Server.ARRIVAL,1));
+			simulator.setReplicationSeed(seed,false);
+			simulator.setNbRuns(NB_RUNS);
+			simulator.addSimulatorListener(new EDSimulatorListener() {
+				@Override
+				public void simulationStepped(EDSimulatorEvt e) {
+				}
+				@Override
+				public void simulationTerminated(EDSimulatorEvt e) {
+				}
+				@Override
+				public void simulationRunEnded(EDSimulatorEvt e) {
+					results.append(exam.getNbServed()).append(' ').append(exam.getSystemTimes().getMean()).append(' ')
+						.append(simulator.getLastEventTime()).append(' ').append(simulator.getEventCount()).append('\n');
+				}
+			});
+		}
+	}
+
+	// runUntil(until) must pause at until, returns the number of errors
+	private static int runUntil(Lab lab,double until) throws Exception {
+		int state=lab.simulator.runUntil(until).get(60,TimeUnit.SECONDS);
+		if((state==EDSimulator.PAUSED_STATE)&&(lab.exam.getTime()!=until)) {
+			System.out.println("runUntil("+until+") paused at "+lab.exam.getTime());
+			return 1;
+		}
+		return 0;
+	}
+
+	// step(n) must pause after n events (if the run does not end before), 
+	// returns the number of errors
+	private static int step(EDSimulator simulator,long n) throws Exception {
+		int run=simulator.getRunsCount();
+		long count=simulator.getEventCount();
+		int state=simulator.step(n).get(60,TimeUnit.SECONDS);
+		if((state==EDSimulator.PAUSED_STATE)&&(simulator.getRunsCount()==run)&&(simulator.getEventCount()!=count+n)) {
+			System.out.println("step("+n+") played "+(simulator.getEventCount()-count)+" events");
+			return 1;
+		}
+		return 0;
+	}
+
+	// Drives a simulation to its end with random controls (counted in controls), 
+	// returns the number of errors
+	private static int drive(Lab lab,long seed,int nbControls,AtomicLong controls) throws Exception {
+		Random random=new Random(seed);
+		EDSimulator simulator=lab.simulator;
+		int errors=0;
+		for(int i=0;i<nbControls;i++) {
+			// The simulation is terminated
+			if((i>0)&&(simulator.getState()==EDSimulator.STOPPED_STATE)) {break;}
+			controls.incrementAndGet();
+			switch(random.nextInt(5)) {
+			case 0: {
+				errors+=runUntil(lab,lab.exam.getTime()+OPENING/200*random.nextDouble());
+				break;
+			}
+			case 1: {
+				errors+=step(simulator,1+random.nextInt(2000));
+				break;
+			}
+			case 2: {
+				// step() interrupted, then runUntil()
+				simulator.step(20000);
+				Thread.sleep(random.nextInt(3));
+				simulator.pauseAsync().get(60,TimeUnit.SECONDS);
+				if(simulator.getState()==EDSimulator.STOPPED_STATE) {break;}
+				errors+=runUntil(lab,lab.exam.getTime()+OPENING/20*random.nextDouble());
+				break;
+			}
+			case 3: {
+				// runUntil() interrupted, then step()
+				simulator.runUntil(lab.exam.getTime()+OPENING/20);
+				Thread.sleep(random.nextInt(3));
+				simulator.pauseAsync().get(60,TimeUnit.SECONDS);
+				if(simulator.getState()==EDSimulator.STOPPED_STATE) {break;}
+				errors+=step(simulator,1+random.nextInt(20000));
+				break;
+			}
+			default: {
+				simulator.start();
+				Thread.sleep(random.nextInt(3));
+				int state=simulator.pauseAsync().get(60,TimeUnit.SECONDS);
+				if(state==EDSimulator.RUNNING_STATE) {
+					System.out.println("pauseAsync() completed while running");
+					errors++;
+				}
+			}
+			}
+		}
+		// Runs to the end
+		if(simulator.getState()==EDSimulator.PAUSED_STATE) {
+			simulator.start();
+			simulator.getCompletion().get(60,TimeUnit.SECONDS);
+		}
+		return errors;
+	}
+
+	// Two controllers step the simulation of lab concurrently until its end,
+	// returns the number of errors
+	private static int race(final Lab lab,final AtomicLong controls) throws Exception {
+		final EDSimulator simulator=lab.simulator;
+		final int[] errors=new int[2];
+		Thread[] controllers=new Thread[2];
+		for(int c=0;c<2;c++) {
+			final int k=c;
+			final Random random=new Random(k);
+			controllers[c]=new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while(simulator.getState()!=EDSimulator.STOPPED_STATE) {
+							controls.incrementAndGet();
+							try {
+								simulator.step(1+random.nextInt(500)).get(60,TimeUnit.SECONDS);
+							}
+							catch(IllegalStateException e) {
+								// The other controller's loop is running: waits for its pause
+								simulator.getCompletion().get(60,TimeUnit.SECONDS);
+							}
+						}
+					}
+					catch(Exception e) {
+						e.printStackTrace();
+						errors[k]++;
+					}
+				}
+			});
+		}
+		// The simulation is started and paused, so that the controllers resume it
+		simulator.step(1).get(60,TimeUnit.SECONDS);
+		for(Thread t:controllers) {t.start();}
+		for(Thread t:controllers) {t.join();}
+		return errors[0]+errors[1];
+	}
+
+	/**
+	 * The main program
+	 * @param args
+	 * @throws Exception 
+	 */
+	public static void main(String[] args) throws Exception {
+		final int nbSimulators=(args.length>0) ? Integer.parseInt(args[0]) : 8;
+		final int nbControls=(args.length>1) ? Integer.parseInt(args[1]) : 200;
+		final ExecutorService pool=Executors.newFixedThreadPool(Math.max(2,Runtime.getRuntime().availableProcessors()));
+		// Reference results: runs without interruption
+		String[] expected=new String[nbSimulators];
+		for(int s=0;s<nbSimulators;s++) {
+			Lab lab=new Lab(1000+s);
+			lab.simulator.execute();
+			expected[s]=lab.results.toString();
+		}
+		// Controlled runs, each simulator driven by its own thread
+		final Lab[] labs=new Lab[nbSimulators];
+		final int[] errors=new int[nbSimulators];
+		final AtomicLong controls=new AtomicLong();
+		Thread[] controllers=new Thread[nbSimulators];
+		for(int s=0;s<nbSimulators;s++) {
+			labs[s]=new Lab(1000+s);
+			labs[s].simulator.setExecutor(pool);
+			final int k=s;
+			controllers[s]=new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						errors[k]=drive(labs[k],k,nbControls,controls);
+					}
+					catch(Exception e) {
+						e.printStackTrace();
+						errors[k]++;
+					}
+				}
+			});
+			controllers[s].start();
+		}
+		for(Thread t:controllers) {t.join();}
+		int total=0;
+		for(int s=0;s<nbSimulators;s++) {
+			total+=errors[s];
+			if(!labs[s].results.toString().equals(expected[s])) {
+				System.out.println("Simulator "+s+": results differ from the uninterrupted simulation");
+				total++;
+			}
+		}
+		// Concurrent controllers on one simulator
+		Lab raced=new Lab(1000);
+		raced.simulator.setExecutor(pool);
+		total+=race(raced,controls);
+		if(!raced.results.toString().equals(expected[0])) {
+			System.out.println("Concurrent controllers: results differ from the uninterrupted simulation");
+			total++;
+		}
+		// Stops from other threads
+		final CompletableFuture<?>[] stops=new CompletableFuture<?>[nbSimulators];
+		for(int s=0;s<nbSimulators;s++) {
+			labs[s].simulator.setNbRuns(1000);
+			labs[s].simulator.start();
+		}
+		for(int s=0;s<nbSimulators;s++) {
+			stops[s]=labs[s].simulator.stopAsync();
+		}
+		CompletableFuture.allOf(stops).get(60,TimeUnit.SECONDS);
+		for(Lab lab:labs) {
+			if(lab.simulator.getState()!=EDSimulator.STOPPED_STATE) {
+				System.out.println("Simulator not stopped by stopAsync()");
+				total++;
+			}
+		}
+		pool.shutdown();
+		System.out.println(nbSimulators+" simulators, "+controls.get()+" controls: "+total+" error(s)");
+	}
+
+}
@@ -0,0 +1,101 @@
+/**
+ *
+ */
+package eds.bench;
+
+import eds.blocks.EntityPool;
+import eds.blocks.Queue;
+import eds.blocks.Server;
+import eds.core.ADistribution;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+import eds.core.SourceUnit;
+import eds.examples.simpleoffice.SimpleOffice2;
+
+/**
+ * Throughput of the event loop (events per second) on the office models:
+ * the simple office (one unit with String actions), the medical laboratory 
+ * built with blocks (servers and a source, int action codes) and both 
+ * models in the same simulator. The loop uses one set of call sites per 
+ * unit type (typed) or a single shared call site (shared): run each mode 
+ * in its own JVM, so that the type profiles of one mode do not pollute 
+ * the other.
+ *
+ * Usage: java eds.bench.EventLoop [typed|shared] [nbRuns]
+ *
+ * @author Pierre E. Chauvet
+ * @see    EDSimulator , HoldModel
+ */
+public final class EventLoop {
+
+	private static final String[] MODELS={"office","blocks","mixed"};
+	private static final double OPENING=2e7; // opening time of the models (s)
+	private static final int WARMUP=3; // number of warm-up iterations
+	private static final int ITERATIONS=5; // number of measured iterations
+
+	// Adds the units of the simple office
+	private static void addOffice(EDSimulator simulator) {
+		SimpleOffice2 office=new SimpleOffice2(3);
+		office.setDuration_opening((float)OPENING);
+		simulator.addSimUnit(office);
+	}
+
+	// Adds the units of the medical laboratory
+	private static void addBlocks(EDSimulator simulator) {
+		EntityPool users=new EntityPool();
+		Server exam=new Server(2,ADistribution.normal(7*60,60),Queue.FIFO,users);
+		Server admin=new Server(1,ADistribution.normal(4*60,60),Queue.FIFO,users);
+		admin.setNext(exam,60);
+		simulator.addSimUnit(exam);
+		simulator.addSimUnit(admin);
+		simulator.addSimUnit(new SourceUnit(ADistribution.uniform(2*60,5*60),OPENING,admin,Server.ARRIVAL,1));
+	}
+
+	private static EDSimulator newSimulator(int model,boolean typed,int nbRuns,final long[] events) {
+		EDSimulator simulator=new EDSimulator(0,OPENING);
+		if(model!=1) {addOffice(simulator);}
+		if(model!=0) {addBlocks(simulator);}
+		simulator.setTypeDispatch(typed);
+		simulator.setNbRuns(nbRuns);
+		simulator.setProgress(EDSimulator.PROGRESS_EVENT_COUNT,Long.MAX_VALUE);
+		simulator.addSimulatorListener(new EDSimulatorListener() {
+			@Override
+			public void simulationStepped(EDSimulatorEvt e) {
+			}
+			@Override
+			public void simulationTerminated(EDSimulatorEvt e) {
+			}
+			@Override
+			public void simulationRunEnded(EDSimulatorEvt e) {
+				events[0]+=e.getSource().getEventCount();
+			}
+		});
+		return simulator;
+	}
+
+	// Returns the number of events per second of nbRuns runs of a model
+	private static double throughput(int model,boolean typed,int nbRuns) {
+		long[] events=new long[1];
+		EDSimulator simulator=newSimulator(model,typed,nbRuns,events);
+		simulator.execute();
+		return events[0]/simulator.getDuration();
+	}
+
+	/**
+	 * The main program
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		boolean typed=(args.length==0)||!args[0].equals("shared");
+		int nbRuns=(args.length>1) ? Integer.parseInt(args[1]) : 2;
+		System.out.println("model\t"+(typed ? "typed" : "shared")+" (Mevents/s)");
+		for(int model=0;model<MODELS.length;model++) {
+			for(int k=0;k<WARMUP;k++) {throughput(model,typed,nbRuns);}
+			double sum=0;
+			for(int k=0;k<ITERATIONS;k++) {sum+=throughput(model,typed,nbRuns);}
+			System.out.printf("%s\t%.2f%n",MODELS[model],sum/ITERATIONS/1e6);
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+/**
+ *
+ */
+package eds.bench;
+
+import java.util.Random;
+
+import eds.core.AEventQueue;
+import eds.core.ASimUnit;
+import eds.core.EventSchedule;
+import eds.core.LadderEventQueue;
+import eds.core.SortedEventQueue;
+import eds.core.TickClock;
+import eds.core.TickEventQueue;
+
+/**
+ * Classical hold model benchmark of the pending event sets: the schedule
+ * is filled with n events, then each hold operation pops the next event
+ * and inserts a new one at the current time plus a random increment.
+ * Three increment distributions are used: exponential, bursty (most events
+ * clustered in a few short periods) and bimodal. The tick queue uses a 
+ * clock of resolution 1e-6.
+ *
+ * Usage: java eds.bench.HoldModel [nbHolds]
+ *
+ * @author Pierre E. Chauvet
+ * @see    AEventQueue , EventSchedule
+ */
+public final class HoldModel {
+
+	private static final int[] SIZES={100,1000,10000,100000};
+	private static final String[] DISTRIBUTIONS={"exponential","bursty","bimodal"};
+	private static final int WARMUP=3; // number of warm-up iterations
+	private static final int ITERATIONS=5; // number of measured iterations
+
+	// A unit which is never played
+	private static final ASimUnit UNIT=new ASimUnit() {
+		@Override
+		public boolean play(String action) {return true;}
+		@Override
+		public boolean init(double beginTime, double endTime) {return true;}
+	};
+
+	private static double increment(Random random,int distribution) {
+		switch(distribution) {
+		case 1: // 90% of the events in bursts of width 1, the others far away
+			return (random.nextFloat()<0.9f) ? random.nextDouble() : 1000*random.nextDouble();
+		case 2: // bimodal
+			return (random.nextBoolean()) ? 1+0.1*random.nextDouble() : 100+0.1*random.nextDouble();
+		default: // exponential, mean 1
+			return -Math.log(1-random.nextDouble());
+		}
+	}
+
+	private static AEventQueue newQueue(int type) {
+		switch(type) {
+		case 0: return new SortedEventQueue();
+		case 1: return new LadderEventQueue();
+		default: return new TickEventQueue(new TickClock(1e-6));
+		}
+	}
+
+	// Returns the average duration (ns) of one hold operation
+	private static double hold(int type,int size,int distribution,int nbHolds) {
+		Random random=new Random(12345);
+		EventSchedule schedule=new EventSchedule(newQueue(type));
+		schedule.reset();
+		for(int i=0;i<size;i++) {
+			schedule.addEvent(increment(random,distribution),UNIT,"Hold");
+		}
+		long begin=System.nanoTime();
+		for(int i=0;i<nbHolds;i++) {
+			schedule.getEvent();
+			schedule.addEvent(increment(random,distribution),UNIT,"Hold");
+		}
+		return (double)(System.nanoTime()-begin)/nbHolds;
+	}
+
+	/**
+	 * The main program
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int nbHolds=(args.length>0) ? Integer.parseInt(args[0]) : 200000;
+		System.out.println("distribution\tsize\tsorted (ns/hold)\tladder (ns/hold)\ttick (ns/hold)");
+		for(int d=0;d<DISTRIBUTIONS.length;d++) {
+			for(int size:SIZES) {
+				double[] result=new double[3];
+				for(int type=0;type<3;type++) {
+					// Sorted insertion is O(n): fewer holds for large sizes
+					int n=(type==0) ? Math.max(1000,nbHolds/Math.max(1,size/1000)) : nbHolds;
+					for(int k=0;k<WARMUP;k++) {hold(type,size,d,n);}
+					double sum=0;
+					for(int k=0;k<ITERATIONS;k++) {sum+=hold(type,size,d,n);}
+					result[type]=sum/ITERATIONS;
+				}
+				System.out.printf("%s\t%d\t%.1f\t%.1f\t%.1f%n",DISTRIBUTIONS[d],size,result[0],result[1],result[2]);
+			}
+		}
+	}
+
+}
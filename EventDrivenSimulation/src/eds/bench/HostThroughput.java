@@ -0,0 +1,115 @@
+/**
+ *
+ */
+package eds.bench;
+
+import java.util.concurrent.CompletableFuture;
+
+import eds.core.EDSimulator;
+import eds.examples.simpleoffice.SimpleOffice2;
+import eds.host.HostedModel;
+import eds.host.HostedSimulation;
+import eds.host.SimulationHost;
+
+/**
+ * Throughput of many small what-if simulations (one working day of the 
+ * simple office, 1 to 4 employees): started one by one with their own 
+ * thread (start() and join()), run in the calling thread (execute()), 
+ * or submitted to a SimulationHost. Reports the mean duration per 
+ * simulation and, for the host, the mean memory allocated per simulation.
+ *
+ * Usage: java eds.bench.HostThroughput [nbSimulations] [nbWorkers]
+ *
+ * @author Pierre E. Chauvet
+ * @see    SimulationHost , EventLoop
+ */
+public final class HostThroughput {
+
+	private static final int WARMUP=3; // number of warm-up iterations
+	private static final int ITERATIONS=5; // number of measured iterations
+
+	// The what-if simulation number i
+	private static final class Office implements HostedModel {
+		private final int i;
+
+		Office(int i) {
+			this.i=i;
+		}
+
+		@Override
+		public void build(EDSimulator simulator) {
+			simulator.addSimUnit(new SimpleOffice2(1+i%4));
+			simulator.setNbRuns(1);
+		}
+	}
+
+	private static EDSimulator newSimulator(int i) {
+		EDSimulator simulator=new EDSimulator(0,4*60*60);
+		new Office(i).build(simulator);
+		return simulator;
+	}
+
+	// Mean duration (us) of a simulation with its own thread
+	private static double threads(int n) throws InterruptedException {
+		long begin=System.nanoTime();
+		for(int i=0;i<n;i++) {
+			EDSimulator simulator=newSimulator(i);
+			simulator.start();
+			simulator.join();
+		}
+		return (System.nanoTime()-begin)/1e3/n;
+	}
+
+	// Mean duration (us) of a simulation in the calling thread
+	private static double calling(int n) {
+		long begin=System.nanoTime();
+		for(int i=0;i<n;i++) {
+			newSimulator(i).execute();
+		}
+		return (System.nanoTime()-begin)/1e3/n;
+	}
+
+	// Mean duration (us) of a simulation on the host, mean allocated bytes in bytes[0]
+	private static double host(SimulationHost host,int n,double[] bytes) {
+		long begin=System.nanoTime();
+		HostedSimulation[] simulations=new HostedSimulation[n];
+		CompletableFuture<?>[] futures=new CompletableFuture<?>[n];
+		for(int i=0;i<n;i++) {
+			simulations[i]=host.submit(0,4*60*60,new Office(i));
+			futures[i]=simulations[i].getCompletion();
+		}
+		CompletableFuture.allOf(futures).join();
+		double duration=(System.nanoTime()-begin)/1e3/n;
+		double sum=0;
+		for(HostedSimulation simulation:simulations) {sum+=simulation.getAllocatedBytes();}
+		bytes[0]=sum/n;
+		return duration;
+	}
+
+	/**
+	 * The main program
+	 * @param args
+	 * @throws InterruptedException 
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int n=(args.length>0) ? Integer.parseInt(args[0]) : 5000;
+		int nbWorkers=(args.length>1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		SimulationHost host=new SimulationHost(nbWorkers,SimulationHost.DEFAULT_QUANTUM);
+		double[] bytes=new double[1];
+		double[] result=new double[3];
+		for(int k=0;k<WARMUP;k++) {
+			threads(n);
+			calling(n);
+			host(host,n,bytes);
+		}
+		for(int k=0;k<ITERATIONS;k++) {
+			result[0]+=threads(n)/ITERATIONS;
+			result[1]+=calling(n)/ITERATIONS;
+			result[2]+=host(host,n,bytes)/ITERATIONS;
+		}
+		host.shutdown();
+		System.out.println("simulations\tthread (us/sim)\tcalling thread (us/sim)\thost, "+nbWorkers+" worker(s) (us/sim)\thost (bytes/sim)\treused queues");
+		System.out.printf("%d\t%.1f\t%.1f\t%.1f\t%.0f\t%d%n",n,result[0],result[1],result[2],bytes[0],host.getReusedQueues());
+	}
+
+}
@@ -0,0 +1,168 @@
+/**
+ *
+ */
+package eds.bench;
+
+import java.util.Random;
+
+import eds.core.ASimUnit;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+import eds.process.AProcess;
+import eds.process.AProcessUnit;
+
+/**
+ * Cost of the hand-off between the simulation thread and the processes 
+ * of the process-interaction view: n processes hold for random times 
+ * (exponential, mean 1) in a loop, and the duration of one hold is 
+ * compared with the equivalent event-based unit (one event per hold).
+ * The heap used per live process is measured in a separate run (the 
+ * stacks of platform threads are not in the heap).
+ *
+ * Usage: java eds.bench.ProcessHandoff [nbHolds] [sizes...]
+ *
+ * @author Pierre E. Chauvet
+ * @see    AProcessUnit , HoldModel
+ */
+public final class ProcessHandoff {
+
+	private static final int WARMUP=2; // number of warm-up iterations
+	private static final int ITERATIONS=3; // number of measured iterations
+
+	// n processes holding in a loop
+	private static final class Holders extends AProcessUnit {
+		private final Random random=new Random(12345);
+		private final int n;
+		long holds; // number of holds
+
+		Holders(int n) {
+			this.n=n;
+		}
+
+		@Override
+		protected void start(double beginTime,double endTime) {
+			for(int i=0;i<n;i++) {
+				activate(new AProcess() {
+					@Override
+					protected void body() {
+						while(true) {
+							holds++;
+							hold(-Math.log(1-random.nextDouble()));
+						}
+					}
+				},0);
+			}
+		}
+	}
+
+	// n entities holding in a loop, as events of one unit
+	private static final class EventHolders extends ASimUnit {
+		private final Random random=new Random(12345);
+		private final int n;
+		long holds; // number of holds
+
+		EventHolders(int n) {
+			this.n=n;
+		}
+
+		@Override
+		public boolean init(double beginTime,double endTime) {
+			for(int i=0;i<n;i++) {addEvent(0,0);}
+			return true;
+		}
+
+		@Override
+		public boolean play(int code) {
+			holds++;
+			addEvent(-Math.log(1-random.nextDouble()),0);
+			return true;
+		}
+
+		@Override
+		public boolean play(String action) {
+			return false;
+		}
+	}
+
+	private static long usedMemory() {
+		Runtime runtime=Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory()-runtime.freeMemory();
+	}
+
+	// Returns the average duration (ns) of one hold of n processes (the 
+	// simulated time is chosen so that there are about nbHolds holds), 
+	// and the heap used per process at the end of the run in memory if 
+	// not null (the duration is then meaningless)
+	private static double processes(final int n,int nbHolds,final long[] memory) {
+		Holders holders=new Holders(n);
+		EDSimulator simulator=new EDSimulator(0,(float)nbHolds/n);
+		simulator.setStopForEndTime(true);
+		simulator.addSimUnit(holders);
+		simulator.setNbRuns(1);
+		final long before=(memory!=null) ? usedMemory() : 0;
+		if(memory!=null) {
+			simulator.addSimulatorListener(new EDSimulatorListener() {
+				@Override
+				public void simulationStepped(EDSimulatorEvt e) {
+				}
+				@Override
+				public void simulationTerminated(EDSimulatorEvt e) {
+				}
+				@Override
+				public void simulationRunEnded(EDSimulatorEvt e) {
+					// The n processes are still alive (suspended)
+					memory[0]=(usedMemory()-before)/n;
+				}
+			});
+		}
+		long begin=System.nanoTime();
+		simulator.execute();
+		double duration=System.nanoTime()-begin;
+		holders.terminate();
+		return duration/holders.holds;
+	}
+
+	private static double events(int n,int nbHolds) {
+		EventHolders holders=new EventHolders(n);
+		EDSimulator simulator=new EDSimulator(0,(float)nbHolds/n);
+		simulator.setStopForEndTime(true);
+		simulator.addSimUnit(holders);
+		simulator.setNbRuns(1);
+		long begin=System.nanoTime();
+		simulator.execute();
+		return (System.nanoTime()-begin)/(double)holders.holds;
+	}
+
+	/**
+	 * The main program
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int nbHolds=(args.length>0) ? Integer.parseInt(args[0]) : 200000;
+		int[] sizes;
+		if(args.length>1) {
+			sizes=new int[args.length-1];
+			for(int i=1;i<args.length;i++) {sizes[i-1]=Integer.parseInt(args[i]);}
+		}
+		else {
+			// 10^5 platform threads are not practical
+			sizes=AProcessUnit.isVirtual() ? new int[] {10,1000,10000,100000} : new int[] {10,1000,10000};
+		}
+		System.out.println((AProcessUnit.isVirtual() ? "Virtual" : "Platform")+" threads");
+		System.out.println("processes\tprocess (ns/hold)\tevent (ns/hold)\tmemory (bytes/process)");
+		long[] memory=new long[1];
+		for(int n:sizes) {
+			for(int k=0;k<WARMUP;k++) {processes(n,nbHolds,null);events(n,nbHolds);}
+			double p=0,e=0;
+			for(int k=0;k<ITERATIONS;k++) {
+				p+=processes(n,nbHolds,null);
+				e+=events(n,nbHolds);
+			}
+			processes(n,Math.max(n,nbHolds/10),memory);
+			System.out.printf("%d\t%.1f\t%.1f\t%d%n",n,p/ITERATIONS,e/ITERATIONS,memory[0]);
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+/**
+ * 
+ */
+package eds.bench;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import eds.core.ASimUnit;
+import eds.experiment.ADesign;
+import eds.experiment.AScenario;
+import eds.experiment.ReplicationCoordinator;
+import eds.experiment.ReplicationWorker;
+import eds.experiment.ScenarioFactory;
+
+/**
+ * Checks that a ReplicationCoordinator aborts an experiment whose 
+ * replications fail, instead of waiting forever: a replication that 
+ * throws must abort the experiment with the exception of the model after
+ * the maximum number of attempts, and a replication that kills its 
+ * worker process must abort it once no worker remains. The workers are
+ * started in new JVMs of this machine.
+ *
+ * Usage: java eds.bench.ReplicationFailure
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ReplicationCoordinator , ReplicationWorker
+ */
+public final class ReplicationFailure {
+
+	static final String MESSAGE="Failure of the model"; // message of the exception thrown by the model
+
+	// A scenario whose unit plays one event, and fails at time 1 if failure > 0
+	// (1: throws an exception, 2: exits the JVM)
+	static final class Failing extends AScenario {
+		private double value; // output of the run
+
+		Failing(final int failure) {
+			super(0,10);
+			simulator.addSimUnit(new ASimUnit() {
+				@Override
+				public boolean init(double beginTime,double endTime) {
+					value=0;
+					addEvent(1,"fail");
+					return true;
+				}
+				@Override
+				public boolean play(String action) {
+					if(failure==1) {throw new IllegalStateException(MESSAGE);}
+					if(failure==2) {System.exit(3);}
+					value=getTime();
+					return true;
+				}
+			});
+		}
+
+		@Override
+		public void observe(double[] values) {
+			values[0]=value;
+		}
+	}
+
+	// The third scenario fails in all its replications, as given by the point
+	public static final class FailingFactory implements ScenarioFactory {
+		@Override
+		public AScenario create(double[] point) {
+			return new Failing((point[0]==2) ? (int)point[1] : 0);
+		}
+	}
+
+	// Runs the experiment, and returns the message of its abort (null if not aborted)
+	private static String run(int failure,int nbWorkers) throws IOException, InterruptedException {
+		ADesign design=ADesign.grid(new String[] {"scenario","failure"},new double[][] {{0,1,2,3},{failure}});
+		ReplicationCoordinator coordinator=new ReplicationCoordinator(design,FailingFactory.class,"value");
+		coordinator.setReplications(20);
+		coordinator.setChunkSize(4);
+		coordinator.setSeed(1);
+		coordinator.setTimeout(60*1000);
+		ServerSocket server=new ServerSocket(0);
+		Process[] workers=ReplicationWorker.launch(nbWorkers,"localhost",server.getLocalPort(),1);
+		String message=null;
+		try {
+			coordinator.run(server);
+		}
+		catch(IOException e) {
+			message=e.getMessage();
+		}
+		for(Process worker:workers) {worker.waitFor();}
+		return message;
+	}
+
+	/**
+	 * The main program
+	 * @param args unused
+	 * @throws IOException 
+	 * @throws InterruptedException 
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int errors=0;
+		String message=run(0,2);
+		System.out.println("No failure: "+((message==null) ? "done" : "aborted: "+message));
+		if(message!=null) {errors++;}
+		message=run(1,2);
+		System.out.println("Exception in the model: "+((message==null) ? "done" : "aborted: "+message.split("\n")[0]));
+		if((message==null)||!message.contains(MESSAGE)) {errors++;}
+		message=run(2,2);
+		System.out.println("Worker exits: "+((message==null) ? "done" : "aborted: "+message));
+		if(message==null) {errors++;}
+		System.out.println(errors+" error(s)");
+		if(errors>0) {System.exit(1);}
+	}
+
+}
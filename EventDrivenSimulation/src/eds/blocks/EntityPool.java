@@ -0,0 +1,128 @@
+/**
+ * 
+ */
+package eds.blocks;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A pool of recycled entities (users, patients, parts...) flowing through 
+ * the blocks. An entity is only an int index in primitive arrays holding 
+ * its attributes, so acquiring and releasing an entity allocates nothing 
+ * once the pool has reached its working size.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     Queue , Server
+ */
+public final class EntityPool {
+
+	private double[] arrivalTime; // time of entrance in the system
+	private double[] entryTime; // time of entrance in the current queue
+	private double[] priority; // priority (used by priority queues, lower first)
+	private int[] free; // stack of free entities
+	private int nbFree; // number of free entities
+	private int capacity; // number of allocated entities
+
+	public EntityPool() {
+		this(64);
+	}
+
+	public EntityPool(int capacity) {
+		this.capacity=0;
+		arrivalTime=new double[0];
+		entryTime=new double[0];
+		priority=new double[0];
+		free=new int[0];
+		grow(Math.max(capacity,1));
+	}
+
+	private void grow(int newCapacity) {
+		arrivalTime=Arrays.copyOf(arrivalTime,newCapacity);
+		entryTime=Arrays.copyOf(entryTime,newCapacity);
+		priority=Arrays.copyOf(priority,newCapacity);
+		free=Arrays.copyOf(free,newCapacity);
+		// New entities are pushed so that the lowest index is popped first
+		for(int e=newCapacity-1;e>=capacity;e--) {free[nbFree++]=e;}
+		capacity=newCapacity;
+	}
+
+	// Returns a free entity entering the system at time
+	public int acquire(double time) {
+		if(nbFree==0) {grow(2*capacity);}
+		int e=free[--nbFree];
+		arrivalTime[e]=time;
+		entryTime[e]=time;
+		priority[e]=0;
+		return e;
+	}
+
+	// Gives an entity back to the pool
+	public void release(int e) {
+		free[nbFree++]=e;
+	}
+
+	// Releases all the entities (new run)
+	public void reset() {
+		nbFree=0;
+		for(int e=capacity-1;e>=0;e--) {free[nbFree++]=e;}
+	}
+
+	/**
+	 * @return the number of entities in use
+	 */
+	public int getNbUsed() {
+		return capacity-nbFree;
+	}
+
+	public double getArrivalTime(int e) {
+		return arrivalTime[e];
+	}
+
+	public double getEntryTime(int e) {
+		return entryTime[e];
+	}
+
+	public void setEntryTime(int e,double time) {
+		entryTime[e]=time;
+	}
+
+	public double getPriority(int e) {
+		return priority[e];
+	}
+
+	public void setPriority(int e,double value) {
+		priority[e]=value;
+	}
+
+	// Writes the entities (checkpoints)
+	public void save(DataOutput out) throws IOException {
+		out.writeInt(capacity);
+		out.writeInt(nbFree);
+		for(int i=0;i<nbFree;i++) {out.writeInt(free[i]);}
+		for(int e=0;e<capacity;e++) {
+			out.writeDouble(arrivalTime[e]);
+			out.writeDouble(entryTime[e]);
+			out.writeDouble(priority[e]);
+		}
+	}
+
+	public void load(DataInput in) throws IOException {
+		capacity=in.readInt();
+		arrivalTime=new double[capacity];
+		entryTime=new double[capacity];
+		priority=new double[capacity];
+		free=new int[capacity];
+		nbFree=in.readInt();
+		for(int i=0;i<nbFree;i++) {free[i]=in.readInt();}
+		for(int e=0;e<capacity;e++) {
+			arrivalTime[e]=in.readDouble();
+			entryTime[e]=in.readDouble();
+			priority[e]=in.readDouble();
+		}
+	}
+
+}
@@ -0,0 +1,215 @@
+/**
+ *
+ */
+package eds.blocks;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A queue of entities of an EntityPool, with FIFO, LIFO or priority
+ * discipline (lowest priority value first, FIFO between equal priorities).
+ * FIFO and LIFO queues are primitive ring buffers of entity indexes, the
+ * priority queue is a binary heap of entity indexes: no object is created
+ * per entity. The queue records waiting times and its length over time.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     EntityPool , Server , Tally , TimeWeighted
+ */
+public final class Queue {
+
+	// Constants that represent the queue disciplines
+	public static final int FIFO=0;
+	public static final int LIFO=1;
+	public static final int PRIORITY=2;
+
+	private final EntityPool pool; // pool of the queued entities
+	private final int discipline;
+	private int[] items; // ring buffer (FIFO, LIFO) or heap (PRIORITY)
+	private long[] ranks; // insertion ranks of the heap items (PRIORITY)
+	private int head; // index of the first item of the ring buffer
+	private int size; // number of queued entities
+	private long rank; // number of insertions (PRIORITY)
+	// Observation variables
+	private final Tally waitingTimes=new Tally();
+	private final TimeWeighted length=new TimeWeighted();
+
+	public Queue(EntityPool pool,int discipline) {
+		this.pool=pool;
+		this.discipline=discipline;
+		items=new int[16];
+		ranks=(discipline==PRIORITY) ? new long[16] : null;
+	}
+
+	public Queue(EntityPool pool) {
+		this(pool,FIFO);
+	}
+
+	// Empties the queue and restarts the statistics at time
+	public void reset(double time) {
+		head=0;
+		size=0;
+		rank=0;
+		waitingTimes.reset();
+		length.reset(time,0);
+	}
+
+	// Restarts the statistics at time, keeping the queued entities
+	public void resetStatistics(double time) {
+		waitingTimes.reset();
+		length.restart(time);
+	}
+
+	// Adds entity e at time
+	public void add(int e,double time) {
+		if(size==items.length) {grow();}
+		pool.setEntryTime(e,time);
+		if(discipline==PRIORITY) {
+			siftUp(size,e,rank++);
+		}
+		else {
+			items[(head+size)&(items.length-1)]=e;
+		}
+		size++;
+		length.update(time,size);
+	}
+
+	// Removes the next entity at time (-1 if the queue is empty)
+	public int remove(double time) {
+		if(size==0) {return -1;}
+		int e;
+		if(discipline==FIFO) {
+			e=items[head];
+			head=(head+1)&(items.length-1);
+		}
+		else if(discipline==LIFO) {
+			e=items[(head+size-1)&(items.length-1)];
+		}
+		else {
+			e=items[0];
+			int last=items[size-1];
+			long lastRank=ranks[size-1];
+			if(size>1) {siftDown(0,last,lastRank,size-1);}
+		}
+		size--;
+		waitingTimes.add(time-pool.getEntryTime(e));
+		length.update(time,size);
+		return e;
+	}
+
+	// Capacity is kept a power of two (ring buffer index masking)
+	private void grow() {
+		int n=items.length;
+		int[] newItems=new int[2*n];
+		if(discipline==PRIORITY) {
+			System.arraycopy(items,0,newItems,0,size);
+			ranks=Arrays.copyOf(ranks,2*n);
+		}
+		else {
+			for(int i=0;i<size;i++) {newItems[i]=items[(head+i)&(n-1)];}
+			head=0;
+		}
+		items=newItems;
+	}
+
+	private boolean precedes(int e1,long r1,int e2,long r2) {
+		double p1=pool.getPriority(e1),p2=pool.getPriority(e2);
+		return (p1<p2)||((p1==p2)&&(r1<r2));
+	}
+
+	private void siftUp(int i,int e,long r) {
+		while(i>0) {
+			int parent=(i-1)>>>1;
+			if(!precedes(e,r,items[parent],ranks[parent])) {break;}
+			items[i]=items[parent];
+			ranks[i]=ranks[parent];
+			i=parent;
+		}
+		items[i]=e;
+		ranks[i]=r;
+	}
+
+	private void siftDown(int i,int e,long r,int n) {
+		int half=n>>>1;
+		while(i<half) {
+			int child=2*i+1;
+			int right=child+1;
+			if((right<n)&&precedes(items[right],ranks[right],items[child],ranks[child])) {child=right;}
+			if(!precedes(items[child],ranks[child],e,r)) {break;}
+			items[i]=items[child];
+			ranks[i]=ranks[child];
+			i=child;
+		}
+		items[i]=e;
+		ranks[i]=r;
+	}
+
+	// Writes the queued entities and the statistics (checkpoints)
+	public void save(DataOutput out) throws IOException {
+		out.writeInt(size);
+		out.writeLong(rank);
+		for(int i=0;i<size;i++) {
+			if(discipline==PRIORITY) {
+				out.writeInt(items[i]);
+				out.writeLong(ranks[i]);
+			}
+			else {
+				out.writeInt(items[(head+i)&(items.length-1)]);
+			}
+		}
+		waitingTimes.save(out);
+		length.save(out);
+	}
+
+	public void load(DataInput in) throws IOException {
+		size=in.readInt();
+		rank=in.readLong();
+		head=0;
+		int n=16;
+		while(n<size) {n*=2;}
+		items=new int[n];
+		if(discipline==PRIORITY) {ranks=new long[n];}
+		for(int i=0;i<size;i++) {
+			items[i]=in.readInt();
+			if(discipline==PRIORITY) {ranks[i]=in.readLong();}
+		}
+		waitingTimes.load(in);
+		length.load(in);
+	}
+
+	/**
+	 * @return the number of queued entities
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	/**
+	 * @return the discipline
+	 */
+	public int getDiscipline() {
+		return discipline;
+	}
+
+	/**
+	 * @return the statistics of the waiting times of the removed entities
+	 */
+	public Tally getWaitingTimes() {
+		return waitingTimes;
+	}
+
+	/**
+	 * @return the time-weighted statistics of the queue length
+	 */
+	public TimeWeighted getLength() {
+		return length;
+	}
+
+}
@@ -0,0 +1,108 @@
+/**
+ * 
+ */
+package eds.blocks;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A pool of identical resources (employees, nurses, rooms...). 
+ * Resources are seized and released one at a time; the number of busy 
+ * resources is recorded over time, which gives the utilisation and the 
+ * fraction of time with n resources busy, for n=0 to capacity.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     Server , TimeWeighted
+ */
+public final class Resource {
+
+	private final int capacity; // number of resources
+	private int busy; // number of busy resources
+	// Observation variables
+	private final TimeWeighted usage; // number of busy resources over time
+
+	public Resource(int capacity) {
+		this.capacity=capacity;
+		usage=new TimeWeighted(capacity);
+	}
+
+	// All resources are free at time
+	public void reset(double time) {
+		busy=0;
+		usage.reset(time,0);
+	}
+
+	// Restarts the statistics at time, keeping the busy resources
+	public void resetStatistics(double time) {
+		usage.restart(time);
+	}
+
+	// Seizes one resource at time, returns false if none is free
+	public boolean seize(double time) {
+		if(busy==capacity) {return false;}
+		busy++;
+		usage.update(time,busy);
+		return true;
+	}
+
+	// Releases one resource at time
+	public void release(double time) {
+		if(busy>0) {
+			busy--;
+			usage.update(time,busy);
+		}
+	}
+
+	/**
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of busy resources
+	 */
+	public int getBusy() {
+		return busy;
+	}
+
+	/**
+	 * @return the number of free resources
+	 */
+	public int getFree() {
+		return capacity-busy;
+	}
+
+	// Mean fraction of the resources which are busy, until time
+	public double getUtilisation(double time) {
+		return (capacity>0) ? usage.getMean(time)/capacity : 0;
+	}
+
+	// Fractions of the time with n resources busy (n=0 to capacity), until time
+	public double[] getPercentBusy(double time) {
+		return usage.getFractions(time);
+	}
+
+	/**
+	 * @return the time-weighted statistics of the number of busy resources
+	 */
+	public TimeWeighted getUsage() {
+		return usage;
+	}
+
+	// Writes the state and statistics (checkpoints)
+	public void save(DataOutput out) throws IOException {
+		out.writeInt(busy);
+		usage.save(out);
+	}
+
+	public void load(DataInput in) throws IOException {
+		busy=in.readInt();
+		usage.load(in);
+	}
+
+}
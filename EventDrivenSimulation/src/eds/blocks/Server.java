@@ -0,0 +1,244 @@
+/**
+ *
+ */
+package eds.blocks;
+
+import java.io.IOException;
+import java.util.Random;
+
+import eds.core.ADistribution;
+import eds.core.ASimUnit;
+import eds.core.StateInput;
+import eds.core.StateOutput;
+
+/**
+ * A service block: a queue in front of a pool of resources, each resource
+ * serving one entity at a time with a service time drawn from a distribution
+ * (the office of SimpleOffice2, the nurses of Examination...).
+ * New entities arrive with the action "Arrival" (or the code ARRIVAL, as
+ * played by a SourceUnit), and leave the system after their service unless
+ * a next block is set, to which they are transferred after a delay.
+ * Entities are recycled from an EntityPool, which can be shared by several
+ * blocks. Events use action codes, so they bypass the String dispatch.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     Queue , Resource , EntityPool
+ */
+public class Server extends ASimUnit {
+
+	// Action code of the arrival of a new entity
+	public static final int ARRIVAL=0;
+	// End of service of entity e: code 2e+1, delayed transfer of entity e: code 2e+2
+
+	private Random random=newRandomStream();
+	private final EntityPool pool; // entities flowing through the block
+	private final Queue queue; // waiting entities
+	private final Resource resource; // servers
+	private ADistribution service; // service time distribution
+	private Server next=null; // block receiving the served entities
+	private double delayToNext=0; // transfer time to the next block
+	// Observation variables
+	private long nbArrivals; // number of entities arrived in the current run
+	private long nbServed; // number of entities served in the current run
+	private final Tally waitingTimes=new Tally(); // waiting times, zero waits included
+	private final Tally systemTimes=new Tally(); // times from system entrance to departure
+	private final Tally serviceTimes=new Tally(); // sampled service times (control variate)
+
+	public Server(int capacity,ADistribution service,int discipline,EntityPool pool) {
+		this.pool=pool;
+		this.service=service;
+		queue=new Queue(pool,discipline);
+		resource=new Resource(capacity);
+	}
+
+	public Server(int capacity,ADistribution service) {
+		this(capacity,service,Queue.FIFO,new EntityPool());
+	}
+
+	@Override
+	public boolean init(double beginTime, double endTime) {
+		pool.reset();
+		queue.reset(beginTime);
+		resource.reset(beginTime);
+		nbArrivals=0;
+		nbServed=0;
+		waitingTimes.reset();
+		systemTimes.reset();
+		serviceTimes.reset();
+		return true;
+	}
+
+	// Restarts the observation variables, keeping the state of the block
+	@Override
+	public void resetStatistics(double time) {
+		queue.resetStatistics(time);
+		resource.resetStatistics(time);
+		nbArrivals=0;
+		nbServed=0;
+		waitingTimes.reset();
+		systemTimes.reset();
+		serviceTimes.reset();
+	}
+
+	@Override
+	public boolean play(String action) {
+		if(action.equals("Arrival")) {return play(ARRIVAL);}
+		return false;
+	}
+
+	@Override
+	public boolean play(int code) {
+		if(code==ARRIVAL) {
+			arrive(pool.acquire(getTime()));
+		}
+		else if((code&1)==1) {
+			endService((code-1)>>>1);
+		}
+		else {
+			arrive((code-2)>>>1);
+		}
+		return true;
+	}
+
+	// Entity e enters the block
+	public void arrive(int e) {
+		double time=getTime();
+		nbArrivals++;
+		if(queue.isEmpty()&&resource.seize(time)) {
+			waitingTimes.add(0);
+			startService(e);
+		}
+		else {
+			queue.add(e,time);
+		}
+	}
+
+	private void startService(int e) {
+		double duration=service.sample(random);
+		serviceTimes.add(duration);
+		addEvent(duration,2*e+1);
+	}
+
+	private void endService(int e) {
+		double time=getTime();
+		nbServed++;
+		if(next==null) {
+			systemTimes.add(time-pool.getArrivalTime(e));
+			pool.release(e);
+		}
+		else if(delayToNext>0) {
+			addEvent(delayToNext,next,2*e+2);
+		}
+		else {
+			next.arrive(e);
+		}
+		if(!queue.isEmpty()) {
+			int f=queue.remove(time);
+			waitingTimes.add(time-pool.getEntryTime(f));
+			startService(f);
+		}
+		else {
+			resource.release(time);
+		}
+	}
+
+	// The entity pool is saved with the block (once per block if shared)
+	@Override
+	public void saveState(StateOutput out) throws IOException {
+		pool.save(out);
+		queue.save(out);
+		resource.save(out);
+		out.writeLong(nbArrivals);
+		out.writeLong(nbServed);
+		waitingTimes.save(out);
+		systemTimes.save(out);
+		serviceTimes.save(out);
+	}
+
+	@Override
+	public void loadState(StateInput in) throws IOException {
+		pool.load(in);
+		queue.load(in);
+		resource.load(in);
+		nbArrivals=in.readLong();
+		nbServed=in.readLong();
+		waitingTimes.load(in);
+		systemTimes.load(in);
+		serviceTimes.load(in);
+	}
+
+	/**
+	 * @param next the block receiving the served entities (null to leave the system)
+	 * @param delay the transfer time to the next block
+	 */
+	public final void setNext(Server next,double delay) {
+		this.next=next;
+		this.delayToNext=delay;
+	}
+
+	/**
+	 * @param service the service time distribution
+	 */
+	public final void setService(ADistribution service) {
+		this.service = service;
+	}
+
+	/**
+	 * @return the queue
+	 */
+	public final Queue getQueue() {
+		return queue;
+	}
+
+	/**
+	 * @return the resource pool
+	 */
+	public final Resource getResource() {
+		return resource;
+	}
+
+	/**
+	 * @return the entity pool
+	 */
+	public final EntityPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @return the number of entities arrived in the current run
+	 */
+	public final long getNbArrivals() {
+		return nbArrivals;
+	}
+
+	/**
+	 * @return the number of entities served in the current run
+	 */
+	public final long getNbServed() {
+		return nbServed;
+	}
+
+	/**
+	 * @return the statistics of the waiting times in this block
+	 */
+	public final Tally getWaitingTimes() {
+		return waitingTimes;
+	}
+
+	/**
+	 * @return the statistics of the times spent in the system (last block only)
+	 */
+	public final Tally getSystemTimes() {
+		return systemTimes;
+	}
+
+	/**
+	 * @return the statistics of the sampled service times (their mean is 
+	 * known, so they are good control variates)
+	 */
+	public final Tally getServiceTimes() {
+		return serviceTimes;
+	}
+
+}
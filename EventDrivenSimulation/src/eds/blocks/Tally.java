@@ -0,0 +1,108 @@
+/**
+ * 
+ */
+package eds.blocks;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Streaming statistics of a series of observations (waiting times, 
+ * system times...): count, mean, variance, minimum and maximum, 
+ * updated in O(1) without storing the observations (Welford's method).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     TimeWeighted , Queue , Server
+ */
+public final class Tally {
+
+	private long count; // number of observations
+	private double mean; // running mean
+	private double m2; // running sum of squared deviations
+	private double min;
+	private double max;
+
+	public Tally() {
+		reset();
+	}
+
+	public void reset() {
+		count=0;
+		mean=0;
+		m2=0;
+		min=Double.POSITIVE_INFINITY;
+		max=Double.NEGATIVE_INFINITY;
+	}
+
+	// Adds one observation
+	public void add(double x) {
+		count++;
+		double delta=x-mean;
+		mean+=delta/count;
+		m2+=delta*(x-mean);
+		if(x<min) {min=x;}
+		if(x>max) {max=x;}
+	}
+
+	/**
+	 * @return the number of observations
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the mean (0 if no observation)
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * @return the sample variance (0 if less than two observations)
+	 */
+	public double getVariance() {
+		return (count>1) ? m2/(count-1) : 0;
+	}
+
+	/**
+	 * @return the sample standard deviation
+	 */
+	public double getStd() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * @return the minimum
+	 */
+	public double getMin() {
+		return min;
+	}
+
+	/**
+	 * @return the maximum
+	 */
+	public double getMax() {
+		return max;
+	}
+
+	// Writes the statistics (checkpoints)
+	public void save(DataOutput out) throws IOException {
+		out.writeLong(count);
+		out.writeDouble(mean);
+		out.writeDouble(m2);
+		out.writeDouble(min);
+		out.writeDouble(max);
+	}
+
+	public void load(DataInput in) throws IOException {
+		count=in.readLong();
+		mean=in.readDouble();
+		m2=in.readDouble();
+		min=in.readDouble();
+		max=in.readDouble();
+	}
+
+}
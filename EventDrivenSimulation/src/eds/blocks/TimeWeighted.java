@@ -0,0 +1,141 @@
+/**
+ * 
+ */
+package eds.blocks;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Streaming time-weighted statistics of a piecewise constant level 
+ * (queue length, number of busy servers...): time average and, for 
+ * integer levels between 0 and maxLevel, the time spent at each level.
+ * It replaces the storage of the (time,level) trace of a run.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     Tally , Queue , Resource
+ */
+public final class TimeWeighted {
+
+	private double startTime; // beginning of the observation
+	private double lastTime; // time of the last level change
+	private double level; // current level
+	private double area; // integral of the level from startTime to lastTime
+	private double max; // maximum level
+	private final double[] durations; // time spent at each level (0..maxLevel)
+
+	// Time average only
+	public TimeWeighted() {
+		this(-1);
+	}
+
+	// Time average and time spent at each level from 0 to maxLevel
+	public TimeWeighted(int maxLevel) {
+		durations=(maxLevel>=0) ? new double[maxLevel+1] : null;
+		reset(0,0);
+	}
+
+	// Restarts the observation at time with the given level
+	public void reset(double time,double level) {
+		startTime=time;
+		lastTime=time;
+		this.level=level;
+		area=0;
+		max=level;
+		if(durations!=null) {
+			for(int i=0;i<durations.length;i++) {durations[i]=0;}
+		}
+	}
+
+	// Restarts the observation at time, keeping the current level
+	// (truncation of a warm-up period)
+	public void restart(double time) {
+		reset(time,level);
+	}
+
+	// The level becomes level at time
+	public void update(double time,double level) {
+		accumulate(time);
+		this.level=level;
+		if(level>max) {max=level;}
+	}
+
+	private void accumulate(double time) {
+		double dt=time-lastTime;
+		if(dt>0) {
+			area+=dt*level;
+			if(durations!=null) {
+				int i=(int) level;
+				if((i>=0)&&(i<durations.length)) {durations[i]+=dt;}
+			}
+			lastTime=time;
+		}
+	}
+
+	/**
+	 * @return the current level
+	 */
+	public double getLevel() {
+		return level;
+	}
+
+	/**
+	 * @return the maximum level
+	 */
+	public double getMax() {
+		return max;
+	}
+
+	// Time average of the level from the beginning to time
+	public double getMean(double time) {
+		accumulate(time);
+		return (lastTime>startTime) ? area/(lastTime-startTime) : level;
+	}
+
+	// Fraction of the time spent at level i, from the beginning to time
+	public double getFraction(int i,double time) {
+		accumulate(time);
+		if((durations==null)||(i<0)||(i>=durations.length)||(lastTime<=startTime)) {return 0;}
+		return durations[i]/(lastTime-startTime);
+	}
+
+	// Fractions of the time spent at each level, from the beginning to time
+	public double[] getFractions(double time) {
+		double[] fractions=new double[(durations!=null) ? durations.length : 0];
+		for(int i=0;i<fractions.length;i++) {fractions[i]=getFraction(i,time);}
+		return fractions;
+	}
+
+	// Writes the statistics (checkpoints)
+	public void save(DataOutput out) throws IOException {
+		out.writeDouble(startTime);
+		out.writeDouble(lastTime);
+		out.writeDouble(level);
+		out.writeDouble(area);
+		out.writeDouble(max);
+		out.writeInt((durations!=null) ? durations.length : 0);
+		if(durations!=null) {
+			for(double d:durations) {out.writeDouble(d);}
+		}
+	}
+
+	public void load(DataInput in) throws IOException {
+		startTime=in.readDouble();
+		lastTime=in.readDouble();
+		level=in.readDouble();
+		area=in.readDouble();
+		max=in.readDouble();
+		// The number of levels may differ (capacity changed after a fork)
+		int n=in.readInt();
+		for(int i=0;i<n;i++) {
+			double d=in.readDouble();
+			if((durations!=null)&&(i<durations.length)) {durations[i]=d;}
+		}
+		if(durations!=null) {
+			for(int i=n;i<durations.length;i++) {durations[i]=0;}
+		}
+	}
+
+}
@@ -0,0 +1,348 @@
+/**
+ * 
+ */
+package eds.continuous;
+
+import java.io.IOException;
+
+import eds.core.StateInput;
+import eds.core.StateOutput;
+
+/**
+ * the ancestor abstract class for the continuous units of hybrid models: 
+ * a system of ordinary differential equations (tank levels, battery 
+ * charges, temperatures...) integrated by an adaptive AIntegrator, with 
+ * state events detected by zero crossings of crossing functions 
+ * (thresholds of a level, of a temperature...).
+ * The unit does not play any event while its dynamics are smooth. After 
+ * each discrete change (initialization, crossing, input changed by 
+ * another unit), the trajectory is predicted with adaptive steps until 
+ * the next zero crossing, which is located by root finding (Illinois 
+ * method on the Hermite interpolant of the step) and scheduled as an 
+ * event, or until the end of the simulation. The accepted steps are kept,
+ * and the unit is advanced lazily (ALazyUnit), only when its state is 
+ * read: one step from the last accepted point before the current time.
+ * When the state is read after the end of the prediction (after the end
+ * time), the prediction goes on and its crossings are played in order
+ * (crossed(k) is then called at the time it is read, the state being 
+ * that of the crossing).
+ * A crossing is an event playing crossed(k); an input changed by another 
+ * unit must be followed by changed(), which predicts a new trajectory.
+ * The predicted trajectory and the number of the prediction (which tags
+ * its pending events) are saved in the checkpoints; subclasses save their
+ * inputs, then call super.saveState().
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ALazyUnit , ODESystem , AIntegrator
+ */
+public abstract class AContinuousUnit extends ALazyUnit implements ODESystem {
+
+	private static final int HORIZON=255; // slot of the event continuing a long prediction
+	private static final int MAX_ROOT_ITERATIONS=60; // iterations of the root finding
+
+	private final int dimension; // number of state variables
+	private final int nbCrossings; // number of crossing functions (at most 255)
+	private final AIntegrator integrator; // integrator of the equations
+	private int maxSteps=1000; // maximum number of steps kept per prediction
+	private double endTime; // end of the simulation
+	private int generation=0; // number of the current prediction (stale events are ignored)
+	private double nextStep=0; // size of the next step (0: unknown)
+	// Predicted trajectory: accepted points from the last discrete change
+	private int nbPoints=0; // number of points
+	private double[] times; // times of the points
+	private double[][] states; // states at the points
+	private double[][] rates; // derivatives at the points
+	// Current state
+	private final double[] y; // state at the last advanced time
+	// Crossings
+	private final double[] gStart; // values of the crossing functions at the beginning of a step
+	private final int[] signs; // signs of the crossing functions (0: unknown yet)
+	private final double[] yRoot; // interpolated state during root finding
+	private boolean catchingUp=false; // crossings after the end of the prediction being played by advance()
+
+	public AContinuousUnit(int dimension,int nbCrossings,AIntegrator integrator) {
+		if(nbCrossings>=HORIZON) {throw new IllegalArgumentException("Too many crossing functions: "+nbCrossings);}
+		this.dimension=dimension;
+		this.nbCrossings=nbCrossings;
+		this.integrator=integrator;
+		y=new double[dimension];
+		yRoot=new double[dimension];
+		gStart=new double[nbCrossings];
+		signs=new int[nbCrossings];
+		allocate(64);
+	}
+
+	// Writes the initial state at beginTime in y
+	abstract protected void initState(double beginTime,double[] y);
+
+	// Value of crossing function k at (t,y): a state event occurs when it 
+	// changes sign. By default there is no crossing function
+	protected double crossing(int k,double t,double[] y) {
+		return 1;
+	}
+
+	// Reaction to the zero crossing of function k at the current time:
+	// the state (getState()) and the inputs of the equations can be changed
+	protected void crossed(int k) {
+	}
+
+	@Override
+	public final int getDimension() {
+		return dimension;
+	}
+
+	@Override
+	public boolean init(double beginTime,double endTime) {
+		this.endTime=endTime;
+		initState(beginTime,y);
+		super.init(beginTime,endTime);
+		nextStep=0;
+		predict(beginTime,-1);
+		return true;
+	}
+
+	@Override
+	public boolean play(int code) {
+		// Events of a previous prediction are ignored
+		if((code>>>8)!=(generation&0x7FFFFF)) {return true;}
+		synchronize();
+		int k=code&0xFF;
+		if(k!=HORIZON) {
+			crossed(k);
+			predict(getTime(),k);
+		}
+		else {
+			predict(getTime(),-1);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the state at the current time (computed if needed); it can 
+	 * be modified, then changed() must be called
+	 */
+	public final double[] getState() {
+		if(!catchingUp) {synchronize();}
+		return y;
+	}
+
+	// State variable i at the current time
+	public final double getValue(int i) {
+		if(!catchingUp) {synchronize();}
+		return y[i];
+	}
+
+	// Called after a change of the state or of the inputs at the current 
+	// time: the trajectory is predicted again from the current state
+	public final void changed() {
+		// In a crossing played by advance(), which predicts again after it
+		if(catchingUp) {return;}
+		synchronize();
+		predict(getTime(),-1);
+	}
+
+	// Computes the state at time t from the predicted trajectory
+	@Override
+	protected final void advance(double from,double t) {
+		if(t>times[nbPoints-1]) {
+			// Beyond the prediction (after the end time): predicts further,
+			// playing the crossings before t in order
+			endTime=Math.max(endTime,t);
+			catchingUp=true;
+			try {
+				int k=-1;
+				while(t>times[nbPoints-1]) {
+					double tk=times[nbPoints-1];
+					System.arraycopy(states[nbPoints-1],0,y,0,dimension);
+					if((k>=0)&&(k!=HORIZON)) {crossed(k);}
+					k=predict(tk,(k!=HORIZON) ? k : -1);
+				}
+			}
+			finally {
+				catchingUp=false;
+			}
+		}
+		// Last point before t, then one step (shorter than the accepted one) from it
+		int lo=0,hi=nbPoints-1;
+		while(lo<hi) {
+			int mid=(lo+hi+1)>>>1;
+			if(times[mid]<=t) {lo=mid;}
+			else {hi=mid-1;}
+		}
+		if(times[lo]==t) {System.arraycopy(states[lo],0,y,0,dimension);}
+		else {
+			integrator.attempt(this,times[lo],states[lo],rates[lo],t-times[lo],y,yRoot);
+		}
+	}
+
+	// Predicts the trajectory from (t,y) until the next zero crossing, the
+	// end of the simulation or maxSteps steps. The sign of the crossing 
+	// function fired (-1: none), which is zero at t, is taken at the end 
+	// of the first step. Returns the crossing function (or HORIZON) whose
+	// event would be before the current time, for advance() to play it, 
+	// -1 if the event is scheduled or if the end time is reached
+	private int predict(double t,int fired) {
+		generation++;
+		times[0]=t;
+		System.arraycopy(y,0,states[0],0,dimension);
+		derivatives(t,y,rates[0]);
+		nbPoints=1;
+		for(int k=0;k<nbCrossings;k++) {
+			gStart[k]=crossing(k,t,y);
+			signs[k]=(k==fired) ? 0 : (int)Math.signum(gStart[k]);
+		}
+		double h=(nextStep>0) ? nextStep : integrator.firstStep(this,t,y,rates[0]);
+		while((t<endTime)&&(nbPoints<=maxSteps)) {
+			int p=nbPoints-1;
+			if(nbPoints==times.length) {allocate(2*times.length);}
+			double[] y1=states[nbPoints],f1=rates[nbPoints];
+			h=Math.min(h,endTime-t);
+			double err=integrator.attempt(this,t,states[p],rates[p],h,y1,f1);
+			if(!(err<=1)) {
+				h=integrator.nextStep(h,err);
+				if(h<=Math.ulp(t)*16) {throw new IllegalStateException("Step size too small at time "+t+" in "+getClass().getName());}
+				continue;
+			}
+			// Zero crossings in the step: the first one is kept
+			int first=-1;
+			double firstTheta=2;
+			for(int k=0;k<nbCrossings;k++) {
+				double g=crossing(k,t+h,y1);
+				if(signs[k]==0) {signs[k]=(int)Math.signum(g);}
+				else if((int)Math.signum(g)!=signs[k]) {
+					double theta=root(k,t,h,states[p],rates[p],y1,f1,gStart[k],g);
+					if(theta<firstTheta) {first=k;firstTheta=theta;}
+				}
+				gStart[k]=g;
+			}
+			if(first>=0) {
+				// Step shortened to the crossing
+				double hc=firstTheta*h;
+				integrator.attempt(this,t,states[p],rates[p],hc,y1,f1);
+				times[nbPoints++]=t+hc;
+				nextStep=h;
+				if(t+hc<getTime()) {return first;}
+				addEvent(t+hc-getTime(),(generation&0x7FFFFF)<<8|first);
+				return -1;
+			}
+			times[nbPoints++]=t+h;
+			t+=h;
+			h=integrator.nextStep(h,err);
+			nextStep=h;
+		}
+		if(t<endTime) {
+			// Too many steps: the prediction goes on from the last point
+			if(t<getTime()) {return HORIZON;}
+			addEvent(t-getTime(),(generation&0x7FFFFF)<<8|HORIZON);
+		}
+		return -1;
+	}
+
+	// Locates the zero of crossing function k in the step of size h from t
+	// (Illinois method on the interpolant), returns the fraction of the 
+	// step just after the crossing
+	private double root(int k,double t,double h,double[] y0,double[] f0,double[] y1,double[] f1,double g0,double g1) {
+		double a=0,b=1,ga=g0,gb=g1;
+		double tol=Math.max(1e-12,16*Math.ulp(t+h)/h);
+		int side=0;
+		for(int i=0;(i<MAX_ROOT_ITERATIONS)&&(b-a>tol);i++) {
+			double c=(ga==gb) ? (a+b)/2 : b-gb*(b-a)/(gb-ga);
+			if((c<=a)||(c>=b)) {c=(a+b)/2;}
+			AIntegrator.interpolate(c,h,y0,f0,y1,f1,yRoot);
+			double gc=crossing(k,t+c*h,yRoot);
+			if(Math.signum(gc)==Math.signum(ga)) {
+				a=c;ga=gc;
+				if(side==-1) {gb/=2;}
+				side=-1;
+			}
+			else {
+				b=c;gb=gc;
+				if(side==1) {ga/=2;}
+				side=1;
+			}
+		}
+		return b;
+	}
+
+	@Override
+	public void saveState(StateOutput out) throws IOException {
+		super.saveState(out);
+		out.writeDouble(endTime);
+		out.writeInt(generation);
+		out.writeDouble(nextStep);
+		for(int i=0;i<dimension;i++) {out.writeDouble(y[i]);}
+		for(int k=0;k<nbCrossings;k++) {
+			out.writeDouble(gStart[k]);
+			out.writeInt(signs[k]);
+		}
+		out.writeInt(nbPoints);
+		for(int p=0;p<nbPoints;p++) {
+			out.writeDouble(times[p]);
+			for(int i=0;i<dimension;i++) {
+				out.writeDouble(states[p][i]);
+				out.writeDouble(rates[p][i]);
+			}
+		}
+	}
+
+	// Called after init(): the prediction of init() is replaced by the saved
+	// one, whose events are restored with the pending events
+	@Override
+	public void loadState(StateInput in) throws IOException {
+		super.loadState(in);
+		endTime=in.readDouble();
+		generation=in.readInt();
+		nextStep=in.readDouble();
+		for(int i=0;i<dimension;i++) {y[i]=in.readDouble();}
+		for(int k=0;k<nbCrossings;k++) {
+			gStart[k]=in.readDouble();
+			signs[k]=in.readInt();
+		}
+		nbPoints=in.readInt();
+		if(nbPoints>times.length) {allocate(Integer.highestOneBit(nbPoints-1)<<1);}
+		for(int p=0;p<nbPoints;p++) {
+			times[p]=in.readDouble();
+			for(int i=0;i<dimension;i++) {
+				states[p][i]=in.readDouble();
+				rates[p][i]=in.readDouble();
+			}
+		}
+	}
+
+	private void allocate(int n) {
+		int m=(times==null) ? 0 : times.length;
+		double[] t=new double[n];
+		double[][] s=new double[n][],r=new double[n][];
+		for(int i=0;i<n;i++) {
+			s[i]=(i<m) ? states[i] : new double[dimension];
+			r[i]=(i<m) ? rates[i] : new double[dimension];
+		}
+		if(m>0) {System.arraycopy(times,0,t,0,m);}
+		times=t;
+		states=s;
+		rates=r;
+	}
+
+	/**
+	 * @return the integrator
+	 */
+	public final AIntegrator getIntegrator() {
+		return integrator;
+	}
+
+	/**
+	 * @param maxSteps the maximum number of steps of one prediction
+	 */
+	public final void setMaxSteps(int maxSteps) {
+		this.maxSteps=maxSteps;
+	}
+
+	/**
+	 * @return the number of the crossing functions
+	 */
+	public final int getNbCrossings() {
+		return nbCrossings;
+	}
+
+}
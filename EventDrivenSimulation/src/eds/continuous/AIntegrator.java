@@ -0,0 +1,135 @@
+/**
+ * 
+ */
+package eds.continuous;
+
+/**
+ * the ancestor abstract class for the adaptive integrators of ordinary 
+ * differential equations: a step of size h is attempted from (t,y) and 
+ * returns the norm of its local error estimate, scaled by the absolute 
+ * and relative tolerances. The step is accepted if this norm is at most
+ * 1, and the size of the next step is derived from it.
+ * The derivative at the end of the step is always computed, so that the
+ * next step can start from it and the solution can be interpolated 
+ * (cubic Hermite) inside the step.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     DormandPrince , Rosenbrock , AContinuousUnit
+ */
+public abstract class AIntegrator {
+
+	protected double absTol=1e-6; // absolute tolerance
+	protected double relTol=1e-6; // relative tolerance
+	protected double maxStep=Double.POSITIVE_INFINITY; // maximum step size
+	// Statistics
+	protected long nbEvaluations; // number of evaluations of f
+	private long nbSteps; // number of accepted steps
+	private long nbRejected; // number of rejected steps
+
+	/**
+	 * Attempts one step.
+	 * @param system the differential equations
+	 * @param t the time at the beginning of the step
+	 * @param y the state at t
+	 * @param f0 the derivative at (t,y)
+	 * @param h the step size
+	 * @param y1 receives the state at t+h
+	 * @param f1 receives the derivative at (t+h,y1)
+	 * @return the scaled norm of the error (the step is accepted if <=1)
+	 */
+	abstract public double attempt(ODESystem system,double t,double[] y,double[] f0,double h,double[] y1,double[] f1);
+
+	// Order of the error estimate (the error is O(h^(order+1)))
+	abstract public int getOrder();
+
+	// Size of the next step (accepted or rejected step of size h and 
+	// error err), limited by the maximum step
+	public double nextStep(double h,double err) {
+		double factor=(err==0) ? 5 : Math.min(5,Math.max(0.2,0.9*Math.pow(err,-1.0/(getOrder()+1))));
+		if(err<=1) {nbSteps++;}
+		else {
+			nbRejected++;
+			factor=Math.min(factor,0.9);
+		}
+		return Math.min(maxStep,h*factor);
+	}
+
+	// Size of the first step from (t,y) with derivative f0
+	public double firstStep(ODESystem system,double t,double[] y,double[] f0) {
+		double ny=0,nf=0;
+		for(int i=0;i<y.length;i++) {
+			double sc=absTol+relTol*Math.abs(y[i]);
+			ny+=(y[i]/sc)*(y[i]/sc);
+			nf+=(f0[i]/sc)*(f0[i]/sc);
+		}
+		ny=Math.sqrt(ny/y.length);
+		nf=Math.sqrt(nf/y.length);
+		double h=((ny<1e-5)||(nf<1e-5)) ? 1e-6 : 0.01*ny/nf;
+		return Math.min(maxStep,h);
+	}
+
+	// Scaled RMS norm of an error vector
+	protected final double norm(double[] err,double[] y,double[] y1) {
+		double sum=0;
+		for(int i=0;i<err.length;i++) {
+			double sc=absTol+relTol*Math.max(Math.abs(y[i]),Math.abs(y1[i]));
+			double e=err[i]/sc;
+			sum+=e*e;
+		}
+		return Math.sqrt(sum/err.length);
+	}
+
+	// Evaluates the derivatives (counted)
+	protected final void evaluate(ODESystem system,double t,double[] y,double[] dydt) {
+		nbEvaluations++;
+		system.derivatives(t,y,dydt);
+	}
+
+	// Hermite cubic interpolation at t0+theta*h of a step from (y0,f0) to (y1,f1)
+	public static void interpolate(double theta,double h,double[] y0,double[] f0,double[] y1,double[] f1,double[] y) {
+		double t2=theta*theta,t3=t2*theta;
+		double h00=2*t3-3*t2+1,h10=t3-2*t2+theta,h01=-2*t3+3*t2,h11=t3-t2;
+		for(int i=0;i<y.length;i++) {
+			y[i]=h00*y0[i]+h10*h*f0[i]+h01*y1[i]+h11*h*f1[i];
+		}
+	}
+
+	/**
+	 * @param absTol the absolute tolerance
+	 * @param relTol the relative tolerance
+	 */
+	public void setTolerances(double absTol,double relTol) {
+		this.absTol=absTol;
+		this.relTol=relTol;
+	}
+
+	/**
+	 * @param maxStep the maximum step size
+	 */
+	public void setMaxStep(double maxStep) {
+		this.maxStep=maxStep;
+	}
+
+	/**
+	 * @return the number of accepted steps
+	 */
+	public long getNbSteps() {
+		return nbSteps;
+	}
+
+	/**
+	 * @return the number of rejected steps
+	 */
+	public long getNbRejected() {
+		return nbRejected;
+	}
+
+	/**
+	 * @return the number of evaluations of the derivatives
+	 */
+	public long getNbEvaluations() {
+		return nbEvaluations;
+	}
+
+}
@@ -0,0 +1,100 @@
+/**
+ * 
+ */
+package eds.continuous;
+
+import java.io.IOException;
+
+import eds.core.ASimUnit;
+import eds.core.StateInput;
+import eds.core.StateOutput;
+
+/**
+ * the ancestor abstract class for the lazy continuous units: a continuous
+ * sub-model (differential equations, PDE field...) which is not advanced 
+ * at regular time steps, but only when its state is needed. The unit 
+ * records the time up to which it was advanced; when another unit reads 
+ * its state (through accessors calling synchronize()), or when one of its
+ * own state events is due, it is advanced from that time to the current 
+ * time in one call of advance(), which can take one large implicit step 
+ * or a few adaptive steps.
+ * A discontinuity of the sub-model (a source switched off, an input 
+ * changed...) must be scheduled as an event of the unit, so that the 
+ * state is advanced up to it before the change.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     AContinuousUnit
+ */
+public abstract class ALazyUnit extends ASimUnit {
+
+	private double lastTime; // time up to which the unit was advanced
+	private long nbAdvances; // number of calls of advance() in the current run
+
+	// Advances the state of the sub-model from time from to time to (to>from)
+	abstract protected void advance(double from,double to);
+
+	// Reaction to an event of the unit (a state event), the state being 
+	// advanced to the current time. By default nothing is done
+	protected boolean stateEvent(int code) {
+		return true;
+	}
+
+	// Subclasses initialize their state, then call super.init()
+	@Override
+	public boolean init(double beginTime,double endTime) {
+		lastTime=beginTime;
+		nbAdvances=0;
+		return true;
+	}
+
+	@Override
+	public boolean play(int code) {
+		synchronize();
+		return stateEvent(code);
+	}
+
+	@Override
+	public boolean play(String action) {
+		return false;
+	}
+
+	// Advances the state to the current time if needed: must be called 
+	// before any read or change of the state
+	public final void synchronize() {
+		double t=getTime();
+		if(t>lastTime) {
+			advance(lastTime,t);
+			lastTime=t;
+			nbAdvances++;
+		}
+	}
+
+	// Subclasses write their state, then call super.saveState()
+	@Override
+	public void saveState(StateOutput out) throws IOException {
+		out.writeDouble(lastTime);
+		out.writeLong(nbAdvances);
+	}
+
+	@Override
+	public void loadState(StateInput in) throws IOException {
+		lastTime=in.readDouble();
+		nbAdvances=in.readLong();
+	}
+
+	/**
+	 * @return the time up to which the unit was advanced
+	 */
+	public final double getLastTime() {
+		return lastTime;
+	}
+
+	/**
+	 * @return the number of advances in the current run
+	 */
+	public final long getNbAdvances() {
+		return nbAdvances;
+	}
+
+}
@@ -0,0 +1,63 @@
+/**
+ * 
+ */
+package eds.continuous;
+
+/**
+ * The explicit Runge-Kutta method of Dormand and Prince (DOPRI5): order 5
+ * with an embedded order 4 error estimate, 6 evaluations of the 
+ * derivatives per step (the last stage is the derivative at the end of 
+ * the step). Suited to non-stiff systems.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     AIntegrator , Rosenbrock
+ */
+public final class DormandPrince extends AIntegrator {
+
+	private static final double C2=1.0/5,C3=3.0/10,C4=4.0/5,C5=8.0/9;
+	private static final double A21=1.0/5;
+	private static final double A31=3.0/40,A32=9.0/40;
+	private static final double A41=44.0/45,A42=-56.0/15,A43=32.0/9;
+	private static final double A51=19372.0/6561,A52=-25360.0/2187,A53=64448.0/6561,A54=-212.0/729;
+	private static final double A61=9017.0/3168,A62=-355.0/33,A63=46732.0/5247,A64=49.0/176,A65=-5103.0/18656;
+	private static final double A71=35.0/384,A73=500.0/1113,A74=125.0/192,A75=-2187.0/6784,A76=11.0/84;
+	private static final double E1=71.0/57600,E3=-71.0/16695,E4=71.0/1920,E5=-17253.0/339200,E6=22.0/525,E7=-1.0/40;
+
+	private double[] k2,k3,k4,k5,k6,tmp,err; // work arrays
+
+	private void allocate(int n) {
+		if((k2==null)||(k2.length!=n)) {
+			k2=new double[n];k3=new double[n];k4=new double[n];
+			k5=new double[n];k6=new double[n];tmp=new double[n];err=new double[n];
+		}
+	}
+
+	@Override
+	public double attempt(ODESystem system,double t,double[] y,double[] f0,double h,double[] y1,double[] f1) {
+		int n=y.length;
+		allocate(n);
+		for(int i=0;i<n;i++) {tmp[i]=y[i]+h*A21*f0[i];}
+		evaluate(system,t+C2*h,tmp,k2);
+		for(int i=0;i<n;i++) {tmp[i]=y[i]+h*(A31*f0[i]+A32*k2[i]);}
+		evaluate(system,t+C3*h,tmp,k3);
+		for(int i=0;i<n;i++) {tmp[i]=y[i]+h*(A41*f0[i]+A42*k2[i]+A43*k3[i]);}
+		evaluate(system,t+C4*h,tmp,k4);
+		for(int i=0;i<n;i++) {tmp[i]=y[i]+h*(A51*f0[i]+A52*k2[i]+A53*k3[i]+A54*k4[i]);}
+		evaluate(system,t+C5*h,tmp,k5);
+		for(int i=0;i<n;i++) {tmp[i]=y[i]+h*(A61*f0[i]+A62*k2[i]+A63*k3[i]+A64*k4[i]+A65*k5[i]);}
+		evaluate(system,t+h,tmp,k6);
+		for(int i=0;i<n;i++) {y1[i]=y[i]+h*(A71*f0[i]+A73*k3[i]+A74*k4[i]+A75*k5[i]+A76*k6[i]);}
+		evaluate(system,t+h,y1,f1);
+		for(int i=0;i<n;i++) {
+			err[i]=h*(E1*f0[i]+E3*k3[i]+E4*k4[i]+E5*k5[i]+E6*k6[i]+E7*f1[i]);
+		}
+		return norm(err,y,y1);
+	}
+
+	@Override
+	public int getOrder() {
+		return 4;
+	}
+
+}
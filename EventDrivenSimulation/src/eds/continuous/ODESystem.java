@@ -0,0 +1,22 @@
+/**
+ * 
+ */
+package eds.continuous;
+
+/**
+ * A system of ordinary differential equations dy/dt=f(t,y), integrated 
+ * by an AIntegrator.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     AIntegrator , AContinuousUnit
+ */
+public interface ODESystem {
+
+	// Number of state variables
+	public int getDimension();
+
+	// Writes f(t,y) in dydt
+	public void derivatives(double t,double[] y,double[] dydt);
+
+}
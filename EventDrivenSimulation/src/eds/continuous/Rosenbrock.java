@@ -0,0 +1,112 @@
+/**
+ * 
+ */
+package eds.continuous;
+
+/**
+ * The linearly implicit Rosenbrock method of Shampine and Reichelt 
+ * (ode23s): order 2 with an embedded order 3 error estimate, L-stable, 
+ * suited to stiff systems (fast thermal or electrical modes beside slow 
+ * ones). Each step solves three linear systems with the matrix 
+ * W=I-h*d*J, factorized once; the Jacobian J of the derivatives and 
+ * their time derivative are estimated by finite differences.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     AIntegrator , DormandPrince
+ */
+public final class Rosenbrock extends AIntegrator {
+
+	private static final double D=1/(2+Math.sqrt(2));
+	private static final double E32=6+Math.sqrt(2);
+
+	private double[][] w; // W=I-h*d*J, then its LU factors
+	private int[] pivots; // row permutation of the LU factors
+	private double[] dfdt,k1,k2,k3,f2,tmp,err; // work arrays
+
+	private void allocate(int n) {
+		if((w==null)||(w.length!=n)) {
+			w=new double[n][n];pivots=new int[n];
+			dfdt=new double[n];k1=new double[n];k2=new double[n];k3=new double[n];
+			f2=new double[n];tmp=new double[n];err=new double[n];
+		}
+	}
+
+	@Override
+	public double attempt(ODESystem system,double t,double[] y,double[] f0,double h,double[] y1,double[] f1) {
+		int n=y.length;
+		allocate(n);
+		// Jacobian by forward differences (column j in w[.][j])
+		for(int j=0;j<n;j++) {
+			double yj=y[j];
+			double delta=Math.sqrt(Math.ulp(1.0))*Math.max(Math.abs(yj),absTol);
+			System.arraycopy(y,0,tmp,0,n);
+			tmp[j]=yj+delta;
+			evaluate(system,t,tmp,k1);
+			for(int i=0;i<n;i++) {w[i][j]=-h*D*(k1[i]-f0[i])/delta;}
+			w[j][j]+=1;
+		}
+		// Time derivative
+		double dt=Math.sqrt(Math.ulp(1.0))*Math.max(Math.abs(t),Math.abs(h));
+		evaluate(system,t+dt,y,k1);
+		for(int i=0;i<n;i++) {dfdt[i]=(k1[i]-f0[i])/dt;}
+		if(!factorize(n)) {return Double.POSITIVE_INFINITY;}
+		// k1=W\(f0+h*d*T)
+		for(int i=0;i<n;i++) {k1[i]=f0[i]+h*D*dfdt[i];}
+		solve(n,k1);
+		// k2=W\(f(t+h/2,y+h/2*k1)-k1)+k1
+		for(int i=0;i<n;i++) {tmp[i]=y[i]+0.5*h*k1[i];}
+		evaluate(system,t+0.5*h,tmp,f2);
+		for(int i=0;i<n;i++) {k2[i]=f2[i]-k1[i];}
+		solve(n,k2);
+		for(int i=0;i<n;i++) {
+			k2[i]+=k1[i];
+			y1[i]=y[i]+h*k2[i];
+		}
+		evaluate(system,t+h,y1,f1);
+		// k3=W\(f1-e32*(k2-f(t+h/2))-2*(k1-f0)+h*d*T)
+		for(int i=0;i<n;i++) {k3[i]=f1[i]-E32*(k2[i]-f2[i])-2*(k1[i]-f0[i])+h*D*dfdt[i];}
+		solve(n,k3);
+		for(int i=0;i<n;i++) {err[i]=h/6*(k1[i]-2*k2[i]+k3[i]);}
+		return norm(err,y,y1);
+	}
+
+	// LU factorization of w with partial pivoting, false if singular
+	private boolean factorize(int n) {
+		for(int k=0;k<n;k++) {
+			int p=k;
+			for(int i=k+1;i<n;i++) {
+				if(Math.abs(w[i][k])>Math.abs(w[p][k])) {p=i;}
+			}
+			pivots[k]=p;
+			if(w[p][k]==0) {return false;}
+			if(p!=k) {double[] r=w[p];w[p]=w[k];w[k]=r;}
+			for(int i=k+1;i<n;i++) {
+				double m=w[i][k]/w[k][k];
+				w[i][k]=m;
+				for(int j=k+1;j<n;j++) {w[i][j]-=m*w[k][j];}
+			}
+		}
+		return true;
+	}
+
+	// Solves w*x=b in place
+	private void solve(int n,double[] b) {
+		for(int k=0;k<n;k++) {
+			int p=pivots[k];
+			if(p!=k) {double v=b[p];b[p]=b[k];b[k]=v;}
+			for(int i=k+1;i<n;i++) {b[i]-=w[i][k]*b[k];}
+		}
+		for(int i=n-1;i>=0;i--) {
+			double s=b[i];
+			for(int j=i+1;j<n;j++) {s-=w[i][j]*b[j];}
+			b[i]=s/w[i][i];
+		}
+	}
+
+	@Override
+	public int getOrder() {
+		return 2;
+	}
+
+}
@@ -0,0 +1,62 @@
+/**
+ * 
+ */
+package eds.core;
+
+import java.util.Random;
+
+/**
+ * the ancestor abstract class for the probability distributions 
+ * sampled by the simulation units (interarrival times, service times...).
+ * Provides the usual distributions of the examples as static factories.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     SourceUnit
+ */
+public abstract class ADistribution {
+
+	// Draws one value using the given random generator
+	abstract public double sample(Random random);
+
+	// Constant value
+	public static ADistribution constant(final double value) {
+		return new ADistribution() {
+			@Override
+			public double sample(Random random) {
+				return value;
+			}
+		};
+	}
+
+	// Uniform distribution between min and max
+	public static ADistribution uniform(final double min,final double max) {
+		return new ADistribution() {
+			@Override
+			public double sample(Random random) {
+				return min+(max-min)*random.nextDouble();
+			}
+		};
+	}
+
+	// Exponential distribution of mean mean
+	public static ADistribution exponential(final double mean) {
+		return new ADistribution() {
+			@Override
+			public double sample(Random random) {
+				return -mean*Math.log(1-random.nextDouble());
+			}
+		};
+	}
+
+	// Normal distribution of mean mean and standard deviation std
+	public static ADistribution normal(final double mean,final double std) {
+		return new ADistribution() {
+			@Override
+			public double sample(Random random) {
+				return mean+std*random.nextGaussian();
+			}
+		};
+	}
+
+}
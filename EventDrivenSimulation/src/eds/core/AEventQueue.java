@@ -0,0 +1,68 @@
+/**
+ * 
+ */
+package eds.core;
+
+import java.util.Comparator;
+
+/**
+ * the ancestor abstract class for the data structures storing the 
+ * pending events of an EventSchedule (the pending event set).
+ * Events are returned by poll() in increasing order of their key 
+ * (trigger time shifted by the unit priority), and in insertion 
+ * order when keys are identical.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     EventSchedule , SortedEventQueue , LadderEventQueue , TickEventQueue
+ */
+public abstract class AEventQueue {
+
+	// Descending order of (key,seq), the order of the sorted lists of events
+	protected static final Comparator<Event> DESCENDING=new Comparator<Event>() {
+		@Override
+		public int compare(Event e1, Event e2) {
+			if(e1.before(e2)) return 1;
+			if(e2.before(e1)) return -1;
+			return 0;
+		}
+	};
+
+	// Inserts an event (key and seq are already set by the schedule)
+	abstract public void add(Event evt);
+
+	// Inserts the n first events of an array (key and seq already set).
+	// The default implementation inserts them one by one.
+	public void addAll(Event[] evts,int n) {
+		for(int i=0;i<n;i++) {add(evts[i]);}
+	}
+
+	// Removes and returns the event with the smallest key, null if empty
+	abstract public Event poll();
+
+	// Returns the event with the smallest key without removing it, null if empty
+	abstract public Event peek();
+
+	// Number of pending events
+	abstract public int size();
+
+	// Removes all pending events
+	abstract public void clear();
+
+	// Removes all events relating to unit from the instant fromTime
+	abstract public void removeEvents(ASimUnit unit,double fromTime);
+
+	// Returns the pending events, in no particular order (checkpoints)
+	abstract public Event[] toArray();
+
+	// Clock of the schedules using this queue, null for a continuous time.
+	// Queues ordering events by their ticks return their clock
+	public TickClock getClock() {
+		return null;
+	}
+
+	public boolean isEmpty() {
+		return size()==0;
+	}
+
+}
@@ -0,0 +1,22 @@
+/**
+ * 
+ */
+package eds.core;
+
+/**
+ * the ancestor abstract class for the routers of the events inserted in
+ * an EventSchedule: a router may take an event (an event for a unit that
+ * lives in another simulator, for instance) instead of the pending event 
+ * set of the schedule.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     EventSchedule , EDSimulator
+ */
+public abstract class AEventRouter {
+
+	// Returns true if the router takes evt (it is then not inserted in the 
+	// schedule), false if evt must be inserted in the schedule
+	abstract public boolean route(Event evt);
+
+}
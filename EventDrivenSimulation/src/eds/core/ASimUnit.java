@@ -3,10 +3,16 @@
  */
 package eds.core;
 
+import java.io.IOException;
+import java.util.ArrayList;
+
 /**
  * the ancestor abstract class for all classes called by the 
  * timer of a simulation (implemented in class EventSchedule). 
  * Provides the abstract method play(action) and init().
+ * Units that must survive a checkpoint override saveState() and 
+ * loadState(), and draw their random numbers from streams created 
+ * by newRandomStream().
  *
  * @author  Pierre E. Chauvet
  * @version 1.0
@@ -18,17 +24,35 @@ public abstract class ASimUnit {
     public byte priority=0;  // priority (in case of event time collision)
     protected EventSchedule schedule=null; // associated scheduler 
     protected EDSimulator simulator=null; // parent simulator
+    int dispatchType=-1; // call sites of the unit's class in the event loop (set by the simulator)
+    int id=-1; // dense index of the unit in its simulator, -1 if not added
+    private final ArrayList<SimRandom> randomStreams=new ArrayList<SimRandom>(); // streams saved in checkpoints
  
     // Associate the scheduler to this object
     public void linkToSchedule(EventSchedule schedule) {
     	this.schedule=schedule;
     }
  
+    // Return the index of the unit in its simulator (-1 if not added)
+    public final int getId() {
+       return id;
+    }
+
     // Return the current time from the scheduler
     public double getTime() {
        return schedule.getTime();
     }
     
+    // Return the current time in ticks (schedule with a TickClock)
+    public long getTicks() {
+       return schedule.getTicks();
+    }
+
+    // Add an event after a number of ticks (schedule with a TickClock)
+    public void addEventTicks(long ticks,int code) {
+       schedule.addEvent(schedule.getClock().toTime(ticks),this,code);
+    }
+
     // Add an event to the scheduler for the current ASimUnit object
     public void addEvent(double step,String action) {
     	schedule.addEvent(step,this, action);
@@ -39,10 +63,67 @@ public abstract class ASimUnit {
     	schedule.addEvent(step,unit, action);
     }
 
+    // Add an event with an action code (fast path) for the current ASimUnit object
+    public void addEvent(double step,int code) {
+    	schedule.addEvent(step,this, code);
+    }
+
+    // Add an event with an action code (fast path) for an other ASimUnit object
+    public void addEvent(double step,ASimUnit unit, int code) {
+    	schedule.addEvent(step,unit, code);
+    }
+
+    // Add one event per step to the scheduler for the current ASimUnit object
+    public void addEvents(double[] steps,String action) {
+    	schedule.addEvents(steps,this, action);
+    }
+
+    // Add one event per step to the scheduler for an other ASimUnit object
+    public void addEvents(double[] steps,ASimUnit unit, String action) {
+    	schedule.addEvents(steps,unit, action);
+    }
+
    // Interface of the response to an action method 
     abstract public boolean play(String action);
  
+   // Response to an action code (events added with an int code instead 
+   // of a String): units using this fast path override this method 
+    public boolean play(int code) {
+    	return false;
+    }
+ 
    // Interface of the initialization method
     abstract public boolean init(double beginTime,double endTime);
 
+   // Creates a random stream of this unit, whose state is saved in the
+   // checkpoints of the simulator
+    protected SimRandom newRandomStream() {
+    	SimRandom random=new SimRandom();
+    	randomStreams.add(random);
+    	return random;
+    }
+
+    // Random streams created by newRandomStream()
+    final ArrayList<SimRandom> getRandomStreams() {
+    	return randomStreams;
+    }
+
+   // Restarts the observation variables (statistics) at time without 
+   // changing the state of the unit: called at the end of the warm-up 
+   // period and at each observation of a steady-state simulation. By 
+   // default the unit has no statistics
+    public void resetStatistics(double time) {
+    }
+
+   // Writes the state variables of the unit in a checkpoint. Pending 
+   // events and random streams are saved by the simulator. By default 
+   // the unit has no state
+    public void saveState(StateOutput out) throws IOException {
+    }
+
+   // Reads the state written by saveState(). It is called after init(),
+   // so that the unit only has to read the variables that evolve
+    public void loadState(StateInput in) throws IOException {
+    }
+
 }
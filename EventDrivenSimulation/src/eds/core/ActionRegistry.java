@@ -0,0 +1,61 @@
+/**
+ * 
+ */
+package eds.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Registry of the String actions of the events of one simulator (owned 
+ * by its EventSchedule, so it lives as long as the simulator and only 
+ * holds the actions of its model): each action gets a dense integer id
+ * when first scheduled, and the events store that id in their code 
+ * (-2-id), with the registered instance of the action (so that the
+ * equals() tests of the play() methods succeed at the first comparison).
+ * The ids depend on the order in which the actions are first scheduled:
+ * the checkpoints write the names of the actions with their ids.
+ * A registry is used by the thread of its simulator only.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     Event , EventSchedule
+ */
+public final class ActionRegistry {
+
+	private final HashMap<String,Integer> ids=new HashMap<String,Integer>();
+	private String[] names=new String[16]; // actions by id
+	private int size=0; // number of registered actions
+
+	ActionRegistry() {
+	}
+
+	// Returns the id of action, registered if it is new
+	public int id(String action) {
+		Integer id=ids.get(action);
+		return (id!=null) ? id.intValue() : register(action);
+	}
+
+	private int register(String action) {
+		if(size==names.length) {names=Arrays.copyOf(names,2*size);}
+		names[size]=action;
+		ids.put(action,size);
+		return size++;
+	}
+
+	// Returns the action of id (registered instance)
+	public String name(int id) {
+		return names[id];
+	}
+
+	// Returns the code of the events of action (-1 for a null action)
+	int code(String action) {
+		return (action!=null) ? -2-id(action) : -1;
+	}
+
+	// Number of registered actions
+	public int size() {
+		return size;
+	}
+
+}
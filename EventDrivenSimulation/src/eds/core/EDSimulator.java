@@ -3,14 +3,37 @@
  */
 package eds.core;
 
-import java.util.Vector;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.event.EventListenerList;
 
+import eds.jfr.SimulationProgressEvent;
+import eds.jfr.SimulationRunEvent;
+
 /**
  * the final class EDSimulator implements the event loop on an
  * EventSchedule in the run() method, to simulate a discrete
- * event system. The simulation is running in its own thread.
+ * event system. The simulation is running in its own thread, in a task
+ * of an executor or in the calling thread (execute()). The state of the
+ * simulator is atomic: it can be controlled from any thread, and the
+ * non-blocking controls (runUntil(), step(), pauseAsync(), stopAsync())
+ * return a future completed when the event loop returns.
  *  
  * @author Pierre E. Chauvet
  * @version 1.0
@@ -22,21 +45,73 @@ public final class EDSimulator implements Runnable {
 	public static final int STOPPED_STATE=0;
 	public static final int RUNNING_STATE=1;
 	public static final int PAUSED_STATE=2;
+
+	// Constants that represent the cadences of the progress notifications
+	public static final int PROGRESS_SIMULATED_TIME=0; // every progress step of simulated time
+	public static final int PROGRESS_EVENT_COUNT=1; // every progress step events
+	public static final int PROGRESS_WALL_CLOCK=2; // every progress step milliseconds of real time
+
+	// Maximum number of events played between two reads of the simulator status
+	public static final int CHUNK_SIZE=256;
+
+	// Number of unit classes with their own call sites in the event loop
+	public static final int DISPATCH_TYPES=8;
+
+	// Header of the checkpoint files
+	public static final int CHECKPOINT_MAGIC=0x45445343; // 'EDSC'
+	public static final int CHECKPOINT_VERSION=2;
 	
-	// Simulator status (running, paused or stopped)
-	private int state=STOPPED_STATE;
+	// Simulator status (running, paused or stopped), read by the event loop at each chunk of events
+	private final AtomicInteger state=new AtomicInteger(STOPPED_STATE);
+
+	// Future of the current start, completed with the state when the event loop returns:
+	// a controller claims the next loop by replacing a completed future (compareAndSet)
+	private final AtomicReference<CompletableFuture<Integer>> completion=new AtomicReference<CompletableFuture<Integer>>();
+
+	// Thread running the event loop (null when it is not running)
+	private volatile Thread worker=null;
+
+	// Executor of the event loop (null for a new thread at each start)
+	private Executor executor=null;
+
+	// Targets of runUntil() and step()
+	private double untilTime=Double.POSITIVE_INFINITY; // the simulation pauses before the first event after this time
+	private long stepsLeft=Long.MAX_VALUE; // the simulation pauses when this number of events have been played
+
+	// The current chunk of events ends after the first event at or after this time
+	// (end time, pause time or progress step, whichever comes first); written by the 
+	// controllers to end the chunk at once
+	private volatile double limit=Double.NEGATIVE_INFINITY;
+
+	// Classes of the units added to the simulator, by dispatch type
+	private final Class<?>[] dispatchClasses=new Class<?>[DISPATCH_TYPES];
+	private boolean typeDispatch=true; // true if each unit type has its own call sites
 
-	// Declaration-creation of the schedule
-	private final EventSchedule schedule=new EventSchedule();
+	// Declaration of the schedule
+	private final EventSchedule schedule;
 	
 	// Declaration-creation of the list of listeners
 	private final EventListenerList listeners = new EventListenerList();
+
+	// Copy of the listeners read by the event loop (updated when listeners change)
+	private volatile EDSimulatorListener[] listenerArray=new EDSimulatorListener[0];
+
+	// Notifications reused for synchronous delivery
+	private final EDSimulatorEvt stepEvt=new EDSimulatorEvt(this,EDSimulatorEvt.STEP_ID);
+	private final EDSimulatorEvt runEndedEvt=new EDSimulatorEvt(this,EDSimulatorEvt.RUNENDED_ID);
+	private final EDSimulatorEvt terminatedEvt=new EDSimulatorEvt(this,EDSimulatorEvt.TERMINATED_ID);
+
+	// Ring buffer for asynchronous delivery (null for synchronous delivery)
+	private NotificationRing ring=null;
+
+	// Instrumentation of the event loop (null if not instrumented)
+	private SimulatorInstrumentation instrumentation=null;
 	
-	// Declaration-creation of the list of ASimUnit units to be simulated
-	private final Vector<ASimUnit> simUnits=new Vector<ASimUnit>();
+	// Declaration-creation of the list of ASimUnit units to be simulated (the index of a unit is its id)
+	private final ArrayList<ASimUnit> simUnits=new ArrayList<ASimUnit>();
 
-	// Thread in which the simulation is done
-	private Thread thread;
+	// Number of events played per unit (by unit id), since the beginning of the simulation
+	private long[] unitEventCounts=new long[16];
 
 	// Variables to set the time window to simulate
 	private double beginTime=0; // initial time
@@ -44,6 +119,15 @@ public final class EDSimulator implements Runnable {
 	private double lastEventTime; // time of the last event (that can greater than endTime)
 	
 	private boolean stopForEndTime=false; // stop option: True -> force stop when schedule.time>=endTime, False otherwise 
+
+	private boolean open=false; // events are added from outside: an empty schedule does not end a run before the runUntil() target
+
+	private volatile double pauseTime=Double.POSITIVE_INFINITY; // the simulation pauses when this time is reached
+
+	// Seeds of the random streams of each run (common random numbers)
+	private boolean seeded=false; // true if the streams are reseeded at the beginning of each run
+	private long replicationSeed; // seed of the first run
+	private boolean antitheticPairs=false; // true if odd runs are antithetic to the previous run
 	
 	// Number of runs to be performed (number of system simulations)
 	private int nbRuns=20;
@@ -55,9 +139,12 @@ public final class EDSimulator implements Runnable {
 	private double duration;
 	
 	// Variables to track simulation progress
+	private int progressMode=PROGRESS_SIMULATED_TIME;
+	private double progressStep=0; // 0: default step (a tenth of the time window, 10000 events or 1000 ms) 
 	private double step;
     private double threshold;
-    private int stepCount;
+    private long eventCount; // number of events played in the current run
+    private long totalEventCount; // number of events played since the simulator was built
 
 
 	/**
@@ -66,7 +153,49 @@ public final class EDSimulator implements Runnable {
 	 * 
 	 */
 	public EDSimulator(float beginTime, float endTime) {
+		this((double)beginTime,(double)endTime,new SortedEventQueue());
+	}
+
+	/**
+	 * @param beginTime
+	 * @param endTime
+	 * @param queue the pending event set used by the schedule
+	 * 
+	 */
+	public EDSimulator(float beginTime, float endTime, AEventQueue queue) {
+		this((double)beginTime,(double)endTime,queue);
+	}
+
+	/**
+	 * @param beginTime
+	 * @param endTime
+	 * 
+	 */
+	public EDSimulator(double beginTime, double endTime) {
+		this(beginTime,endTime,new SortedEventQueue());
+	}
+
+	/**
+	 * A simulator with an integer clock: the events are ordered by their
+	 * time in ticks in a TickEventQueue.
+	 * @param beginTime
+	 * @param endTime
+	 * @param clock the clock of the schedule
+	 * 
+	 */
+	public EDSimulator(double beginTime, double endTime, TickClock clock) {
+		this(beginTime,endTime,new TickEventQueue(clock));
+	}
+
+	/**
+	 * @param beginTime
+	 * @param endTime
+	 * @param queue the pending event set used by the schedule
+	 * 
+	 */
+	public EDSimulator(double beginTime, double endTime, AEventQueue queue) {
 		super();
+		this.schedule=new EventSchedule(queue);
 		this.beginTime=beginTime;
 		this.endTime=endTime;
 		schedule.setBeginTime(beginTime);
@@ -77,93 +206,759 @@ public final class EDSimulator implements Runnable {
 	 */
 	@Override
 	public void run() {
-		Event event=null;
-		long begin = System.currentTimeMillis();
-		while((state==RUNNING_STATE)&&(runsCount<nbRuns)) {
-			// Main loop for one simulation (as long as there is one event remaining or the simulation end time is not reached)
-			while((state==RUNNING_STATE)&&((!stopForEndTime)||(schedule.getTime()<=endTime))&&(schedule.size()>0)) {
-				event=schedule.getEvent();
-				event.unit.play(event.action);
-				if(schedule.getTime()>=threshold) {
-					stepCount++;
-					threshold+=step;
-					fireSimulationStepped("Simulation running (time="+Double.toString(schedule.getTime())+")",Math.round(10f*stepCount/nbRuns));
+		CompletableFuture<Integer> done=completion.get();
+		worker=Thread.currentThread();
+		try {
+			loop();
+		}
+		catch(RuntimeException|Error e) {
+			untilTime=Double.POSITIVE_INFINITY;
+			stepsLeft=Long.MAX_VALUE;
+			state.set(STOPPED_STATE);
+			worker=null;
+			if(done!=null) {done.completeExceptionally(e);}
+			throw e;
+		}
+		worker=null;
+		if(done!=null) {done.complete(state.get());}
+	}
+
+	// Event loop of all the runs
+	private void loop() {
+		long begin = System.nanoTime();
+		if(instrumentation!=null) {instrumentation.started();}
+		while((state.get()==RUNNING_STATE)&&(runsCount<nbRuns)) {
+			SimulationRunEvent runEvent=new SimulationRunEvent();
+			runEvent.begin();
+			// Main loop for one simulation (as long as there is one event remaining or the simulation end time is not reached):
+			// the events are played by chunks, the status, pause and progress being checked between two chunks
+			// (in an open simulator, runUntil() also pauses at its target time if the schedule is empty)
+			while((state.get()==RUNNING_STATE)&&((!stopForEndTime)||(schedule.getTime()<=endTime))&&((schedule.size()>0)||(open&&(untilTime!=Double.POSITIVE_INFINITY)))) {
+				if(schedule.getNextTime()>untilTime) {
+					// runUntil() target reached
+					if(untilTime>schedule.getTime()) {schedule.setTime(untilTime);}
+					untilTime=Double.POSITIVE_INFINITY;
+					state.compareAndSet(RUNNING_STATE,PAUSED_STATE);
+					break;
+				}
+				int max=CHUNK_SIZE;
+				if(progressMode==PROGRESS_EVENT_COUNT) {max=(int)Math.max(1,Math.min(max,(long)threshold-eventCount));}
+				if(stepsLeft<max) {max=(int)stepsLeft;}
+				updateLimit();
+				int n=(instrumentation==null) ? playEvents(max) : playInstrumented(max);
+				eventCount+=n;
+				totalEventCount+=n;
+				if(progressDue()) {
+					fireSimulationStepped();
+				}
+				if(schedule.getTime()>=pauseTime) {
+					pauseTime=Double.POSITIVE_INFINITY;
+					state.compareAndSet(RUNNING_STATE,PAUSED_STATE);
+				}
+				if(stepsLeft!=Long.MAX_VALUE) {
+					stepsLeft-=n;
+					if(stepsLeft==0) {
+						// step() target reached
+						stepsLeft=Long.MAX_VALUE;
+						state.compareAndSet(RUNNING_STATE,PAUSED_STATE);
+					}
 				}
 			}
-			if(state==RUNNING_STATE) {
+			if(state.get()==RUNNING_STATE) {
 				runsCount++;
-				threshold=step;
 				lastEventTime=schedule.getTime();
-				fireSimulationRunEnded("Simulation Run #"+Integer.toString(runsCount)+" finished");
+				if(instrumentation!=null) {instrumentation.runEnded(runsCount);}
+				if(runEvent.shouldCommit()) {
+					runEvent.run=runsCount;
+					runEvent.nbRuns=nbRuns;
+					runEvent.beginTime=beginTime;
+					runEvent.endTime=lastEventTime;
+					runEvent.events=eventCount;
+					runEvent.commit();
+				}
+				fireSimulationRunEnded();
 				schedule.reset();
+				seedRun();
 				for(ASimUnit unit:simUnits) {
 					unit.init(beginTime, endTime);
 				}
+				resetProgress();
 			}
 		}
-		duration+=((float)(System.currentTimeMillis() - begin)) / 1000.0f;
-		state=STOPPED_STATE;
-		fireSimulationTerminated();
+		if(instrumentation!=null) {instrumentation.stopped();}
+		duration+=(System.nanoTime() - begin) / 1e9;
+		// The targets of runUntil() and step() end with the loop, even if it 
+		// was paused before reaching them
+		untilTime=Double.POSITIVE_INFINITY;
+		stepsLeft=Long.MAX_VALUE;
+		// A paused simulation is resumed by start()
+		if(state.get()!=PAUSED_STATE) {
+			state.set(STOPPED_STATE);
+			fireSimulationTerminated();
+		}
 	}
-	
-	public void start() {
-		// Stops the thread if it is running
-		if(state==RUNNING_STATE) {
-			state=STOPPED_STATE;
-			try {
-				thread.join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+
+	// Computes the time after which the current chunk of events must end
+	private void updateLimit() {
+		double t=pauseTime;
+		if(stopForEndTime) {t=Math.min(t,Math.nextUp(endTime));}
+		if(progressMode==PROGRESS_SIMULATED_TIME) {t=Math.min(t,threshold);}
+		limit=t;
+	}
+
+	// Plays at most max events, until the first one at or after limit, and 
+	// returns the number of events played
+	private int playEvents(int max) {
+		final EventSchedule schedule=this.schedule;
+		final boolean typeDispatch=this.typeDispatch;
+		final double until=untilTime;
+		int n=0;
+		while((n<max)&&(schedule.size()>0)) {
+			if((until!=Double.POSITIVE_INFINITY)&&(schedule.getNextTime()>until)) {break;}
+			Event event=schedule.getEvent();
+			if(typeDispatch) {playByType(event);}
+			else if(event.code>=0) {event.unit.play(event.code);}
+			else {event.unit.play(event.action);}
+			count(event.unit);
+			n++;
+			if(schedule.getTime()>=limit) {break;}
+		}
+		return n;
+	}
+
+	// Same as playEvents() with the instrumentation of each event
+	private int playInstrumented(int max) {
+		int n=0;
+		while((n<max)&&(schedule.size()>0)) {
+			if(schedule.getNextTime()>untilTime) {break;}
+			count(instrumentation.dispatch(schedule).unit);
+			n++;
+			if(schedule.getTime()>=limit) {break;}
+		}
+		return n;
+	}
+
+	// Counts an event of unit, if it belongs to this simulator
+	private void count(ASimUnit unit) {
+		int id=unit.id;
+		if((id>=0)&&(unit.simulator==this)) {unitEventCounts[id]++;}
+	}
+
+	// Plays an event from the call sites of the type of its unit: each site 
+	// only sees one unit class, so that the JIT compiler can inline its play() 
+	// method (a single call site for all the units is megamorphic)
+	private static void playByType(Event event) {
+		ASimUnit unit=event.unit;
+		if(event.code>=0) {
+			int code=event.code;
+			switch(unit.dispatchType) {
+			case 0: unit.play(code); return;
+			case 1: unit.play(code); return;
+			case 2: unit.play(code); return;
+			case 3: unit.play(code); return;
+			case 4: unit.play(code); return;
+			case 5: unit.play(code); return;
+			case 6: unit.play(code); return;
+			case 7: unit.play(code); return;
+			default: unit.play(code);
 			}
 		}
-		// Initializes the simulation if in STOPPED mode
-		if(state==STOPPED_STATE) {
-			schedule.reset();
-			for(ASimUnit unit:simUnits) {
-				unit.init(beginTime, endTime);
+		else {
+			String action=event.action;
+			switch(unit.dispatchType) {
+			case 0: unit.play(action); return;
+			case 1: unit.play(action); return;
+			case 2: unit.play(action); return;
+			case 3: unit.play(action); return;
+			case 4: unit.play(action); return;
+			case 5: unit.play(action); return;
+			case 6: unit.play(action); return;
+			case 7: unit.play(action); return;
+			default: unit.play(action);
 			}
-			duration=0f;
-		    step=(endTime-beginTime)/10;
+		}
+	}
+
+	// Initializes the progress tracking for a new run
+	private void resetProgress() {
+		eventCount=0;
+		switch(progressMode) {
+		case PROGRESS_EVENT_COUNT:
+			step=(progressStep>0) ? progressStep : 10000;
 			threshold=step;
-			stepCount=0;
-			runsCount=0;
+			break;
+		case PROGRESS_WALL_CLOCK:
+			step=1e6*((progressStep>0) ? progressStep : 1000);
+			threshold=System.nanoTime()+step;
+			break;
+		default:
+			step=(progressStep>0) ? progressStep : (endTime-beginTime)/10;
+			threshold=beginTime+step;
 		}
-		// Starts the simulator calculation thread
-		state=RUNNING_STATE;
-		thread=new Thread(this);
-		thread.start();
+	}
+
+	// Returns true if a progress notification is due (called after each chunk of events)
+	private boolean progressDue() {
+		switch(progressMode) {
+		case PROGRESS_EVENT_COUNT:
+			if(eventCount<threshold) {return false;}
+			threshold+=step;
+			return true;
+		case PROGRESS_WALL_CLOCK:
+			long now=System.nanoTime();
+			if(now<threshold) {return false;}
+			threshold=now+step;
+			return true;
+		default:
+			if(schedule.getTime()<threshold) {return false;}
+			threshold+=step;
+			return true;
+		}
+	}
+
+	// Percentage of the whole simulation (all runs) done at time t
+	private int progressPercent(double t) {
+		double run=(endTime>beginTime) ? (t-beginTime)/(endTime-beginTime) : 0;
+		return (int) Math.round(100*(runsCount+run)/nbRuns);
 	}
 	
-	public void stop() {
-		if(state==RUNNING_STATE) {
-			state=STOPPED_STATE;
+	public void start() {
+		start(Double.POSITIVE_INFINITY,Long.MAX_VALUE,false);
+	}
+
+	// Starts the event loop with the targets of runUntil() and step() 
+	// (none: positive infinity and Long.MAX_VALUE), returns its future
+	// (exclusive: fails if the simulation is running instead of stopping it)
+	private CompletableFuture<Integer> start(double until,long steps,boolean exclusive) {
+		CompletableFuture<Integer> next=claim(exclusive);
+		prepare(next,until,steps);
+		// Starts the simulator calculation thread, or a task of the executor
+		try {
+			Executor e=executor;
+			if(e!=null) {e.execute(this);}
+			else {new Thread(this).start();}
+		}
+		catch(RuntimeException|Error e) {
+			release(next,e);
+			throw e;
+		}
+		return next;
+	}
+
+	/**
+	 * Runs the simulation in the calling thread (a task of a thread pool,
+	 * for instance) instead of a new thread, and returns when it is 
+	 * terminated or paused.
+	 */
+	public void execute() {
+		execute(Double.POSITIVE_INFINITY,Long.MAX_VALUE,false);
+	}
+
+	// Runs the event loop in the calling thread with the targets of 
+	// runUntil() and step()
+	private void execute(double until,long steps,boolean exclusive) {
+		prepare(claim(exclusive),until,steps);
+		run();
+	}
+
+	/**
+	 * Resumes (or starts) the simulation in the calling thread for at most
+	 * nbEvents events: a time slice of a simulation sharing a thread with 
+	 * others (SimulationHost).
+	 * @param nbEvents the maximum number of events to play
+	 * @return the state of the simulator (PAUSED_STATE if the slice is over, STOPPED_STATE if terminated)
+	 */
+	public int execute(long nbEvents) {
+		if(nbEvents<=0) {throw new IllegalArgumentException("Invalid number of events: "+nbEvents);}
+		execute(Double.POSITIVE_INFINITY,nbEvents,true);
+		return state.get();
+	}
+
+	// Claims the next event loop for the calling controller: a running loop
+	// is stopped (exclusive: an IllegalStateException is thrown instead), a
+	// loop being paused or started by another controller is waited for.
+	// The claim is a compareAndSet of the completion future, so that two 
+	// controllers cannot start two loops on the schedule
+	private CompletableFuture<Integer> claim(boolean exclusive) {
+		CompletableFuture<Integer> next=new CompletableFuture<Integer>();
+		while(true) {
+			CompletableFuture<Integer> c=completion.get();
+			if((c!=null)&&!c.isDone()) {
+				if(Thread.currentThread()==worker) {throw new IllegalStateException("The simulator cannot be started from its event loop");}
+				if(state.get()==RUNNING_STATE) {
+					if(exclusive) {throw new IllegalStateException("The simulator is running");}
+					stopAsync();
+				}
+				awaitLoop();
+				if(Thread.currentThread().isInterrupted()) {throw new IllegalStateException("Interrupted while waiting for the event loop");}
+			}
+			else if(completion.compareAndSet(c,next)) {
+				return next;
+			}
+		}
+	}
+
+	// Gives up a claimed loop which could not be started
+	private void release(CompletableFuture<Integer> next,Throwable e) {
+		state.set(STOPPED_STATE);
+		next.completeExceptionally(e);
+	}
+
+	// Initializes the simulation if in STOPPED mode, before running it with 
+	// the given targets (set once the previous loop has returned and the 
+	// next one has been claimed)
+	private void prepare(CompletableFuture<Integer> next,double until,long steps) {
+		if(state.get()==STOPPED_STATE) {
 			try {
-				thread.join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+				schedule.reset();
+				runsCount=0;
+				Arrays.fill(unitEventCounts,0);
+				seedRun();
+				for(ASimUnit unit:simUnits) {
+					unit.init(beginTime, endTime);
+				}
+				duration=0f;
+				resetProgress();
+			}
+			catch(RuntimeException|Error e) {
+				release(next,e);
+				throw e;
 			}
 		}
-		else if(state==PAUSED_STATE) {
-			state=STOPPED_STATE;			
+		untilTime=until;
+		stepsLeft=steps;
+		state.set(RUNNING_STATE);
+		if(ring!=null) {ring.open();}
+	}
+
+	/**
+	 * Resumes (or starts) the simulation until the current time reaches 
+	 * time: all the events up to time are played, then the simulation is 
+	 * paused with time as current time. If the run ends before time, the 
+	 * next run goes on until time; an open simulator (setOpen()) pauses at
+	 * time even if no event remains, events being added by addEvent() 
+	 * before resuming. If the simulation is paused or stopped before time,
+	 * the target is dropped.
+	 * @param time the time to reach
+	 * @return the future of the simulation, completed with its state when paused or terminated
+	 */
+	public CompletableFuture<Integer> runUntil(double time) {
+		return start(time,Long.MAX_VALUE,true);
+	}
+
+	/**
+	 * Resumes (or starts) the simulation for nbEvents events, then pauses it.
+	 * The target is dropped if the simulation is paused or stopped before.
+	 * @param nbEvents the number of events to play
+	 * @return the future of the simulation, completed with its state when paused or terminated
+	 */
+	public CompletableFuture<Integer> step(long nbEvents) {
+		if(nbEvents<=0) {throw new IllegalArgumentException("Invalid number of events: "+nbEvents);}
+		return start(Double.POSITIVE_INFINITY,nbEvents,true);
+	}
+
+	/**
+	 * Asks the simulation to pause after the current event, without waiting.
+	 * @return the future of the simulation, completed with its state when paused or terminated
+	 */
+	public CompletableFuture<Integer> pauseAsync() {
+		if(state.compareAndSet(RUNNING_STATE,PAUSED_STATE)) {
+			limit=Double.NEGATIVE_INFINITY; // ends the current chunk after the current event
+			return completion.get();
+		}
+		CompletableFuture<Integer> c=completion.get();
+		return ((c!=null)&&!c.isDone()) ? c : CompletableFuture.completedFuture(state.get());
+	}
+
+	/**
+	 * Asks the simulation to stop after the current event, without waiting.
+	 * A paused simulation is stopped at once.
+	 * @return the future of the simulation, completed with its state when terminated
+	 */
+	public CompletableFuture<Integer> stopAsync() {
+		state.set(STOPPED_STATE);
+		limit=Double.NEGATIVE_INFINITY; // ends the current chunk after the current event
+		CompletableFuture<Integer> c=completion.get();
+		return ((c!=null)&&!c.isDone()) ? c : CompletableFuture.completedFuture(STOPPED_STATE);
+	}
+
+	public void stop() {
+		int s=state.get();
+		if(s==RUNNING_STATE) {
+			stopAsync();
+			awaitLoop();
+		}
+		else if(s==PAUSED_STATE) {
+			state.compareAndSet(PAUSED_STATE,STOPPED_STATE);			
 		}
 	}
 	
+	// Asks the simulation to stop without waiting for the end of its 
+	// thread: can be called from a listener or from another simulation
+	public void requestStop() {
+		stopAsync();
+	}
+
 	public void pause() {
-		if(state==RUNNING_STATE) {
-			state=PAUSED_STATE;
-			try {
-				thread.join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+		pauseAsync();
+		awaitLoop();
+	}
+
+	// Waits for the end of the event loop, unless called from the loop itself
+	private void awaitLoop() {
+		CompletableFuture<Integer> c=completion.get();
+		if((c==null)||(Thread.currentThread()==worker)) {return;}
+		try {
+			c.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// Reported by the thread of the event loop
+		}
+	}
+
+	/**
+	 * Runs the simulations with the tasks of an executor (a thread pool 
+	 * shared by several simulators, for instance) instead of a new thread 
+	 * at each start().
+	 * @param executor the executor (null for a new thread at each start)
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor=executor;
+	}
+
+	/**
+	 * @return the executor of the simulations (null for a new thread at each start)
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return the future of the last start, completed with the state of 
+	 * the simulator when it is paused or terminated (null if never started)
+	 */
+	public CompletableFuture<Integer> getCompletion() {
+		return completion.get();
+	}
+
+	/**
+	 * Pauses the simulation as soon as the current time reaches time 
+	 * (after the event at that time). The pause time is cleared when 
+	 * it is reached.
+	 * @param time the pause time (Double.POSITIVE_INFINITY for none)
+	 */
+	public void setPauseTime(double time) {
+		this.pauseTime=time;
+		limit=Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * @return the pause time
+	 */
+	public double getPauseTime() {
+		return pauseTime;
+	}
+
+	/**
+	 * Waits for the simulation thread to end (simulation terminated or paused).
+	 * @throws InterruptedException
+	 */
+	public void join() throws InterruptedException {
+		CompletableFuture<Integer> c=completion.get();
+		if((c==null)||(Thread.currentThread()==worker)) {return;}
+		try {
+			c.get();
+		} catch (ExecutionException e) {
+			// Reported by the thread of the event loop
+		}
+	}
+
+	/**
+	 * Saves the state of a paused (or stopped) simulation in a checkpoint 
+	 * file: the time window and counters of the simulator, the current 
+	 * time and the pending events of the schedule, then for each unit 
+	 * (in the order they were added) its random streams and the state 
+	 * written by its saveState() method. All the units targeted by the
+	 * pending events must have been added to the simulator.
+	 * @param file the checkpoint file
+	 * @throws IOException
+	 */
+	public void checkpoint(File file) throws IOException {
+		if(state.get()==RUNNING_STATE) {throw new IllegalStateException("The simulator must be paused before a checkpoint");}
+		try(RandomAccessFile raf=new RandomAccessFile(file,"rw")) {
+			raf.setLength(0);
+			StateOutput out=new StateOutput(raf.getChannel());
+			writeState(out);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Restores a checkpoint written by checkpoint(). The simulator must 
+	 * have the same units as the one that wrote the checkpoint, added in 
+	 * the same order: they are initialized by init(), then their saved 
+	 * state is loaded. If the simulation was paused, start() resumes it
+	 * from the checkpoint.
+	 * @param file the checkpoint file
+	 * @throws IOException
+	 */
+	public void restore(File file) throws IOException {
+		if(state.get()==RUNNING_STATE) {throw new IllegalStateException("The simulator must be stopped or paused before a restore");}
+		try(RandomAccessFile raf=new RandomAccessFile(file,"r")) {
+			FileChannel channel=raf.getChannel();
+			if(channel.size()>Integer.MAX_VALUE) {throw new IOException("Checkpoint too large to be mapped: "+file);}
+			readState(new StateInput(channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size())));
+		}
+		catch(BufferUnderflowException e) {
+			throw new EOFException("Truncated checkpoint: "+file);
+		}
+	}
+
+	/**
+	 * Saves the state of a paused (or stopped) simulation in memory, in 
+	 * the format of the checkpoint files.
+	 * @return the snapshot
+	 * @throws IOException
+	 */
+	public byte[] snapshot() throws IOException {
+		if(state.get()==RUNNING_STATE) {throw new IllegalStateException("The simulator must be paused before a snapshot");}
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream(1<<16);
+		StateOutput out=new StateOutput(bytes);
+		writeState(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Restores a snapshot (see restore(File)). The snapshot is only read, 
+	 * so it can be shared by several simulators.
+	 * @param snapshot the snapshot
+	 * @throws IOException
+	 */
+	public void restore(byte[] snapshot) throws IOException {
+		if(state.get()==RUNNING_STATE) {throw new IllegalStateException("The simulator must be stopped or paused before a restore");}
+		try {
+			readState(new StateInput(ByteBuffer.wrap(snapshot).asReadOnlyBuffer()));
+		}
+		catch(BufferUnderflowException e) {
+			throw new EOFException("Truncated snapshot");
+		}
+	}
+
+	/**
+	 * Reseeds the random streams of the units (created by newRandomStream()),
+	 * each stream receiving a seed derived from seed, from the unit index
+	 * and from the stream index.
+	 * @param seed the seed
+	 */
+	public void reseed(long seed) {
+		reseed(seed,false);
+	}
+
+	private void reseed(long seed,boolean antithetic) {
+		long s=SimRandom.mix(seed);
+		for(ASimUnit unit:simUnits) {
+			for(SimRandom random:unit.getRandomStreams()) {
+				s=SimRandom.mix(s+0x9E3779B97F4A7C15L);
+				random.setSeed(s);
+				random.setAntithetic(antithetic);
 			}
 		}
 	}
 
+	/**
+	 * Reseeds the random streams of the units at the beginning of each 
+	 * run: run r uses the seed seed+r, so that two simulators of variants 
+	 * of a system (same units, added in the same order) use the same random
+	 * numbers in their runs of same index (common random numbers). With 
+	 * antithetic pairs, runs 2k and 2k+1 use the seed seed+k, the streams
+	 * of run 2k+1 being antithetic.
+	 * @param seed the seed of the first run
+	 * @param antitheticPairs true for antithetic pairs of runs
+	 */
+	public void setReplicationSeed(long seed,boolean antitheticPairs) {
+		this.seeded=true;
+		this.replicationSeed=seed;
+		this.antitheticPairs=antitheticPairs;
+	}
+
+	// The random streams are no longer reseeded at each run
+	public void clearReplicationSeed() {
+		seeded=false;
+		antitheticPairs=false;
+	}
+
+	// Reseeds the random streams for the run runsCount (if seeded)
+	private void seedRun() {
+		if(!seeded) {return;}
+		if(antitheticPairs) {
+			reseed(replicationSeed+runsCount/2,(runsCount&1)==1);
+		}
+		else {
+			reseed(replicationSeed+runsCount,false);
+		}
+	}
+
+	/**
+	 * Forks a paused simulation into n copies, which continue it from its 
+	 * current state with independent random streams: the state is saved 
+	 * once in a snapshot shared by the copies, then restored in the 
+	 * simulators built by the factory, which are reseeded with seed+copy.
+	 * The copies are not started: once modified (what-if scenarios), 
+	 * they can be started and run in parallel.
+	 * @param n the number of copies
+	 * @param factory builds the simulators of the copies
+	 * @param seed the base seed of the random streams of the copies
+	 * @return the copies
+	 * @throws IOException
+	 */
+	public EDSimulator[] fork(int n,SimulatorFactory factory,long seed) throws IOException {
+		byte[] snapshot=snapshot();
+		EDSimulator[] copies=new EDSimulator[n];
+		for(int i=0;i<n;i++) {
+			copies[i]=factory.create(i);
+			copies[i].restore(snapshot);
+			copies[i].reseed(seed+i);
+		}
+		return copies;
+	}
+
+	private void writeState(StateOutput out) throws IOException {
+		out.writeInt(CHECKPOINT_MAGIC);
+		out.writeInt(CHECKPOINT_VERSION);
+		// Simulator
+		out.writeInt(state.get());
+		out.writeDouble(beginTime);
+		out.writeDouble(endTime);
+		out.writeBoolean(stopForEndTime);
+		out.writeInt(nbRuns);
+		out.writeInt(runsCount);
+		out.writeDouble(duration);
+		out.writeDouble(lastEventTime);
+		out.writeLong(eventCount);
+		out.writeDouble(threshold);
+		// Schedule: the actions of the events, then the events (time, unit id, code)
+		Event[] events=schedule.getEvents();
+		ActionRegistry registry=schedule.getActions();
+		boolean[] used=new boolean[registry.size()];
+		int nbActions=0;
+		for(Event evt:events) {
+			if((evt.unit.simulator!=this)||(evt.unit.id<0)) {throw new IOException("Pending event of a unit not added to the simulator: "+evt.unit);}
+			if((evt.code<-1)&&!used[-2-evt.code]) {
+				used[-2-evt.code]=true;
+				nbActions++;
+			}
+		}
+		out.writeInt(nbActions);
+		for(int id=0;id<used.length;id++) {
+			if(used[id]) {
+				out.writeInt(id);
+				out.writeUTF(registry.name(id));
+			}
+		}
+		out.writeDouble(schedule.getTime());
+		out.writeInt(events.length);
+		for(Event evt:events) {
+			out.writeDouble(evt.time);
+			out.writeInt(evt.unit.id);
+			out.writeInt(evt.code);
+		}
+		// Units
+		out.writeInt(simUnits.size());
+		for(ASimUnit unit:simUnits) {
+			out.writeUTF(unit.getClass().getName());
+			List<SimRandom> streams=unit.getRandomStreams();
+			out.writeInt(streams.size());
+			for(SimRandom random:streams) {random.save(out);}
+			unit.saveState(out);
+		}
+	}
+
+	private void readState(StateInput in) throws IOException {
+		if(in.readInt()!=CHECKPOINT_MAGIC) {throw new IOException("Not a checkpoint file");}
+		int version=in.readInt();
+		if(version!=CHECKPOINT_VERSION) {throw new IOException("Unsupported checkpoint version");}
+		// Simulator
+		int savedState=in.readInt();
+		beginTime=in.readDouble();
+		endTime=in.readDouble();
+		stopForEndTime=in.readBoolean();
+		nbRuns=in.readInt();
+		runsCount=in.readInt();
+		duration=in.readDouble();
+		lastEventTime=in.readDouble();
+		long savedEventCount=in.readLong();
+		double savedThreshold=in.readDouble();
+		// Units are initialized first, then their init events are discarded
+		schedule.setBeginTime(beginTime);
+		schedule.reset();
+		for(ASimUnit unit:simUnits) {
+			unit.init(beginTime, endTime);
+		}
+		schedule.reset();
+		// Schedule (the action ids of the checkpoint are those of the simulator that wrote it)
+		HashMap<Integer,String> actions=new HashMap<Integer,String>();
+		int nbActions=in.readInt();
+		for(int i=0;i<nbActions;i++) {
+			int id=in.readInt();
+			actions.put(id,in.readUTF());
+		}
+		schedule.setTime(in.readDouble());
+		int nbEvents=in.readInt();
+		for(int i=0;i<nbEvents;i++) {
+			double time=in.readDouble();
+			int index=in.readInt();
+			if((index<0)||(index>=simUnits.size())) {throw new IOException("Invalid unit index in checkpoint: "+index);}
+			int code=in.readInt();
+			ASimUnit unit=simUnits.get(index);
+			if(code>=0) {schedule.addEvent(new Event(time,unit,code));}
+			else {
+				String action=actions.get(-2-code);
+				if(action==null) {throw new IOException("Invalid action in checkpoint: "+code);}
+				schedule.addEvent(new Event(time,unit,action));
+			}
+		}
+		// Units
+		if(in.readInt()!=simUnits.size()) {throw new IOException("The checkpoint does not have the units of the simulator");}
+		for(ASimUnit unit:simUnits) {
+			String className=in.readUTF();
+			if(!className.equals(unit.getClass().getName())) {throw new IOException("Unit "+className+" expected in the checkpoint, found "+unit.getClass().getName());}
+			List<SimRandom> streams=unit.getRandomStreams();
+			if(in.readInt()!=streams.size()) {throw new IOException("The random streams of "+className+" do not match the checkpoint");}
+			for(SimRandom random:streams) {random.load(in);}
+			unit.loadState(in);
+		}
+		resetProgress();
+		eventCount=savedEventCount;
+		if(progressMode!=PROGRESS_WALL_CLOCK) {threshold=savedThreshold;}
+		state.set((savedState==PAUSED_STATE) ? PAUSED_STATE : STOPPED_STATE);
+	}
+
 	/**
 	 * @param stopForEndTime the stopForEndTime to set
 	 */
 	public void setStopForEndTime(boolean stopForEndTime) {
 		this.stopForEndTime = stopForEndTime;
+		limit=Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Opens the simulator to events added from outside (events of other
+	 * simulators, see eds.parallel.Partition): when its schedule is empty,
+	 * a run does not end before the target of runUntil(), the simulation 
+	 * being paused at this time.
+	 * @param open true for an open simulator (default false)
+	 */
+	public void setOpen(boolean open) {
+		this.open=open;
+	}
+
+	/**
+	 * @return true if the simulator is open to events added from outside
+	 */
+	public boolean isOpen() {
+		return open;
 	}
 
 	/**
@@ -173,6 +968,70 @@ public final class EDSimulator implements Runnable {
 		return stopForEndTime;
 	}
 
+	/**
+	 * Sets the cadence of the progress notifications (simulationStepped).
+	 * @param progressMode PROGRESS_SIMULATED_TIME, PROGRESS_EVENT_COUNT or PROGRESS_WALL_CLOCK
+	 * @param progressStep the step in time units, events or milliseconds (0 for the default step)
+	 */
+	public void setProgress(int progressMode,double progressStep) {
+		this.progressMode = progressMode;
+		this.progressStep = progressStep;
+	}
+
+	/**
+	 * @return the progressMode
+	 */
+	public int getProgressMode() {
+		return progressMode;
+	}
+
+	/**
+	 * Delivers the notifications to the listeners from a separate thread, 
+	 * through a bounded ring buffer: a slow listener then does not stall 
+	 * the event loop. Progress notifications are dropped when the ring is 
+	 * full; the simulation waits for the delivery of the run ended 
+	 * notifications, since listeners read the state of the units.
+	 * Must be set before start().
+	 * @param async true for asynchronous delivery
+	 * @param capacity capacity of the ring buffer
+	 */
+	public void setAsyncNotification(boolean async,int capacity) {
+		if(state.get()==RUNNING_STATE) {return;}
+		ring=async ? new NotificationRing(this,capacity) : null;
+	}
+
+	/**
+	 * @return true if the notifications are delivered asynchronously
+	 */
+	public boolean isAsyncNotification() {
+		return ring!=null;
+	}
+
+	/**
+	 * @return the number of progress notifications dropped (asynchronous delivery)
+	 */
+	public long getDroppedNotifications() {
+		return (ring!=null) ? ring.getDropped() : 0;
+	}
+
+	/**
+	 * Instruments the event loop (null to remove the instrumentation).
+	 * Must be set before start().
+	 * @param instrumentation the instrumentation
+	 */
+	public void setInstrumentation(SimulatorInstrumentation instrumentation) {
+		if(state.get()==RUNNING_STATE) {return;}
+		this.instrumentation=instrumentation;
+		schedule.setInstrumentation(instrumentation);
+	}
+
+	/**
+	 * @return the instrumentation (null if not instrumented)
+	 */
+	public SimulatorInstrumentation getInstrumentation() {
+		return instrumentation;
+	}
+
 	/**
 	 * @param nbRuns the nbRuns to set
 	 */
@@ -198,7 +1057,21 @@ public final class EDSimulator implements Runnable {
 	 * @return the state
 	 */
 	public int getState() {
-		return state;
+		return state.get();
+	}
+
+	/**
+	 * @return the beginning of the simulated time window
+	 */
+	public final double getBeginTime() {
+		return beginTime;
+	}
+
+	/**
+	 * @return the end of the simulated time window
+	 */
+	public final double getEndTime() {
+		return endTime;
 	}
 
 	/**
@@ -209,28 +1082,155 @@ public final class EDSimulator implements Runnable {
 	}
 
 	/**
-	 * @return the real duration of the simulation in ms.
+	 * @return the number of events played in the current run
+	 */
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * @return the number of events played since the simulator was built (all runs)
+	 */
+	public long getTotalEventCount() {
+		return totalEventCount;
+	}
+
+	/**
+	 * @return the real duration of the simulation in s.
 	 */
 	public double getDuration() {
 		return duration;
 	}
 	
+	// Restarts the statistics of the units at the current time, without 
+	// changing their state (steady-state simulations)
+	public void resetStatistics() {
+		double time=schedule.getTime();
+		for(ASimUnit unit:simUnits) {
+			unit.resetStatistics(time);
+		}
+	}
+
+	/**
+	 * Inserts an event of a unit of this simulator while it is paused (an
+	 * event received from another simulator, for instance).
+	 * @param evt the event, at an absolute time not before the current time
+	 */
+	public void addEvent(Event evt) {
+		if(state.get()==RUNNING_STATE) {throw new IllegalStateException("The simulator is running");}
+		if(evt.unit.simulator!=this) {throw new IllegalArgumentException("The unit of the event does not belong to this simulator");}
+		schedule.addEvent(evt);
+	}
+
+	/**
+	 * @return the time of the next pending event (positive infinity if none)
+	 */
+	public double getNextEventTime() {
+		return schedule.getNextTime();
+	}
+
+	/**
+	 * @return the registry of the String actions of the events of this simulator
+	 */
+	public ActionRegistry getActionRegistry() {
+		return schedule.getActions();
+	}
+
+	/**
+	 * Sets the router of the events inserted by the units: the events it 
+	 * takes are not scheduled by this simulator (events of units living in
+	 * other simulators, see eds.parallel.Partition).
+	 * @param router the router (null for none)
+	 */
+	public void setEventRouter(AEventRouter router) {
+		schedule.setRouter(router);
+	}
+
+	/**
+	 * @return the router of the events inserted by the units (null if none)
+	 */
+	public AEventRouter getEventRouter() {
+		return schedule.getRouter();
+	}
+
 	public void addSimUnit(ASimUnit unit) {
+		unit.id=simUnits.size();
 		simUnits.add(unit);
+		if(unit.id==unitEventCounts.length) {unitEventCounts=Arrays.copyOf(unitEventCounts,2*unit.id);}
 		unit.simulator=this;
 		unit.linkToSchedule(schedule);
+		unit.dispatchType=dispatchType(unit.getClass());
+	}
+
+	// Index of the call sites of the units of class c in the event loop
+	// (-1 for the shared call site, beyond DISPATCH_TYPES classes)
+	private int dispatchType(Class<?> c) {
+		for(int i=0;i<DISPATCH_TYPES;i++) {
+			if(dispatchClasses[i]==null) {dispatchClasses[i]=c;}
+			if(dispatchClasses[i]==c) {return i;}
+		}
+		return -1;
+	}
+
+	/**
+	 * Enables (the default) or disables the call sites per unit type in the
+	 * event loop: with few unit classes, it lets the JIT compiler inline 
+	 * their play() methods into the loop.
+	 * @param typeDispatch true for one set of call sites per unit type
+	 */
+	public void setTypeDispatch(boolean typeDispatch) {
+		this.typeDispatch=typeDispatch;
+	}
+
+	/**
+	 * @return true if each unit type has its own call sites
+	 */
+	public boolean isTypeDispatch() {
+		return typeDispatch;
 	}
 	
+	// Removes a unit: the units added after it get the previous id
 	public void removeSimUnit(ASimUnit unit) {
-		simUnits.remove(unit);
+		if((unit.simulator!=this)||(unit.id<0)) {return;}
+		int id=unit.id;
+		simUnits.remove(id);
+		System.arraycopy(unitEventCounts,id+1,unitEventCounts,id,unitEventCounts.length-id-1);
+		unitEventCounts[simUnits.size()]=0; // freed slot (not cleared by the shift when the array was full)
+		unit.id=-1;
+		for(int i=id;i<simUnits.size();i++) {simUnits.get(i).id=i;}
+	}
+
+	/**
+	 * @param id the id of a unit (index in the order the units were added)
+	 * @return the unit
+	 */
+	public ASimUnit getSimUnit(int id) {
+		return simUnits.get(id);
+	}
+
+	/**
+	 * @return the number of units
+	 */
+	public int getNbSimUnits() {
+		return simUnits.size();
+	}
+
+	/**
+	 * @param id the id of a unit
+	 * @return the number of events played by the unit since the beginning of the simulation
+	 */
+	public long getUnitEventCount(int id) {
+		return unitEventCounts[id];
 	}
 
-	public void addSimulatorListener(EDSimulatorListener listener) {
+	public synchronized void addSimulatorListener(EDSimulatorListener listener) {
 		listeners.add(EDSimulatorListener.class, listener);
+		listenerArray=getSimulatorListeners();
 	}
 
-	public void removeSimulatorListener(EDSimulatorListener listener) {
+	public synchronized void removeSimulatorListener(EDSimulatorListener listener) {
 		listeners.remove(EDSimulatorListener.class, listener);
+		listenerArray=getSimulatorListeners();
 	}
 
 	public EDSimulatorListener[] getSimulatorListeners() {
@@ -238,20 +1238,55 @@ public final class EDSimulator implements Runnable {
 	}
 
 	protected void fireSimulationTerminated() {
-		for(EDSimulatorListener listener : getSimulatorListeners()) {
-			listener.simulationTerminated(new EDSimulatorEvt(this,EDSimulatorEvt.TERMINATED_ID,"Simulation terminated",0));
+		if(ring!=null) {
+			ring.put(EDSimulatorEvt.TERMINATED_ID,schedule.getTime(),0);
+			ring.close();
+		}
+		else {
+			terminatedEvt.set(schedule.getTime(),0);
+			deliver(terminatedEvt);
+		}
+	}
+
+	protected void fireSimulationRunEnded() {
+		if(ring!=null) {
+			ring.put(EDSimulatorEvt.RUNENDED_ID,lastEventTime,runsCount);
+			ring.drain();
+		}
+		else {
+			runEndedEvt.set(lastEventTime,runsCount);
+			deliver(runEndedEvt);
 		}
 	}
 
-	protected void fireSimulationRunEnded(String message) {
-		for(EDSimulatorListener listener : getSimulatorListeners()) {
-			listener.simulationRunEnded(new EDSimulatorEvt(this,EDSimulatorEvt.RUNENDED_ID,message,runsCount));
+	protected void fireSimulationStepped() {
+		double t=schedule.getTime();
+		SimulationProgressEvent jfrEvent=new SimulationProgressEvent();
+		if(jfrEvent.shouldCommit()) {
+			jfrEvent.run=runsCount+1;
+			jfrEvent.time=t;
+			jfrEvent.progress=progressPercent(t)/100.0;
+			jfrEvent.scheduleSize=schedule.size();
+			jfrEvent.events=eventCount;
+			jfrEvent.commit();
+		}
+		if(ring!=null) {
+			ring.offer(EDSimulatorEvt.STEP_ID,t,progressPercent(t));
+		}
+		else {
+			stepEvt.set(t,progressPercent(t));
+			deliver(stepEvt);
 		}
 	}
 
-	protected void fireSimulationStepped(String message,int percent) {
-		for(EDSimulatorListener listener : getSimulatorListeners()) {
-			listener.simulationStepped(new EDSimulatorEvt(this,EDSimulatorEvt.STEP_ID,message,percent));
+	// Calls the listeners (from the simulation thread, or from the 
+	// dispatcher thread for asynchronous delivery)
+	void deliver(EDSimulatorEvt evt) {
+		String id=evt.getId();
+		for(EDSimulatorListener listener : listenerArray) {
+			if(id==EDSimulatorEvt.STEP_ID) {listener.simulationStepped(evt);}
+			else if(id==EDSimulatorEvt.RUNENDED_ID) {listener.simulationRunEnded(evt);}
+			else {listener.simulationTerminated(evt);}
 		}
 	}
 
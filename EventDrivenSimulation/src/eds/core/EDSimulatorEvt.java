@@ -4,6 +4,10 @@
 package eds.core;
 
 /**
+ * A notification of the simulator to its listeners. The simulator reuses 
+ * its notification objects: listeners must not keep a reference to them 
+ * after the call. The message is only built when getMessage() is called.
+ *
  * @author Pierre E. Chauvet
  * @version 1.0
  * @see     EDSimulator
@@ -16,8 +20,9 @@ public final class EDSimulatorEvt {
 	
 	private String id=""; 
 	private EDSimulator source;
-	private String message;
+	private String message; // null: built on demand from the other fields
 	private int percent;
+	private double time; // simulated time of the notification
 	
 	
 	/**
@@ -47,6 +52,13 @@ public final class EDSimulatorEvt {
 	}
 
 
+	// Reuses the event for a new notification
+	void set(double time,int percent) {
+		this.time=time;
+		this.percent=percent;
+		this.message=null;
+	}
+
 	/**
 	 * @return the source
 	 */
@@ -66,8 +78,22 @@ public final class EDSimulatorEvt {
 	 * @return the message
 	 */
 	public final String getMessage() {
+		if(message==null) {
+			if(id==STEP_ID) {message="Simulation running (time="+Double.toString(time)+")";}
+			else if(id==RUNENDED_ID) {message="Simulation Run #"+Integer.toString(percent)+" finished";}
+			else if(id==TERMINATED_ID) {message="Simulation terminated";}
+			else {message="";}
+		}
 		return message;
 	}
+
+	/**
+	 * @return the simulated time of the notification
+	 */
+	public final double getTime() {
+		return time;
+	}
+
 	/**
 	 * @return the percent
 	 */
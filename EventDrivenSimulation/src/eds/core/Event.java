@@ -7,7 +7,10 @@ package eds.core;
  * A final class containing informations on an event:
  * the time of event, the kind of event (action) and 
  * the simulation unit (derived from class ASimUnit) 
- * receiving the event.
+ * receiving the event. String actions are registered in the 
+ * ActionRegistry of the schedule they are inserted in: their events then
+ * have a negative code (-2-action id, -1 before insertion), so the codes
+ * given to the int constructor must be positive or zero.
  *
  * @author Pierre E. Chauvet
  * @version 1.0
@@ -17,18 +20,36 @@ public final class Event {
 
     protected double time=0; // the trigger time of the event
     protected String action=""; // action to be taken
+    protected int code=-1; // action code (fast path, see ASimUnit.play(int)), -2-action id for a String action, -1 if none
     protected ASimUnit unit=null; // simulation unit to trigger
+    protected double key=0; // ordering key (time shifted by the unit priority)
+    protected long seq=0; // insertion rank, to keep FIFO order between identical keys
+    protected long tick=0; // time in ticks (schedules with a TickClock)
  
     public Event(double time,ASimUnit unit, String action) {
     	this.time=time;
     	this.unit=unit;
+    	this.code=-1;
     	this.action=action;
     }
  
+    public Event(double time,ASimUnit unit, int code) {
+    	if(code<0) {throw new IllegalArgumentException("Negative action code: "+code+" (reserved for String actions)");}
+    	this.time=time;
+    	this.unit=unit;
+    	this.action=null;
+    	this.code=code;
+    }
+ 
     public boolean preceding(Event evt) {
        return (time<evt.time);
     }
 
+    // Total order used by the event queues: key first, then insertion rank
+    protected final boolean before(Event evt) {
+       return (key<evt.key)||((key==evt.key)&&(seq<evt.seq));
+    }
+
 	/**
 	 * @return the time
 	 */
@@ -43,6 +64,28 @@ public final class Event {
 		return action;
 	}
 
+	/**
+	 * @return the action code, negative for a String action
+	 */
+	public final int getCode() {
+		return code;
+	}
+
+	/**
+	 * @return the id of the String action in the ActionRegistry of its 
+	 * schedule, -1 for an action code or an event not inserted yet
+	 */
+	public final int getActionId() {
+		return (code<-1) ? -2-code : -1;
+	}
+
+	/**
+	 * @return the id of the unit in its simulator, -1 if not added to a simulator
+	 */
+	public final int getUnitId() {
+		return unit.id;
+	}
+
 	/**
 	 * @return the unit
 	 */
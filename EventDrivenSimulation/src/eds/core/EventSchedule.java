@@ -3,26 +3,50 @@
  */
 package eds.core;
 
-import java.util.Vector;
+import java.util.Arrays;
+
+import eds.jfr.ScheduleGrowthEvent;
 
 /**
  * a final class which contain the list of events in the correct
- * order in time (decreasing order of time), and the current time.
+ * order in time, and the current time. The pending events are 
+ * stored in an AEventQueue (by default a SortedEventQueue).
+ * If the queue has a TickClock, the times of the events are rounded to
+ * whole numbers of ticks (no drift of the current time).
  *
  * @author  Pierre E. Chauvet
  * @version 1.0
- * @see     Event , ASimUnit
+ * @see     Event , ASimUnit , AEventQueue
  */
-public final class EventSchedule extends Vector<Event> {
-
-	private static final long serialVersionUID = -7186124215264955615L;
+public final class EventSchedule {
 
     protected double time=0; // current time of the schedule
     
     private double beginTime=0; // simulation start time
 
+    private long seq=0; // number of events inserted since the last reset
+
+    private final AEventQueue queue; // pending event set
+
+    private final TickClock clock; // clock of the queue (null: continuous time)
+
+    private SimulatorInstrumentation instrumentation=null; // null if not instrumented
+
+    private AEventRouter router=null; // router of the inserted events (null: all inserted in the queue)
+
+    private final ActionRegistry actions=new ActionRegistry(); // ids of the String actions of the events
+
+    private static final int GROWTH_MARK=1024; // size of the first growth notification
+    private int growthMark=GROWTH_MARK; // size of the next growth notification (doubled each time)
+
 	public EventSchedule() {
+		this(new SortedEventQueue());
+	}
+
+	public EventSchedule(AEventQueue queue) {
 		super();
+		this.queue=queue;
+		this.clock=queue.getClock();
 	}
 
 	/**
@@ -32,9 +56,16 @@ public final class EventSchedule extends Vector<Event> {
 		return time;
 	}
 	
+	// Sets the current time (checkpoints)
+	final void setTime(double time) {
+		this.time=(clock!=null) ? clock.round(time) : time;
+	}
+
 	public final void reset() {
 		time=beginTime;
-		this.clear();
+		seq=0;
+		growthMark=GROWTH_MARK;
+		queue.clear();
 	}
 	
 	/**
@@ -48,34 +79,79 @@ public final class EventSchedule extends Vector<Event> {
 	 * @param beginTime the beginTime to set
 	 */
 	public final void setBeginTime(double beginTime) {
-		this.beginTime = beginTime;
+		this.beginTime = (clock!=null) ? clock.round(beginTime) : beginTime;
+	}
+
+	/**
+	 * @return the clock of the schedule (null for a continuous time)
+	 */
+	public final TickClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * @return the current time in ticks (schedule with a clock)
+	 */
+	public final long getTicks() {
+		return clock.toTicks(time);
+	}
+
+	/**
+	 * @return the number of pending events
+	 */
+	public final int size() {
+		return queue.size();
+	}
+
+	public final boolean isEmpty() {
+		return queue.size()==0;
+	}
+
+	/**
+	 * @return the pending event set
+	 */
+	public final AEventQueue getQueue() {
+		return queue;
+	}
+
+	/**
+	 * @return the registry of the String actions of the events
+	 */
+	public final ActionRegistry getActions() {
+		return actions;
+	}
+
+	/**
+	 * @return the router of the inserted events (null if none)
+	 */
+	public final AEventRouter getRouter() {
+		return router;
+	}
+
+	/**
+	 * @param router the router of the inserted events (null: all events are inserted in the queue)
+	 */
+	final void setRouter(AEventRouter router) {
+		this.router=router;
 	}
 
-	// Inserts an event dichotomously so that the list of events is arranged 
-	// in descending order of times of occurrence
+	/**
+	 * @param instrumentation the instrumentation measuring the insertions (null for none)
+	 */
+	final void setInstrumentation(SimulatorInstrumentation instrumentation) {
+		this.instrumentation=instrumentation;
+		if(instrumentation!=null) {instrumentation.linkToSchedule(this);}
+	}
+
+	// Inserts an event in the pending event set. Priorities are taken 
+	// into account when actions must occur at identical times: the 
+	// ordering key is the time shifted by the priority of the unit
 	public void addEvent(Event evt) {
-		int n=size();
-		if(n==0) {add(evt);}
-		else {
-			double tmp=0;
-			int k=0,i;
-			--n;
-			// Allows priorities to be taken into account when actions 
-			// must occur at identical times
-			if(evt.unit.priority!=0) {
-				tmp=evt.time;        
-				evt.time=tmp-evt.unit.priority*0.0000001f;
-			}
-			// Insertion by dichotomy into sorted list of actions
-			while(k<=n) {
-				i=(k+n)/2;
-				if(evt.preceding((Event) get(i)))  {k=i+1;}
-				else {n=i-1;}
-			}
-			add(k,evt);
-			// Restoration of the exact moment of the action
-			if(evt.unit.priority!=0) {evt.time=tmp;}
-		}       
+		if((router!=null)&&router.route(evt)) {return;}
+		stamp(evt);
+		if(instrumentation==null) {queue.add(evt);}
+		else {instrumentation.insert(queue,evt);}
+		if(queue.size()>=growthMark) {grown();}
 	}
 	
 	public void addEvent(double step,ASimUnit unit,String action) {
@@ -85,39 +161,94 @@ public final class EventSchedule extends Vector<Event> {
 		}
 	}
 
-	// Pops the action at (size-1) from the list, which is the one 
-	// that must occur as soon as possible from the current time. 
-	// The current time becomes the time of the popped action.
+	public void addEvent(double step,ASimUnit unit,int code) {
+		if (unit!=null) {
+			Event act=new Event(time+step,unit,code);
+			addEvent(act);
+		}
+	}
+
+	// Sets the ordering key and the insertion rank of an event (and its
+	// time in ticks, the time being rounded to a whole number of ticks), 
+	// and the code of its String action
+	private void stamp(Event evt) {
+		if(evt.action!=null) {
+			evt.code=actions.code(evt.action);
+			evt.action=actions.name(-2-evt.code);
+		}
+		if(clock!=null) {
+			evt.tick=clock.toTicks(evt.time);
+			evt.time=clock.toTime(evt.tick);
+		}
+		evt.key=evt.time;
+		if(evt.unit.priority!=0) {
+			evt.key=evt.time-evt.unit.priority*0.0000001f;
+		}
+		evt.seq=seq++;
+	}
+
+	// Inserts a batch of events at once (the n first events of evts)
+	public void addAll(Event[] evts,int n) {
+		if(router!=null) {
+			for(int i=0;i<n;i++) {addEvent(evts[i]);}
+			return;
+		}
+		for(int i=0;i<n;i++) {stamp(evts[i]);}
+		if(instrumentation==null) {queue.addAll(evts,n);}
+		else {instrumentation.insertAll(queue,evts,n);}
+		if(queue.size()>=growthMark) {grown();}
+	}
+
+	// The number of pending events has reached growthMark: commits a
+	// JFR event (if recorded) and doubles the mark
+	private void grown() {
+		int size=queue.size();
+		ScheduleGrowthEvent jfrEvent=new ScheduleGrowthEvent();
+		if(jfrEvent.shouldCommit()) {
+			jfrEvent.size=size;
+			jfrEvent.time=time;
+			jfrEvent.commit();
+		}
+		while(growthMark<=size) {growthMark*=2;}
+	}
+
+	// Inserts one event per step (relative to the current time) for unit
+	public void addEvents(double[] steps,ASimUnit unit,String action) {
+		if (unit!=null) {
+			Event[] evts=new Event[steps.length];
+			for(int i=0;i<steps.length;i++) {
+				evts[i]=new Event(time+steps[i],unit,action);
+			}
+			addAll(evts,evts.length);
+		}
+	}
+
+	// Pops the event that must occur as soon as possible from the 
+	// current time. The current time becomes the time of the popped action.
 	public Event getEvent() {
-		if(size()==0) {
-			return null;}
-		else {
-			Event evt=(Event) remove(size()-1);
+		Event evt=queue.poll();
+		if(evt!=null) {
 			time=evt.time;        
-			return evt;
 		}
+		return evt;
+	}
+
+	// Returns the time of the next event (positive infinity if the schedule is empty)
+	public double getNextTime() {
+		Event evt=queue.peek();
+		return (evt!=null) ? evt.time : Double.POSITIVE_INFINITY;
+	}
+
+	// Returns a copy of the pending events, in the order they will be played
+	public Event[] getEvents() {
+		Event[] evts=queue.toArray();
+		Arrays.sort(evts,AEventQueue.DESCENDING.reversed());
+		return evts;
 	}
 
 	// Removes all events relating to unit from the instant fromTime 
 	public void removeEvents(ASimUnit unit,double fromTime) {
-		if(size()!=0) {
-			int i=size();double t=0;Event evt;
-			do {
-				i--;
-				evt=(Event) get(i);
-				t=evt.time;
-			}
-			while((t<fromTime)&(i!=0));
-			if((i==0)&(fromTime<=t)&(evt.unit==unit))
-			{remove(0);}
-			else {
-				int j;
-				for(j=i;0<=j;j--) {
-					evt=(Event) get(j);
-					if(evt.unit==unit) {remove(j);}
-				}
-			} 	    	
-		}
+		queue.removeEvents(unit,fromTime);
 	}
 
 }
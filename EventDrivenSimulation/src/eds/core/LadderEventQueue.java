@@ -0,0 +1,259 @@
+/**
+ *
+ */
+package eds.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * A ladder queue (W.T. Tang, R.S.M. Goh, I.L.-J. Thng, "Ladder Queue: an
+ * O(1) priority queue structure for large-scale discrete event simulation",
+ * ACM TOMACS 15(3), 2005) used as pending event set of an EventSchedule.
+ *
+ * The queue is made of three tiers:
+ * - Top: an unsorted list receiving the events far in the future,
+ * - Ladder: rungs of buckets, each rung subdividing one bucket of the
+ *   previous rung, built on demand from the actual spread of the keys,
+ * - Bottom: a small sorted list holding the events to be dequeued next.
+ * Buckets are only sorted when they reach the bottom, and a bucket holding
+ * more than THRESHOLD events is split into a new rung instead, so skewed
+ * or bursty key distributions are re-bucketed adaptively.
+ * Enqueue and dequeue are O(1) amortised, so a batch of n events is
+ * simply inserted one by one in O(n).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     AEventQueue , EventSchedule
+ */
+public final class LadderEventQueue extends AEventQueue {
+
+	// Maximum number of events in a bucket (or in bottom) before it is split
+	private static final int THRESHOLD=50;
+	// Maximum number of rungs of the ladder
+	private static final int MAX_RUNGS=8;
+
+	// One rung of the ladder: nb buckets of the same width, from start
+	private static final class Rung {
+		ArrayList<Event>[] buckets=newBuckets(16);
+		double start; // key of the lower bound of bucket 0
+		double width; // bucket width
+		int nb; // number of buckets in use
+		int cur; // index of the next bucket to be dequeued
+
+		// Position of a key in the rung, in bucket units
+		double position(double key) {
+			return (key-start)/width;
+		}
+
+		void setup(double min,double max,int n) {
+			start=min;
+			width=(max-min)/n;
+			nb=n+1;
+			cur=0;
+			if(buckets.length<nb) {buckets=newBuckets(Math.max(nb,2*buckets.length));}
+		}
+
+		void add(Event evt,double pos) {
+			int b=(pos>=nb) ? nb-1 : (int) pos;
+			if(buckets[b]==null) {buckets[b]=new ArrayList<Event>();}
+			buckets[b].add(evt);
+		}
+
+		@SuppressWarnings({"unchecked","rawtypes"})
+		static ArrayList<Event>[] newBuckets(int n) {
+			return new ArrayList[n];
+		}
+	}
+
+	// Top: unsorted list of events with key>=topStart
+	private final ArrayList<Event> top=new ArrayList<Event>();
+	private double topStart=Double.NEGATIVE_INFINITY;
+	// Ladder
+	private final Rung[] rungs=new Rung[MAX_RUNGS];
+	private int nbRungs=0;
+	// Bottom: sorted in descending order of keys
+	private final ArrayList<Event> bottom=new ArrayList<Event>();
+	// Total number of events
+	private int size=0;
+
+	public LadderEventQueue() {
+		super();
+		for(int r=0;r<MAX_RUNGS;r++) {rungs[r]=new Rung();}
+	}
+
+	@Override
+	public void add(Event evt) {
+		size++;
+		double key=evt.key;
+		if(key>=topStart) {
+			top.add(evt);
+			return;
+		}
+		// Finds the first rung whose remaining buckets cover the key
+		for(int r=0;r<nbRungs;r++) {
+			Rung rung=rungs[r];
+			double pos=rung.position(key);
+			if((pos>=rung.cur)&&(rung.cur<rung.nb)) {
+				rung.add(evt,pos);
+				return;
+			}
+		}
+		insertBottom(evt);
+		// Too many events to sort: they are moved to a new rung
+		if((bottom.size()>THRESHOLD)&&(nbRungs<MAX_RUNGS)) {
+			if(spawn(bottom)) {bottom.clear();}
+		}
+	}
+
+	@Override
+	public Event poll() {
+		if(size==0) {return null;}
+		if(bottom.isEmpty()) {refillBottom();}
+		size--;
+		return bottom.remove(bottom.size()-1);
+	}
+
+	@Override
+	public Event peek() {
+		if(size==0) {return null;}
+		if(bottom.isEmpty()) {refillBottom();}
+		return bottom.get(bottom.size()-1);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		top.clear();
+		topStart=Double.NEGATIVE_INFINITY;
+		for(int r=0;r<nbRungs;r++) {
+			Rung rung=rungs[r];
+			for(int b=0;b<rung.nb;b++) {
+				if(rung.buckets[b]!=null) {rung.buckets[b].clear();}
+			}
+		}
+		nbRungs=0;
+		bottom.clear();
+		size=0;
+	}
+
+	@Override
+	public void removeEvents(ASimUnit unit,double fromTime) {
+		size-=remove(top,unit,fromTime);
+		for(int r=0;r<nbRungs;r++) {
+			Rung rung=rungs[r];
+			for(int b=rung.cur;b<rung.nb;b++) {
+				if(rung.buckets[b]!=null) {size-=remove(rung.buckets[b],unit,fromTime);}
+			}
+		}
+		size-=remove(bottom,unit,fromTime);
+	}
+
+	@Override
+	public Event[] toArray() {
+		ArrayList<Event> events=new ArrayList<Event>(size);
+		events.addAll(top);
+		for(int r=0;r<nbRungs;r++) {
+			Rung rung=rungs[r];
+			for(int b=rung.cur;b<rung.nb;b++) {
+				if(rung.buckets[b]!=null) {events.addAll(rung.buckets[b]);}
+			}
+		}
+		events.addAll(bottom);
+		return events.toArray(new Event[events.size()]);
+	}
+
+	private static int remove(ArrayList<Event> list,ASimUnit unit,double fromTime) {
+		int n=list.size();
+		int j=0;
+		for(int i=0;i<n;i++) {
+			Event evt=list.get(i);
+			if((evt.unit!=unit)||(evt.time<fromTime)) {list.set(j++,evt);}
+		}
+		for(int i=n-1;i>=j;i--) {list.remove(i);}
+		return n-j;
+	}
+
+	// Inserts an event in bottom by dichotomy (descending order)
+	private void insertBottom(Event evt) {
+		int k=0,n=bottom.size()-1,i;
+		while(k<=n) {
+			i=(k+n)/2;
+			if(evt.before(bottom.get(i)))  {k=i+1;}
+			else {n=i-1;}
+		}
+		bottom.add(k,evt);
+	}
+
+	// Creates a new rung below the existing ones from a list of events.
+	// Returns false if all keys are identical (nothing to split).
+	private boolean spawn(ArrayList<Event> events) {
+		int n=events.size();
+		double min=Double.POSITIVE_INFINITY,max=Double.NEGATIVE_INFINITY;
+		for(int i=0;i<n;i++) {
+			double key=events.get(i).key;
+			if(key<min) {min=key;}
+			if(key>max) {max=key;}
+		}
+		if(!(min<max)) {return false;}
+		Rung rung=rungs[nbRungs++];
+		rung.setup(min,max,n);
+		for(int i=0;i<n;i++) {
+			Event evt=events.get(i);
+			rung.add(evt,rung.position(evt.key));
+		}
+		return true;
+	}
+
+	// Moves the next bucket of events into bottom, building
+	// the first rung from top or splitting buckets as needed
+	private void refillBottom() {
+		while(true) {
+			if(nbRungs==0) {
+				double max=Double.NEGATIVE_INFINITY;
+				for(int i=0;i<top.size();i++) {
+					if(top.get(i).key>max) {max=top.get(i).key;}
+				}
+				if(spawn(top)) {
+					Rung rung=rungs[0];
+					topStart=max+rung.width;
+				}
+				else {
+					// All keys are identical: top is simply sorted
+					topStart=max;
+					sortIntoBottom(top);
+					top.clear();
+					return;
+				}
+				top.clear();
+			}
+			Rung rung=rungs[nbRungs-1];
+			while((rung.cur<rung.nb)&&((rung.buckets[rung.cur]==null)||rung.buckets[rung.cur].isEmpty())) {
+				rung.cur++;
+			}
+			if(rung.cur==rung.nb) {
+				// Rung exhausted: back to the previous one
+				nbRungs--;
+				continue;
+			}
+			ArrayList<Event> bucket=rung.buckets[rung.cur++];
+			if((bucket.size()>THRESHOLD)&&(nbRungs<MAX_RUNGS)&&spawn(bucket)) {
+				bucket.clear();
+				continue;
+			}
+			sortIntoBottom(bucket);
+			bucket.clear();
+			return;
+		}
+	}
+
+	private void sortIntoBottom(ArrayList<Event> events) {
+		bottom.addAll(events);
+		Collections.sort(bottom,DESCENDING);
+	}
+
+}
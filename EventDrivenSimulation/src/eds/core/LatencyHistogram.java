@@ -0,0 +1,90 @@
+/**
+ * 
+ */
+package eds.core;
+
+/**
+ * A histogram of durations in nanoseconds with log-linear buckets 
+ * (like HdrHistogram): values below 32 are counted exactly, larger 
+ * values in buckets of relative width 1/16 (about 6% precision). 
+ * Recording a value is a few integer operations, without allocation.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     SimulatorInstrumentation
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BITS=4; // 16 sub-buckets per power of two
+	private static final int SUB=1<<SUB_BITS;
+	private static final int NB_BUCKETS=2*SUB+(63-SUB_BITS)*SUB;
+
+	private final long[] counts=new long[NB_BUCKETS];
+	private long count; // number of recorded values
+	private long sum; // sum of the recorded values
+	private long max; // maximum recorded value
+
+	public void reset() {
+		for(int i=0;i<NB_BUCKETS;i++) {counts[i]=0;}
+		count=0;
+		sum=0;
+		max=0;
+	}
+
+	// Records one duration (negative values are counted as 0)
+	public void record(long nanos) {
+		long v=Math.max(nanos,0);
+		counts[index(v)]++;
+		count++;
+		sum+=v;
+		if(v>max) {max=v;}
+	}
+
+	private static int index(long v) {
+		if(v<2*SUB) {return (int) v;}
+		int shift=63-Long.numberOfLeadingZeros(v)-SUB_BITS;
+		return 2*SUB+(shift-1)*SUB+(int)((v>>shift)-SUB);
+	}
+
+	// Highest value counted in bucket i
+	private static long upperBound(int i) {
+		if(i<2*SUB) {return i;}
+		int shift=(i-2*SUB)/SUB+1;
+		long base=SUB+(i-2*SUB)%SUB;
+		return ((base+1)<<shift)-1;
+	}
+
+	/**
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the mean of the recorded values (ns)
+	 */
+	public double getMean() {
+		return (count>0) ? (double)sum/count : 0;
+	}
+
+	/**
+	 * @return the maximum recorded value (ns)
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	// Value below which percentile % of the recorded values are (ns)
+	public long getPercentile(double percentile) {
+		if(count==0) {return 0;}
+		long rank=(long) Math.ceil(percentile/100*count);
+		long cumul=0;
+		for(int i=0;i<NB_BUCKETS;i++) {
+			cumul+=counts[i];
+			if(cumul>=Math.max(rank,1)) {return Math.min(upperBound(i),max);}
+		}
+		return max;
+	}
+
+}
@@ -0,0 +1,149 @@
+/**
+ * 
+ */
+package eds.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded single-producer single-consumer ring buffer of simulator 
+ * notifications, delivered to the listeners by a dispatcher thread, so 
+ * that slow listeners do not stall the event loop. Notifications are 
+ * stored as primitive values and delivered through one reused event. 
+ * Step notifications are dropped when the ring is full, run ended and 
+ * terminated notifications wait for free space: the simulation thread then
+ * parks until the dispatcher unparks it after a delivery.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     EDSimulator , EDSimulatorEvt
+ */
+final class NotificationRing implements Runnable {
+
+	private static final long PARK_NANOS=200000; // dispatcher idle wait
+
+	private final EDSimulator simulator;
+	private final String[] ids; // notification kinds (EDSimulatorEvt ids)
+	private final double[] times;
+	private final int[] percents;
+	private final int mask; // capacity-1 (capacity is a power of two)
+	private volatile long written; // number of notifications written
+	private volatile long read; // number of notifications delivered
+	private long dropped; // number of step notifications dropped
+	private volatile Thread waiter=null; // simulation thread parked in put() or drain()
+	private boolean closed=true; // no more notification until the next open()
+	private Thread dispatcher=null;
+
+	NotificationRing(EDSimulator simulator,int capacity) {
+		this.simulator=simulator;
+		int n=Integer.highestOneBit(Math.max(capacity,2)-1)<<1;
+		ids=new String[n];
+		times=new double[n];
+		percents=new int[n];
+		mask=n-1;
+	}
+
+	// Starts the dispatcher thread, if not already running
+	synchronized void open() {
+		closed=false;
+		if(dispatcher==null) {
+			dispatcher=new Thread(this,"EDSimulator-listeners");
+			dispatcher.setDaemon(true);
+			dispatcher.start();
+		}
+	}
+
+	// The dispatcher will stop once the ring is empty
+	synchronized void close() {
+		closed=true;
+		if(dispatcher!=null) {LockSupport.unpark(dispatcher);}
+	}
+
+	private boolean write(String id,double time,int percent) {
+		long w=written;
+		if(w-read>mask) {return false;}
+		int i=(int)(w&mask);
+		ids[i]=id;
+		times[i]=time;
+		percents[i]=percent;
+		written=w+1;
+		return true;
+	}
+
+	// Adds a notification if there is room for it (simulation thread only)
+	boolean offer(String id,double time,int percent) {
+		if(write(id,time,percent)) {return true;}
+		dropped++;
+		return false;
+	}
+
+	// Adds a notification, waiting for room if necessary (simulation thread only)
+	void put(String id,double time,int percent) {
+		while(!write(id,time,percent)) {
+			await(written-mask);
+		}
+		wakeUp();
+	}
+
+	// Waits until all the notifications are delivered (simulation thread only)
+	void drain() {
+		wakeUp();
+		while(read<written) {
+			await(written);
+		}
+	}
+
+	// Parks until count notifications are delivered (the waiter is published
+	// before read is checked again, so a delivery cannot be missed)
+	private void await(long count) {
+		waiter=Thread.currentThread();
+		if(read<count) {
+			wakeUp();
+			LockSupport.park(this);
+		}
+		waiter=null;
+	}
+
+	/**
+	 * @return the number of step notifications dropped because the ring was full
+	 */
+	long getDropped() {
+		return dropped;
+	}
+
+	private void wakeUp() {
+		Thread t=dispatcher;
+		if(t!=null) {LockSupport.unpark(t);}
+	}
+
+	@Override
+	public void run() {
+		// One reused event per kind of notification
+		EDSimulatorEvt stepEvt=new EDSimulatorEvt(simulator,EDSimulatorEvt.STEP_ID);
+		EDSimulatorEvt runEndedEvt=new EDSimulatorEvt(simulator,EDSimulatorEvt.RUNENDED_ID);
+		EDSimulatorEvt terminatedEvt=new EDSimulatorEvt(simulator,EDSimulatorEvt.TERMINATED_ID);
+		while(true) {
+			long r=read;
+			if(r<written) {
+				int i=(int)(r&mask);
+				String id=ids[i];
+				EDSimulatorEvt evt=(id==EDSimulatorEvt.STEP_ID) ? stepEvt : (id==EDSimulatorEvt.RUNENDED_ID) ? runEndedEvt : terminatedEvt;
+				evt.set(times[i],percents[i]);
+				simulator.deliver(evt);
+				read=r+1;
+				Thread t=waiter;
+				if(t!=null) {LockSupport.unpark(t);}
+			}
+			else {
+				synchronized(this) {
+					if(closed&&(read==written)) {
+						dispatcher=null;
+						return;
+					}
+				}
+				LockSupport.parkNanos(this,PARK_NANOS);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/**
+ * 
+ */
+package eds.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A random stream whose state can be saved and restored (checkpoints).
+ * It produces exactly the same sequence as java.util.Random for the same
+ * seed (same linear congruential generator, same gaussian method), but 
+ * keeps its state in plain fields, so it is not thread-safe: a stream 
+ * belongs to one simulation unit. Streams created by 
+ * ASimUnit.newRandomStream() are saved in the checkpoints of the simulator.
+ * An antithetic stream returns the complements of the bits of the normal
+ * stream: uniform u becomes (almost exactly) 1-u, and gaussians change
+ * sign, which induces a negative correlation between paired replications.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ASimUnit , EDSimulator
+ */
+public class SimRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long MULTIPLIER=0x5DEECE66DL;
+	private static final long ADDEND=0xBL;
+	private static final long MASK=(1L<<48)-1;
+
+	// Seeds of the streams created without seed (Weyl sequence)
+	private static final AtomicLong seeds=new AtomicLong(System.nanoTime());
+
+	// No initializer: these fields are set by setSeed(), called by the Random constructor
+	private long seed; // state of the generator
+	private double nextNextGaussian; // second gaussian of the last pair
+	private boolean haveNextNextGaussian;
+	private boolean antithetic; // true to return the complements of the bits
+
+	public SimRandom() {
+		this(mix(seeds.addAndGet(0x9E3779B97F4A7C15L)));
+	}
+
+	public SimRandom(long seed) {
+		super(seed);
+	}
+
+	// Finalizer of SplitMix64
+	static long mix(long z) {
+		z=(z^(z>>>30))*0xBF58476D1CE4E5B9L;
+		z=(z^(z>>>27))*0x94D049BB133111EBL;
+		return z^(z>>>31);
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		this.seed=(seed^MULTIPLIER)&MASK;
+		haveNextNextGaussian=false;
+	}
+
+	@Override
+	protected int next(int bits) {
+		seed=(seed*MULTIPLIER+ADDEND)&MASK;
+		int r=(int)(seed>>>(48-bits));
+		if(antithetic) {
+			return (bits==32) ? ~r : (~r)&((1<<bits)-1);
+		}
+		return r;
+	}
+
+	/**
+	 * @param antithetic true to draw the antithetic numbers of the stream
+	 */
+	public void setAntithetic(boolean antithetic) {
+		this.antithetic=antithetic;
+	}
+
+	/**
+	 * @return true if the stream draws antithetic numbers
+	 */
+	public boolean isAntithetic() {
+		return antithetic;
+	}
+
+	@Override
+	public double nextGaussian() {
+		if(haveNextNextGaussian) {
+			haveNextNextGaussian=false;
+			return nextNextGaussian;
+		}
+		double v1,v2,s;
+		do {
+			v1=2*nextDouble()-1;
+			v2=2*nextDouble()-1;
+			s=v1*v1+v2*v2;
+		} while((s>=1)||(s==0));
+		double multiplier=StrictMath.sqrt(-2*StrictMath.log(s)/s);
+		nextNextGaussian=v2*multiplier;
+		haveNextNextGaussian=true;
+		return v1*multiplier;
+	}
+
+	// Writes the state of the stream
+	public void save(DataOutput out) throws IOException {
+		out.writeLong(seed);
+		out.writeBoolean(haveNextNextGaussian);
+		out.writeDouble(nextNextGaussian);
+		out.writeBoolean(antithetic);
+	}
+
+	// Reads a state written by save()
+	public void load(DataInput in) throws IOException {
+		seed=in.readLong();
+		haveNextNextGaussian=in.readBoolean();
+		nextNextGaussian=in.readDouble();
+		antithetic=in.readBoolean();
+	}
+
+}
@@ -0,0 +1,20 @@
+/**
+ * 
+ */
+package eds.core;
+
+/**
+ * Builds the simulators of the copies of a forked simulation: each 
+ * simulator must have new instances of the units of the forked one, 
+ * added in the same order (their state is then restored from the fork).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     EDSimulator
+ */
+public interface SimulatorFactory {
+
+	// Builds the simulator of copy number copy (0 to n-1)
+	public EDSimulator create(int copy);
+
+}
@@ -0,0 +1,257 @@
+/**
+ *
+ */
+package eds.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import eds.jfr.EventLoopStatsEvent;
+
+/**
+ * Instrumentation of the event loop of an EDSimulator: number of events
+ * dispatched, events per second, high-water mark of the schedule size,
+ * latency histograms of the insertions and extractions of events, and
+ * time spent in play() per unit and per action.
+ * Latencies and play() times are only measured for one operation out of
+ * samplingPeriod, to keep the overhead low. Without instrumentation
+ * (the default), the event loop only pays one null test per chunk of events.
+ * The counters can be read through JMX (register()) and are committed as
+ * a JFR event (eds.EventLoopStats) at the end of each run. They are
+ * updated by the simulation thread without synchronization, so values
+ * read while the simulation is running are approximate.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     EDSimulator , LatencyHistogram
+ */
+public final class SimulatorInstrumentation implements SimulatorInstrumentationMBean {
+
+	private final int samplingMask; // one operation out of samplingMask+1 is timed
+	private EventSchedule schedule=null; // instrumented schedule
+	// Counters
+	private long eventsDispatched;
+	private int scheduleHighWater;
+	private long inserts; // number of insertions
+	private long runningNanos; // real time spent in the event loop (completed periods)
+	private long beginNanos=-1; // beginning of the current period (-1 if not running)
+	private final LatencyHistogram insertLatency=new LatencyHistogram();
+	private final LatencyHistogram popLatency=new LatencyHistogram();
+	// Sampled play() times: unit -> action (String or Integer code) -> {count, total ns}
+	private final HashMap<ASimUnit,HashMap<Object,long[]>> playTimes=new HashMap<ASimUnit,HashMap<Object,long[]>>();
+
+	public SimulatorInstrumentation() {
+		this(64);
+	}
+
+	// samplingPeriod is rounded to a power of two
+	public SimulatorInstrumentation(int samplingPeriod) {
+		samplingMask=Integer.highestOneBit(Math.max(samplingPeriod,1))-1;
+	}
+
+	void linkToSchedule(EventSchedule schedule) {
+		this.schedule=schedule;
+	}
+
+	// The event loop starts or resumes
+	void started() {
+		beginNanos=System.nanoTime();
+	}
+
+	// The event loop stops or pauses
+	void stopped() {
+		if(beginNanos>=0) {
+			runningNanos+=System.nanoTime()-beginNanos;
+			beginNanos=-1;
+		}
+	}
+
+	// Inserts an event in the queue, measuring the latency of sampled insertions
+	void insert(AEventQueue queue,Event evt) {
+		if((inserts++&samplingMask)==0) {
+			long t0=System.nanoTime();
+			queue.add(evt);
+			insertLatency.record(System.nanoTime()-t0);
+		}
+		else {
+			queue.add(evt);
+		}
+		if(queue.size()>scheduleHighWater) {scheduleHighWater=queue.size();}
+	}
+
+	// Batch insertion (not timed)
+	void insertAll(AEventQueue queue,Event[] evts,int n) {
+		inserts+=n;
+		queue.addAll(evts,n);
+		if(queue.size()>scheduleHighWater) {scheduleHighWater=queue.size();}
+	}
+
+	// Pops and plays the next event of the schedule (event loop)
+	Event dispatch(EventSchedule schedule) {
+		Event event;
+		if((eventsDispatched++&samplingMask)==0) {
+			long t0=System.nanoTime();
+			event=schedule.getEvent();
+			long t1=System.nanoTime();
+			if(event.code>=0) {event.unit.play(event.code);}
+			else {event.unit.play(event.action);}
+			long t2=System.nanoTime();
+			popLatency.record(t1-t0);
+			recordPlay(event,t2-t1);
+		}
+		else {
+			event=schedule.getEvent();
+			if(event.code>=0) {event.unit.play(event.code);}
+			else {event.unit.play(event.action);}
+		}
+		return event;
+	}
+
+	private void recordPlay(Event event,long nanos) {
+		Object action=(event.code>=0) ? Integer.valueOf(event.code) : event.action;
+		synchronized(playTimes) {
+			HashMap<Object,long[]> actions=playTimes.get(event.unit);
+			if(actions==null) {
+				actions=new HashMap<Object,long[]>();
+				playTimes.put(event.unit,actions);
+			}
+			long[] timing=actions.get(action);
+			if(timing==null) {
+				timing=new long[2];
+				actions.put(action,timing);
+			}
+			timing[0]++;
+			timing[1]+=nanos;
+		}
+	}
+
+	// Commits the JFR event of the end of a run
+	void runEnded(int run) {
+		EventLoopStatsEvent jfrEvent=new EventLoopStatsEvent();
+		if(jfrEvent.shouldCommit()) {
+			jfrEvent.run=run;
+			jfrEvent.eventsDispatched=eventsDispatched;
+			jfrEvent.eventsPerSecond=getEventsPerSecond();
+			jfrEvent.scheduleHighWater=scheduleHighWater;
+			jfrEvent.insertP99=insertLatency.getPercentile(99);
+			jfrEvent.popP99=popLatency.getPercentile(99);
+			jfrEvent.commit();
+		}
+	}
+
+	// Registers this object as a platform MBean named eds:type=EDSimulator,name=<name>
+	public ObjectName register(String name) throws JMException {
+		MBeanServer server=ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName=new ObjectName("eds:type=EDSimulator,name="+ObjectName.quote(name));
+		server.registerMBean(this,objectName);
+		return objectName;
+	}
+
+	public static void unregister(ObjectName objectName) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+	}
+
+	@Override
+	public long getEventsDispatched() {
+		return eventsDispatched;
+	}
+
+	@Override
+	public double getEventsPerSecond() {
+		long nanos=runningNanos;
+		long begin=beginNanos;
+		if(begin>=0) {nanos+=System.nanoTime()-begin;}
+		return (nanos>0) ? 1e9*eventsDispatched/nanos : 0;
+	}
+
+	@Override
+	public int getScheduleSize() {
+		return (schedule!=null) ? schedule.size() : 0;
+	}
+
+	@Override
+	public int getScheduleHighWater() {
+		return scheduleHighWater;
+	}
+
+	@Override
+	public double getInsertLatencyMeanNanos() {
+		return insertLatency.getMean();
+	}
+
+	@Override
+	public long getInsertLatencyP99Nanos() {
+		return insertLatency.getPercentile(99);
+	}
+
+	@Override
+	public double getPopLatencyMeanNanos() {
+		return popLatency.getMean();
+	}
+
+	@Override
+	public long getPopLatencyP99Nanos() {
+		return popLatency.getPercentile(99);
+	}
+
+	/**
+	 * @return the latency histogram of the (sampled) insertions
+	 */
+	public LatencyHistogram getInsertLatency() {
+		return insertLatency;
+	}
+
+	/**
+	 * @return the latency histogram of the (sampled) extractions
+	 */
+	public LatencyHistogram getPopLatency() {
+		return popLatency;
+	}
+
+	// One line per unit and action: "unit/action: samples, mean ns, total share"
+	@Override
+	public String[] getActionTimings() {
+		ArrayList<String> lines=new ArrayList<String>();
+		synchronized(playTimes) {
+			long total=0;
+			for(HashMap<Object,long[]> actions:playTimes.values()) {
+				for(long[] timing:actions.values()) {total+=timing[1];}
+			}
+			for(Map.Entry<ASimUnit,HashMap<Object,long[]>> unit:playTimes.entrySet()) {
+				for(Map.Entry<Object,long[]> action:unit.getValue().entrySet()) {
+					long[] timing=action.getValue();
+					lines.add(unitName(unit.getKey())+"/"+action.getKey()+": "+timing[0]+" samples, "
+							+(timing[1]/timing[0])+" ns mean, "+Math.round(100.0*timing[1]/Math.max(total,1))+"%");
+				}
+			}
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	private static String unitName(ASimUnit unit) {
+		if(unit.name!=null) {return unit.name;}
+		String name=unit.getClass().getSimpleName();
+		return name.isEmpty() ? unit.getClass().getName() : name;
+	}
+
+	@Override
+	public void reset() {
+		eventsDispatched=0;
+		scheduleHighWater=0;
+		inserts=0;
+		runningNanos=0;
+		if(beginNanos>=0) {beginNanos=System.nanoTime();}
+		insertLatency.reset();
+		popLatency.reset();
+		synchronized(playTimes) {
+			playTimes.clear();
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+/**
+ * 
+ */
+package eds.core;
+
+/**
+ * The JMX management interface of SimulatorInstrumentation.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     SimulatorInstrumentation
+ */
+public interface SimulatorInstrumentationMBean {
+
+	long getEventsDispatched();
+
+	double getEventsPerSecond();
+
+	int getScheduleSize();
+
+	int getScheduleHighWater();
+
+	double getInsertLatencyMeanNanos();
+
+	long getInsertLatencyP99Nanos();
+
+	double getPopLatencyMeanNanos();
+
+	long getPopLatencyP99Nanos();
+
+	String[] getActionTimings();
+
+	void reset();
+
+}
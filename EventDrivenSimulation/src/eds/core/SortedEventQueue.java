@@ -0,0 +1,119 @@
+/**
+ * 
+ */
+package eds.core;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+/**
+ * The historical pending event set of the framework: a Vector kept 
+ * sorted in descending order of keys, new events being inserted 
+ * by dichotomy. Insertion is O(n) (array shift), extraction O(1).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     AEventQueue , EventSchedule
+ */
+public final class SortedEventQueue extends AEventQueue {
+
+	private final Vector<Event> events=new Vector<Event>();
+
+	public SortedEventQueue() {
+		super();
+	}
+
+	// Inserts an event dichotomously so that the list of events is arranged 
+	// in descending order of keys
+	@Override
+	public void add(Event evt) {
+		int n=events.size();
+		if(n==0) {events.add(evt);}
+		else {
+			int k=0,i;
+			--n;
+			// Insertion by dichotomy into sorted list of actions
+			while(k<=n) {
+				i=(k+n)/2;
+				if(evt.before(events.get(i)))  {k=i+1;}
+				else {n=i-1;}
+			}
+			events.add(k,evt);
+		}       
+	}
+
+	// Sorts the batch (O(n) if already sorted, as pre-generated arrivals 
+	// usually are) then merges it with the pending events in one pass
+	@Override
+	public void addAll(Event[] evts,int n) {
+		if(n==0) {return;}
+		Event[] batch=Arrays.copyOf(evts,n);
+		Arrays.sort(batch,DESCENDING);
+		int m=events.size();
+		Event[] merged=new Event[n+m];
+		int i=0,j=0,k=0;
+		while((i<m)&&(j<n)) {
+			Event evt=events.get(i);
+			if(batch[j].before(evt)) {merged[k++]=evt;i++;}
+			else {merged[k++]=batch[j++];}
+		}
+		while(i<m) {merged[k++]=events.get(i++);}
+		while(j<n) {merged[k++]=batch[j++];}
+		events.clear();
+		events.addAll(Arrays.asList(merged));
+	}
+
+	// Pops the action at (size-1) from the list, which is the one 
+	// that must occur as soon as possible from the current time. 
+	@Override
+	public Event poll() {
+		if(events.size()==0) {
+			return null;}
+		else {
+			return events.remove(events.size()-1);
+		}
+	}
+
+	@Override
+	public Event peek() {
+		return (events.size()==0) ? null : events.get(events.size()-1);
+	}
+
+	@Override
+	public int size() {
+		return events.size();
+	}
+
+	@Override
+	public void clear() {
+		events.clear();
+	}
+
+	@Override
+	public Event[] toArray() {
+		return events.toArray(new Event[events.size()]);
+	}
+
+	@Override
+	public void removeEvents(ASimUnit unit,double fromTime) {
+		if(events.size()!=0) {
+			int i=events.size();double t=0;Event evt;
+			do {
+				i--;
+				evt=events.get(i);
+				t=evt.time;
+			}
+			while((t<fromTime)&(i!=0));
+			if((i==0)&(fromTime<=t)&(evt.unit==unit))
+			{events.remove(0);}
+			else {
+				int j;
+				for(j=i;0<=j;j--) {
+					evt=events.get(j);
+					if(evt.unit==unit) {events.remove(j);}
+				}
+			} 	    	
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+/**
+ * 
+ */
+package eds.core;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * A simulation unit generating the arrivals of one or several independent 
+ * streams, each with interarrival times drawn from a distribution, until 
+ * a closing time. At each arrival, the action of the target unit is played.
+ * Like the "UserEntrance" events of the examples, only the next arrival of 
+ * each stream is pending: it is generated when the current one fires.
+ * Arrival events use action codes (one per stream), so they bypass the 
+ * String dispatch.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ADistribution , ASimUnit
+ */
+public class SourceUnit extends ASimUnit {
+
+	private Random random=newRandomStream();
+	// Parameter values
+	private final ADistribution interarrival; // interarrival time distribution
+	private double closingTime; // no arrival after this time
+	private final int nbStreams; // number of independent arrival streams
+	private final ASimUnit target; // unit receiving the arrivals
+	private final String targetAction; // action played by the target (if not null)
+	private final int targetCode; // action code played by the target otherwise
+	// Observation variables
+	private long nbArrivals; // number of arrivals in the current run
+
+	public SourceUnit(ADistribution interarrival,double closingTime,ASimUnit target,String targetAction,int nbStreams) {
+		this.interarrival=interarrival;
+		this.closingTime=closingTime;
+		this.target=target;
+		this.targetAction=targetAction;
+		this.targetCode=-1;
+		this.nbStreams=nbStreams;
+	}
+
+	public SourceUnit(ADistribution interarrival,double closingTime,ASimUnit target,String targetAction) {
+		this(interarrival,closingTime,target,targetAction,1);
+	}
+
+	// The target is played with an action code (fast path) instead of a String
+	public SourceUnit(ADistribution interarrival,double closingTime,ASimUnit target,int targetCode,int nbStreams) {
+		this.interarrival=interarrival;
+		this.closingTime=closingTime;
+		this.target=target;
+		this.targetAction=null;
+		this.targetCode=targetCode;
+		this.nbStreams=nbStreams;
+	}
+
+	@Override
+	public boolean init(double beginTime, double endTime) {
+		nbArrivals=0;
+		for(int k=0;k<nbStreams;k++) {scheduleNext(k);}
+		return true;
+	}
+
+	@Override
+	public boolean play(int code) {
+		nbArrivals++;
+		if(targetAction!=null) {target.play(targetAction);}
+		else {target.play(targetCode);}
+		scheduleNext(code);
+		return true;
+	}
+
+	@Override
+	public boolean play(String action) {
+		return false;
+	}
+
+	// Schedules the next arrival of stream k, unless it is after closing
+	private void scheduleNext(int k) {
+		double step=interarrival.sample(random);
+		if(getTime()+step<=closingTime) {addEvent(step,k);}
+	}
+
+	@Override
+	public void saveState(StateOutput out) throws IOException {
+		out.writeDouble(closingTime);
+		out.writeLong(nbArrivals);
+	}
+
+	@Override
+	public void loadState(StateInput in) throws IOException {
+		closingTime=in.readDouble();
+		nbArrivals=in.readLong();
+	}
+
+	/**
+	 * @return the closingTime
+	 */
+	public final double getClosingTime() {
+		return closingTime;
+	}
+
+	/**
+	 * @param closingTime the closingTime to set
+	 */
+	public final void setClosingTime(double closingTime) {
+		this.closingTime = closingTime;
+	}
+
+	/**
+	 * @return the number of streams
+	 */
+	public final int getNbStreams() {
+		return nbStreams;
+	}
+
+	/**
+	 * @return the number of arrivals in the current run
+	 */
+	public final long getNbArrivals() {
+		return nbArrivals;
+	}
+
+}
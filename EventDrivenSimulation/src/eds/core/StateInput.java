@@ -0,0 +1,86 @@
+/**
+ * 
+ */
+package eds.core;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * The input stream of a checkpoint, given to ASimUnit.loadState(). The 
+ * checkpoint file is memory-mapped, so large float grids are read in bulk.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     StateOutput , ASimUnit , EDSimulator
+ */
+public final class StateInput extends DataInputStream {
+
+	private final ByteBuffer buffer; // content of the checkpoint
+
+	StateInput(ByteBuffer buffer) {
+		super(new BufferStream(buffer));
+		this.buffer=buffer;
+	}
+
+	// Reads a grid written by StateOutput.writeGrid() into grid, which 
+	// must have the same dimensions
+	public void readGrid(float[][] grid) throws IOException {
+		int nx=readInt();
+		int ny=readInt();
+		if((nx!=grid.length)||((nx>0)&&(ny!=grid[0].length))) {
+			throw new IOException("Grid dimensions "+nx+"x"+ny+" do not match the checkpoint");
+		}
+		FloatBuffer floats=buffer.asFloatBuffer();
+		for(float[] row:grid) {floats.get(row,0,ny);}
+		buffer.position(buffer.position()+4*nx*ny);
+	}
+
+	// Reads a grid written by StateOutput.writeGrid()
+	public float[][] readGrid() throws IOException {
+		int nx=buffer.getInt(buffer.position());
+		int ny=buffer.getInt(buffer.position()+4);
+		float[][] grid=new float[nx][ny];
+		readGrid(grid);
+		return grid;
+	}
+
+	// Reads a String written by StateOutput.writeNullableUTF()
+	public String readNullableUTF() throws IOException {
+		return readBoolean() ? readUTF() : null;
+	}
+
+	// Unbuffered stream over the mapped file: the position of the buffer 
+	// is always the position of the next value to be read
+	private static final class BufferStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		BufferStream(ByteBuffer buffer) {
+			this.buffer=buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? (buffer.get()&0xFF) : -1;
+		}
+
+		@Override
+		public int read(byte[] b,int off,int len) {
+			if(len==0) {return 0;}
+			if(!buffer.hasRemaining()) {return -1;}
+			int n=Math.min(len,buffer.remaining());
+			buffer.get(b,off,n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+/**
+ * 
+ */
+package eds.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * The output stream of a checkpoint, given to ASimUnit.saveState(). 
+ * Besides the DataOutput methods, it writes large float grids (PDE fields)
+ * in bulk through a memory-mapped region of the checkpoint file (or 
+ * row by row for in-memory snapshots).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     StateInput , ASimUnit , EDSimulator
+ */
+public final class StateOutput extends DataOutputStream {
+
+	private final FileChannel channel; // checkpoint file (null for a snapshot)
+	private ByteBuffer row=null; // buffer of a grid row (snapshot)
+
+	StateOutput(FileChannel channel) {
+		super(new BufferedOutputStream(Channels.newOutputStream(channel),1<<16));
+		this.channel=channel;
+	}
+
+	StateOutput(OutputStream out) {
+		super(out);
+		this.channel=null;
+	}
+
+	// Writes a rectangular grid of floats (dimensions, then rows)
+	public void writeGrid(float[][] grid) throws IOException {
+		int nx=grid.length;
+		int ny=(nx>0) ? grid[0].length : 0;
+		writeInt(nx);
+		writeInt(ny);
+		if(channel==null) {
+			if((row==null)||(row.capacity()<4*ny)) {row=ByteBuffer.allocate(4*ny);}
+			for(float[] values:grid) {
+				row.clear();
+				row.asFloatBuffer().put(values,0,ny);
+				write(row.array(),0,4*ny);
+			}
+			return;
+		}
+		flush();
+		long position=channel.position();
+		long size=4L*nx*ny;
+		if(size==0) {return;}
+		MappedByteBuffer buffer=channel.map(FileChannel.MapMode.READ_WRITE,position,size);
+		FloatBuffer floats=buffer.asFloatBuffer();
+		for(float[] row:grid) {floats.put(row,0,ny);}
+		channel.position(position+size);
+	}
+
+	// Writes a String that can be null
+	public void writeNullableUTF(String s) throws IOException {
+		writeBoolean(s!=null);
+		if(s!=null) {writeUTF(s);}
+	}
+
+}
@@ -0,0 +1,57 @@
+/**
+ * 
+ */
+package eds.core;
+
+/**
+ * An integer simulation clock: times are counted in ticks of a fixed 
+ * resolution (1 ms, 1 us...), stored in a long. A schedule with a tick 
+ * clock rounds every event time to a whole number of ticks, so that the 
+ * current time does not drift when steps are added up (8 hours in 
+ * seconds are exact), simultaneous events are detected exactly, and the 
+ * TickEventQueue compares integer keys only.
+ * The conversion helpers are used by the models to express their 
+ * delays in ticks or in time units.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     TickEventQueue , EventSchedule
+ */
+public final class TickClock {
+
+	private final double resolution; // duration of one tick (in time units)
+	private final double ticksPerUnit; // number of ticks per time unit
+
+	/**
+	 * @param resolution the duration of one tick, in the time unit of 
+	 * the model (0.001 for a millisecond clock in a model in seconds)
+	 */
+	public TickClock(double resolution) {
+		if(!(resolution>0)) {throw new IllegalArgumentException("Positive resolution expected: "+resolution);}
+		this.resolution=resolution;
+		this.ticksPerUnit=1/resolution;
+	}
+
+	// Number of ticks of time, rounded to the nearest tick
+	public long toTicks(double time) {
+		return Math.round(time*ticksPerUnit);
+	}
+
+	// Time of a number of ticks
+	public double toTime(long ticks) {
+		return ticks*resolution;
+	}
+
+	// Time rounded to the nearest tick
+	public double round(double time) {
+		return toTime(toTicks(time));
+	}
+
+	/**
+	 * @return the duration of one tick
+	 */
+	public double getResolution() {
+		return resolution;
+	}
+
+}
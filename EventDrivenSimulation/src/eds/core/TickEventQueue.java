@@ -0,0 +1,139 @@
+/**
+ * 
+ */
+package eds.core;
+
+import java.util.Arrays;
+
+/**
+ * A binary heap of primitive keys used as pending event set of a schedule
+ * with a TickClock: the key of an event packs its time in ticks and the 
+ * priority of its unit in a long, (tick<<8)|(127-priority), so that the 
+ * order of two events is decided by one integer comparison, the insertion
+ * rank (kept in a parallel array of longs) breaking the ties exactly.
+ * Keys and ranks are stored in arrays beside the events, so that sifting 
+ * never reads the events themselves.
+ * Insertion and extraction are O(log n).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     AEventQueue , TickClock
+ */
+public final class TickEventQueue extends AEventQueue {
+
+	private final TickClock clock; // clock of the schedule
+	private long[] keys=new long[64]; // packed keys of the heap
+	private long[] seqs=new long[64]; // insertion ranks of the heap
+	private Event[] events=new Event[64]; // events of the heap
+	private int size=0; // number of events
+
+	public TickEventQueue(TickClock clock) {
+		super();
+		this.clock=clock;
+	}
+
+	// Packed key of an event: time in ticks, then priority (highest first)
+	static long key(Event evt) {
+		return (evt.tick<<8)|(127-evt.unit.priority);
+	}
+
+	@Override
+	public TickClock getClock() {
+		return clock;
+	}
+
+	@Override
+	public void add(Event evt) {
+		if(size==keys.length) {grow();}
+		siftUp(size++,key(evt),evt.seq,evt);
+	}
+
+	@Override
+	public Event poll() {
+		if(size==0) {return null;}
+		Event first=events[0];
+		int last=--size;
+		if(last>0) {siftDown(0,keys[last],seqs[last],events[last]);}
+		events[last]=null;
+		return first;
+	}
+
+	@Override
+	public Event peek() {
+		return (size==0) ? null : events[0];
+	}
+
+	private void grow() {
+		int n=2*keys.length;
+		keys=Arrays.copyOf(keys,n);
+		seqs=Arrays.copyOf(seqs,n);
+		events=Arrays.copyOf(events,n);
+	}
+
+	private void siftUp(int i,long key,long seq,Event evt) {
+		while(i>0) {
+			int parent=(i-1)>>>1;
+			long k=keys[parent];
+			if((k<key)||((k==key)&&(seqs[parent]<seq))) {break;}
+			keys[i]=k;
+			seqs[i]=seqs[parent];
+			events[i]=events[parent];
+			i=parent;
+		}
+		keys[i]=key;
+		seqs[i]=seq;
+		events[i]=evt;
+	}
+
+	private void siftDown(int i,long key,long seq,Event evt) {
+		int half=size>>>1;
+		while(i<half) {
+			int child=2*i+1;
+			int right=child+1;
+			if((right<size)&&((keys[right]<keys[child])||((keys[right]==keys[child])&&(seqs[right]<seqs[child])))) {child=right;}
+			long k=keys[child];
+			if((key<k)||((key==k)&&(seq<seqs[child]))) {break;}
+			keys[i]=k;
+			seqs[i]=seqs[child];
+			events[i]=events[child];
+			i=child;
+		}
+		keys[i]=key;
+		seqs[i]=seq;
+		events[i]=evt;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(events,0,size,null);
+		size=0;
+	}
+
+	@Override
+	public Event[] toArray() {
+		return Arrays.copyOf(events,size);
+	}
+
+	// Removes the events and rebuilds the heap (O(n))
+	@Override
+	public void removeEvents(ASimUnit unit,double fromTime) {
+		int n=0;
+		for(int i=0;i<size;i++) {
+			Event evt=events[i];
+			if((evt.unit!=unit)||(evt.time<fromTime)) {
+				keys[n]=keys[i];
+				seqs[n]=seqs[i];
+				events[n++]=evt;
+			}
+		}
+		Arrays.fill(events,n,size,null);
+		size=n;
+		for(int i=(size>>>1)-1;i>=0;i--) {siftDown(i,keys[i],seqs[i],events[i]);}
+	}
+
+}
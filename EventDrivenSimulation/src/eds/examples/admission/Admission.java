@@ -3,9 +3,12 @@
  */
 package eds.examples.admission;
 
+import java.io.IOException;
 import java.util.Random;
 
 import eds.core.ASimUnit;
+import eds.core.StateInput;
+import eds.core.StateOutput;
 
 /**
  * The admission part (by one medical secretary) of the medical analysis laboratory.
@@ -15,7 +18,7 @@ import eds.core.ASimUnit;
  */
 public final class Admission extends ASimUnit {
 
-	private transient Random random=new Random();
+	private transient Random random=newRandomStream();
 	private transient boolean closing;
 	// The examination office model
 	private ASimUnit examination;
@@ -95,6 +98,24 @@ public final class Admission extends ASimUnit {
 		return true;
 	}
 
+	@Override
+	public void saveState(StateOutput out) throws IOException {
+		out.writeBoolean(closing);
+		out.writeBoolean(status);
+		out.writeInt(queue);
+		out.writeInt(nb_users_day);
+		out.writeInt(nb_users_closing);
+	}
+
+	@Override
+	public void loadState(StateInput in) throws IOException {
+		closing=in.readBoolean();
+		status=in.readBoolean();
+		queue=in.readInt();
+		nb_users_day=in.readInt();
+		nb_users_closing=in.readInt();
+	}
+
 	/**
 	 * @return the duration_opening
 	 */
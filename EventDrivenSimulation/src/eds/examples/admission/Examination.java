@@ -3,9 +3,13 @@
  */
 package eds.examples.admission;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Random;
+
+import eds.blocks.TimeWeighted;
 import eds.core.ASimUnit;
+import eds.core.StateInput;
+import eds.core.StateOutput;
 
 
 /**
@@ -16,16 +20,7 @@ import eds.core.ASimUnit;
  */
 public class Examination extends ASimUnit {
 
-	private class TimeVal {
-		double time;
-		int value;
-		public TimeVal(double t, int v) {
-			this.time=t;
-			this.value=v;
-		}
-	}
-	
-	private transient Random random=new Random();
+	private transient Random random=newRandomStream();
 	// State variables
 	private int nb_dispo; // current number of unoccupied nurses
 	private int queue; // number of users in the queue
@@ -35,7 +30,7 @@ public class Examination extends ASimUnit {
 	private float exam_std; // standard deviation of length of examination
 	// Observation variables
 	private int nb_users_day; // number of users examined per day
-	private ArrayList<TimeVal> trace_nurse_usage; // trace nb_dispo value, i.e. the number of unoccupied nurses 
+	private TimeWeighted nurse_usage; // number of busy nurses over time
 	private double[] percent_busy_nurse; // percentage of time that n nurses are busy, for n=0 to nb_nurse
 
 	/**
@@ -83,26 +78,38 @@ public class Examination extends ASimUnit {
 		  nb_dispo=nb_nurse;
 		  queue=0;
 		  nb_users_day=0;
-		  trace_nurse_usage = new ArrayList<TimeVal>();
+		  nurse_usage = new TimeWeighted(nb_nurse);
+		  nurse_usage.reset(beginTime,0);
 		  percent_busy_nurse=new double[nb_nurse+1];
-		  addTrace();
 		  return true;
 	}
 
 	private void addTrace() {
-		trace_nurse_usage.add(new TimeVal(this.getTime(), this.nb_dispo));
+		nurse_usage.update(this.getTime(), nb_nurse-this.nb_dispo);
 	}
 
 	public void computePercentBusy() {
-		TimeVal prev;
-		TimeVal current=trace_nurse_usage.get(0);
-		for(int i=1; i<trace_nurse_usage.size();i++) {
-			prev=current;
-			current=trace_nurse_usage.get(i);
-			percent_busy_nurse[nb_nurse-prev.value]+=(current.time-prev.time)/simulator.getLastEventTime();
+		for(int i=0;i<=nb_nurse;i++) {
+			percent_busy_nurse[i]=nurse_usage.getFraction(i,simulator.getLastEventTime());
 		}
 	}
 
+	@Override
+	public void saveState(StateOutput out) throws IOException {
+		out.writeInt(nb_dispo);
+		out.writeInt(queue);
+		out.writeInt(nb_users_day);
+		nurse_usage.save(out);
+	}
+
+	@Override
+	public void loadState(StateInput in) throws IOException {
+		nb_dispo=in.readInt();
+		queue=in.readInt();
+		nb_users_day=in.readInt();
+		nurse_usage.load(in);
+	}
+
 	/**
 	 * @return the nb_users_day
 	 */
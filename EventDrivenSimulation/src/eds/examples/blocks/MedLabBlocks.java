@@ -0,0 +1,77 @@
+/**
+ * 
+ */
+package eds.examples.blocks;
+
+import eds.blocks.EntityPool;
+import eds.blocks.Queue;
+import eds.blocks.Server;
+import eds.core.ADistribution;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+import eds.core.SourceUnit;
+
+/**
+* The medical analysis laboratory of MedLab, built from reusable blocks:
+* a source of users (uniform inter-arrival time between 2 and 5 minutes 
+* during 8 hours), the admission (one secretary, normal service time of 
+* mean 4 minutes and standard deviation 1 minute), then after 1 minute 
+* the examination (nb_nurse nurses, normal examination time of mean 7 
+* minutes and standard deviation 1 minute). Users are individual entities, 
+* so waiting and system times are measured.
+* All times are expressed in seconds.
+ * 
+ * @author Pierre E. Chauvet
+ * @see    Server, SourceUnit
+ *
+ */
+public final class MedLabBlocks {
+
+	// System parameters
+	static int nb_nurse=2; // number of nurses in the laboratory
+	static float duration_opening=8*60*60; // opening hours (1 working day)
+	
+	/**
+	 * Main program
+	 */
+	public static void main(String[] args) {
+		final EntityPool users=new EntityPool();
+		final Server exam=new Server(nb_nurse,ADistribution.normal(7*60,60),Queue.FIFO,users);
+		final Server admin=new Server(1,ADistribution.normal(4*60,60),Queue.FIFO,users);
+		admin.setNext(exam,60);
+		final SourceUnit arrivals=new SourceUnit(ADistribution.uniform(2*60,5*60),duration_opening,admin,Server.ARRIVAL,1);
+		final EDSimulator simulator=new EDSimulator(0,duration_opening);
+		simulator.addSimUnit(exam);
+		simulator.addSimUnit(admin);
+		simulator.addSimUnit(arrivals);
+		simulator.setNbRuns(5); // five runs
+		simulator.addSimulatorListener(new EDSimulatorListener() {
+			@Override
+			public void simulationStepped(EDSimulatorEvt e) {
+			}
+			@Override
+			public void simulationTerminated(EDSimulatorEvt e) {
+				System.out.println(e.getMessage());
+				System.out.println("Simulation duration = "+simulator.getDuration()+"s");
+			}
+			@Override
+			public void simulationRunEnded(EDSimulatorEvt e) {
+				double end=simulator.getLastEventTime();
+				System.out.println(e.getMessage());
+				System.out.println("Number of users per day = "+arrivals.getNbArrivals()+" | "+exam.getNbServed());
+				System.out.println("Mean waiting time (mn) at admission = "+admin.getWaitingTimes().getMean()/60);
+				System.out.println("Mean waiting time (mn) at examination = "+exam.getWaitingTimes().getMean()/60);
+				System.out.println("Mean time (mn) in the laboratory = "+exam.getSystemTimes().getMean()/60
+						+" (max="+exam.getSystemTimes().getMax()/60+")");
+				double[] percent_busy=exam.getResource().getPercentBusy(end);
+				for(int i=0;i<=nb_nurse;i++) {
+					System.out.println("Duration (in %) with "+i+" nurse(s) busy = "+percent_busy[i]);
+				}	
+				System.out.println();
+			}	
+		});
+		simulator.start();
+	}
+
+}
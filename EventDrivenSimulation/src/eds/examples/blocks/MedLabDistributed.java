@@ -0,0 +1,93 @@
+/**
+ *
+ */
+package eds.examples.blocks;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import eds.experiment.ADesign;
+import eds.experiment.AScenario;
+import eds.experiment.ExperimentRunner;
+import eds.experiment.ReplicationCoordinator;
+import eds.experiment.ReplicationWorker;
+import eds.experiment.ScenarioFactory;
+
+/**
+* The sweep of MedLabSweep run on worker processes: nb_workers JVMs are 
+* started on this machine and connect to the coordinator. With the 
+* argument "kill", the first worker is killed during the experiment: its 
+* replications are run by the others. The results are then compared 
+* with those of the same experiment in this JVM (ExperimentRunner).
+* All times are expressed in seconds.
+ *
+ * @author Pierre E. Chauvet
+ * @see    MedLabSweep, ReplicationCoordinator
+ *
+ */
+public final class MedLabDistributed {
+
+	// System parameters
+	static int nb_replications=200; // number of replications per scenario
+	static int nb_workers=3; // number of worker processes
+
+	// Factory of the scenarios, built by the workers from its name
+	public static final class LabFactory implements ScenarioFactory {
+		@Override
+		public AScenario create(double[] point) {
+			return new MedLabSweep.Lab((int)point[0],point[1]);
+		}
+	}
+
+	/**
+	 * Main program
+	 * @throws IOException
+	 * @throws InterruptedException 
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		ADesign design=ADesign.grid(new String[] {"nb_nurse","exam_mean"},
+				new double[][] {{1,2,3,4},{5*60,6*60,7*60}});
+		final ReplicationCoordinator coordinator=new ReplicationCoordinator(design,LabFactory.class,"system_time","exam_waiting_time");
+		coordinator.setReplications(nb_replications);
+		coordinator.setSeed(1);
+		ServerSocket server=new ServerSocket(0);
+		final Process[] workers=ReplicationWorker.launch(nb_workers,"localhost",server.getLocalPort(),1);
+		if((args.length>0)&&args[0].equals("kill")) {
+			Thread killer=new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while(coordinator.getCompleted()<design.size()*nb_replications/4) {Thread.sleep(10);}
+						workers[0].destroyForcibly();
+					}
+					catch(InterruptedException e) {
+						// End of the experiment
+					}
+				}
+			});
+			killer.setDaemon(true);
+			killer.start();
+		}
+		coordinator.run(server);
+		for(Process worker:workers) {worker.waitFor();}
+		System.out.println(design.size()+" scenarios x "+nb_replications+" replications on "+coordinator.getWorkers()
+				+" workers: "+coordinator.getDuration()+"s ("+coordinator.getRequeued()+" replications run again)");
+		// Same experiment in this JVM
+		ExperimentRunner runner=new ExperimentRunner(design,new LabFactory(),"system_time","exam_waiting_time");
+		runner.setReplications(nb_replications);
+		runner.setSeed(1);
+		runner.run();
+		boolean identical=true;
+		for(int s=0;s<design.size();s++) {
+			double[] point=design.getPoint(s);
+			System.out.println((int)point[0]+" nurse(s), examination "+point[1]/60+" mn: mean time (mn) in the laboratory = "
+					+coordinator.getMean(s,"system_time")/60+" +/- "+coordinator.getHalfWidth(s,"system_time",0.95)/60);
+			for(String output:new String[] {"system_time","exam_waiting_time"}) {
+				identical&=(Double.doubleToLongBits(coordinator.getMean(s,output))==Double.doubleToLongBits(runner.getMean(s,output)))
+						&&(Double.doubleToLongBits(coordinator.getHalfWidth(s,output,0.95))==Double.doubleToLongBits(runner.getHalfWidth(s,output,0.95)));
+			}
+		}
+		System.out.println("Identical to the experiment in one JVM ("+runner.getDuration()+"s): "+identical);
+	}
+
+}
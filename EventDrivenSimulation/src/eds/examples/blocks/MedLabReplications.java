@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package eds.examples.blocks;
+
+import eds.blocks.EntityPool;
+import eds.blocks.Queue;
+import eds.blocks.Server;
+import eds.core.ADistribution;
+import eds.core.EDSimulator;
+import eds.core.SourceUnit;
+import eds.experiment.ReplicationController;
+import eds.experiment.ReplicationObserver;
+
+/**
+* The laboratory of MedLabBlocks, replicated until the 95% confidence
+* intervals of the mean time in the laboratory and of the mean waiting
+* time at the examination are within 2% of their means. Replications are
+* shared by nb_workers simulators running in parallel, which are stopped
+* as soon as the precision is reached.
+* All times are expressed in seconds.
+ *
+ * @author Pierre E. Chauvet
+ * @see    MedLabBlocks, ReplicationController
+ *
+ */
+public final class MedLabReplications {
+
+	// System parameters
+	static int nb_nurse=2; // number of nurses in the laboratory
+	static float duration_opening=8*60*60; // opening hours (1 working day)
+	static int nb_workers=4; // number of parallel simulators
+
+	/**
+	 * Main program
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		final ReplicationController controller=new ReplicationController(0.95);
+		controller.addOutput("system_time",0,0.02);
+		controller.addOutput("exam_waiting_time",0,0.02);
+		controller.setMinReplications(10);
+		controller.setMaxReplications(10000);
+		for(int w=0;w<nb_workers;w++) {
+			final EntityPool users=new EntityPool();
+			final Server exam=new Server(nb_nurse,ADistribution.normal(7*60,60),Queue.FIFO,users);
+			final Server admin=new Server(1,ADistribution.normal(4*60,60),Queue.FIFO,users);
+			admin.setNext(exam,60);
+			final SourceUnit arrivals=new SourceUnit(ADistribution.uniform(2*60,5*60),duration_opening,admin,Server.ARRIVAL,1);
+			final EDSimulator simulator=new EDSimulator(0,duration_opening);
+			simulator.addSimUnit(exam);
+			simulator.addSimUnit(admin);
+			simulator.addSimUnit(arrivals);
+			controller.attach(simulator,new ReplicationObserver() {
+				@Override
+				public void observe(double[] values) {
+					values[0]=exam.getSystemTimes().getMean();
+					values[1]=exam.getWaitingTimes().getMean();
+				}
+			});
+		}
+		long begin=System.nanoTime();
+		controller.run();
+		System.out.println("Replications = "+controller.getReplications()
+				+(controller.isPrecisionReached() ? " (precision reached)" : " (maximum reached)"));
+		for(String name:controller.getOutputs()) {
+			System.out.println("Mean "+name+" (mn) = "+controller.getMean(name)/60+" +/- "+controller.getHalfWidth(name)/60);
+		}
+		System.out.println("Simulation duration = "+(System.nanoTime()-begin)/1e9+"s");
+	}
+
+}
@@ -0,0 +1,73 @@
+/**
+ *
+ */
+package eds.examples.blocks;
+
+import eds.blocks.EntityPool;
+import eds.blocks.Queue;
+import eds.blocks.Server;
+import eds.core.ADistribution;
+import eds.core.EDSimulator;
+import eds.core.SourceUnit;
+import eds.experiment.ReplicationObserver;
+import eds.experiment.SteadyStateController;
+
+/**
+* The laboratory of MedLabBlocks open day and night (a non-terminating 
+* system, with inter-arrival times between 3 and 6 minutes so that it is
+* stable), starting empty. The mean time in the laboratory and the mean 
+* utilisation of the nurses are observed every hour; the warm-up period 
+* is truncated automatically, then the run goes on until the batch-means
+* confidence intervals are within 1% of the means (at most one year).
+* All times are expressed in seconds.
+ *
+ * @author Pierre E. Chauvet
+ * @see    MedLabBlocks, SteadyStateController
+ *
+ */
+public final class MedLabSteadyState {
+
+	// System parameters
+	static int nb_nurse=2; // number of nurses in the laboratory
+	static float max_duration=365*24*60*60; // maximum simulated time (1 year)
+	static double interval=60*60; // time between two observations
+
+	/**
+	 * Main program
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		final EntityPool users=new EntityPool();
+		final Server exam=new Server(nb_nurse,ADistribution.normal(7*60,60),Queue.FIFO,users);
+		final Server admin=new Server(1,ADistribution.normal(4*60,60),Queue.FIFO,users);
+		admin.setNext(exam,60);
+		final SourceUnit arrivals=new SourceUnit(ADistribution.uniform(3*60,6*60),max_duration,admin,Server.ARRIVAL,1);
+		final EDSimulator simulator=new EDSimulator(0,max_duration);
+		simulator.addSimUnit(exam);
+		simulator.addSimUnit(admin);
+		simulator.addSimUnit(arrivals);
+		SteadyStateController controller=new SteadyStateController(0.95);
+		controller.addOutput("system_time",0,0.01);
+		controller.addOutput("nurse_utilisation",0,0.01);
+		controller.attach(simulator,interval,new ReplicationObserver() {
+			@Override
+			public void observe(double[] values) {
+				values[0]=exam.getSystemTimes().getMean();
+				values[1]=exam.getResource().getUtilisation(exam.getTime());
+			}
+		});
+		long begin=System.nanoTime();
+		controller.run();
+		System.out.println("Warm-up period (h) = "+controller.getWarmupTime()/3600
+				+" ("+controller.getTruncation()+" observations dropped)");
+		System.out.println("Simulated time (days) = "+controller.getNbObservations()*interval/86400
+				+(controller.isPrecisionReached() ? " (precision reached)" : " (maximum reached)"));
+		System.out.println("Mean time (mn) in the laboratory = "+controller.getMean("system_time")/60
+				+" +/- "+controller.getHalfWidth("system_time")/60
+				+" (lag-1 correlation of the batches = "+controller.getBatchMeans("system_time").getLag1Correlation()+")");
+		System.out.println("Mean utilisation of the nurses = "+controller.getMean("nurse_utilisation")
+				+" +/- "+controller.getHalfWidth("nurse_utilisation"));
+		System.out.println("Simulation duration = "+(System.nanoTime()-begin)/1e9+"s");
+	}
+
+}
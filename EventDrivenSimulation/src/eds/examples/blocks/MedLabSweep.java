@@ -0,0 +1,87 @@
+/**
+ *
+ */
+package eds.examples.blocks;
+
+import java.io.File;
+import java.io.IOException;
+
+import eds.blocks.EntityPool;
+import eds.blocks.Queue;
+import eds.blocks.Server;
+import eds.core.ADistribution;
+import eds.core.SourceUnit;
+import eds.experiment.ADesign;
+import eds.experiment.AScenario;
+import eds.experiment.ExperimentRunner;
+import eds.experiment.ScenarioFactory;
+
+/**
+* Sizing of the laboratory of MedLabBlocks: the number of nurses (1 to 4)
+* and the mean examination time (5 to 7 minutes) are swept on a grid, 
+* each scenario being replicated nb_replications times on all the 
+* processors. The rows of the replications are written to the result 
+* file given as argument, if any.
+* All times are expressed in seconds.
+ *
+ * @author Pierre E. Chauvet
+ * @see    MedLabBlocks, ExperimentRunner
+ *
+ */
+public final class MedLabSweep {
+
+	// System parameters
+	static float duration_opening=8*60*60; // opening hours (1 working day)
+	static int nb_replications=200; // number of replications per scenario
+
+	// The laboratory with nb_nurse nurses and a mean examination time exam_mean
+	static final class Lab extends AScenario {
+		final EntityPool users=new EntityPool();
+		final Server exam;
+		final Server admin=new Server(1,ADistribution.normal(4*60,60),Queue.FIFO,users);
+		final SourceUnit arrivals=new SourceUnit(ADistribution.uniform(2*60,5*60),duration_opening,admin,Server.ARRIVAL,1);
+
+		Lab(int nb_nurse,double exam_mean) {
+			super(0,duration_opening);
+			exam=new Server(nb_nurse,ADistribution.normal(exam_mean,60),Queue.FIFO,users);
+			admin.setNext(exam,60);
+			simulator.addSimUnit(exam);
+			simulator.addSimUnit(admin);
+			simulator.addSimUnit(arrivals);
+		}
+
+		@Override
+		public void observe(double[] values) {
+			values[0]=exam.getSystemTimes().getMean();
+			values[1]=exam.getWaitingTimes().getMean();
+		}
+	}
+
+	/**
+	 * Main program
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		ADesign design=ADesign.grid(new String[] {"nb_nurse","exam_mean"},
+				new double[][] {{1,2,3,4},{5*60,6*60,7*60}});
+		ExperimentRunner runner=new ExperimentRunner(design,new ScenarioFactory() {
+			@Override
+			public AScenario create(double[] point) {
+				return new Lab((int)point[0],point[1]);
+			}
+		},"system_time","exam_waiting_time");
+		runner.setReplications(nb_replications);
+		runner.setSeed(1);
+		if(args.length>0) {runner.run(new File(args[0]));}
+		else {runner.run();}
+		System.out.println(design.size()+" scenarios x "+nb_replications+" replications on "
+				+runner.getParallelism()+" threads: "+runner.getDuration()+"s");
+		for(int s=0;s<design.size();s++) {
+			double[] point=design.getPoint(s);
+			System.out.println((int)point[0]+" nurse(s), examination "+point[1]/60+" mn: mean time (mn) in the laboratory = "
+					+runner.getMean(s,"system_time")/60+" +/- "+runner.getHalfWidth(s,"system_time",0.95)/60
+					+", waiting time (mn) = "+runner.getMean(s,"exam_waiting_time")/60);
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+/**
+ *
+ */
+package eds.examples.blocks;
+
+import eds.blocks.EntityPool;
+import eds.blocks.Queue;
+import eds.blocks.Server;
+import eds.core.ADistribution;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+import eds.core.SourceUnit;
+import eds.experiment.ReplicationController;
+import eds.experiment.ReplicationObserver;
+import eds.experiment.ScenarioComparison;
+
+/**
+* Variance reduction on the laboratory of MedLabBlocks. The mean time in 
+* the laboratory is estimated with the same number of runs by independent
+* replications, antithetic pairs of replications and the mean service time
+* at the admission (known mean: 4 minutes) as control variate. Then the 
+* reduction of the examination time from 7 to 6 minutes is evaluated with 
+* independent random numbers and with common random numbers.
+* All times are expressed in seconds.
+ *
+ * @author Pierre E. Chauvet
+ * @see    MedLabReplications, ReplicationController, ScenarioComparison
+ *
+ */
+public final class MedLabVarianceReduction {
+
+	// System parameters
+	static int nb_nurse=2; // number of nurses in the laboratory
+	static float duration_opening=8*60*60; // opening hours (1 working day)
+	static int nb_runs=400; // number of runs of each experiment
+	static long seed=20240601; // seed of the experiments
+
+	// The model of the laboratory
+	static final class Lab {
+		final EntityPool users=new EntityPool();
+		final Server exam;
+		final Server admin=new Server(1,ADistribution.normal(4*60,60),Queue.FIFO,users);
+		final SourceUnit arrivals;
+		final EDSimulator simulator=new EDSimulator(0,duration_opening);
+
+		Lab(double examMean) {
+			exam=new Server(nb_nurse,ADistribution.normal(examMean,60),Queue.FIFO,users);
+			arrivals=new SourceUnit(ADistribution.uniform(2*60,5*60),duration_opening,admin,Server.ARRIVAL,1);
+			admin.setNext(exam,60);
+			simulator.addSimUnit(exam);
+			simulator.addSimUnit(admin);
+			simulator.addSimUnit(arrivals);
+		}
+	}
+
+	// Estimates the mean time in the laboratory with nb_runs runs
+	static ReplicationController estimate(boolean antithetic,boolean control) throws InterruptedException {
+		ReplicationController controller=new ReplicationController(0.95);
+		controller.addOutput("system_time",0,0);
+		controller.addOutput("admin_service_time",0,0);
+		if(control) {controller.setControl("system_time","admin_service_time",4*60);}
+		controller.setSeed(seed);
+		controller.setAntitheticPairs(antithetic);
+		int replications=antithetic ? nb_runs/2 : nb_runs;
+		controller.setMinReplications(replications);
+		controller.setMaxReplications(replications);
+		final Lab lab=new Lab(7*60);
+		controller.attach(lab.simulator,new ReplicationObserver() {
+			@Override
+			public void observe(double[] values) {
+				values[0]=lab.exam.getSystemTimes().getMean();
+				values[1]=lab.admin.getServiceTimes().getMean();
+			}
+		});
+		controller.run();
+		return controller;
+	}
+
+	// Compares the examination times of 7 and 6 minutes: scenario s uses
+	// the seed seeds[s] (same seeds: common random numbers)
+	static ScenarioComparison compare(long[] seeds) throws InterruptedException {
+		final double[] exam_means={7*60,6*60};
+		final ScenarioComparison comparison=new ScenarioComparison(exam_means.length);
+		Lab[] labs=new Lab[exam_means.length];
+		for(int s=0;s<exam_means.length;s++) {
+			final int scenario=s;
+			final Lab lab=new Lab(exam_means[s]);
+			lab.simulator.setReplicationSeed(seeds[s],false);
+			lab.simulator.setNbRuns(nb_runs);
+			lab.simulator.addSimulatorListener(new EDSimulatorListener() {
+				@Override
+				public void simulationStepped(EDSimulatorEvt e) {
+				}
+				@Override
+				public void simulationTerminated(EDSimulatorEvt e) {
+				}
+				@Override
+				public void simulationRunEnded(EDSimulatorEvt e) {
+					comparison.add(scenario,e.getPercent()-1,lab.exam.getSystemTimes().getMean());
+				}
+			});
+			labs[s]=lab;
+		}
+		for(Lab lab:labs) {lab.simulator.start();}
+		for(Lab lab:labs) {lab.simulator.join();}
+		return comparison;
+	}
+
+	/**
+	 * Main program
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("Mean time (mn) in the laboratory, "+nb_runs+" runs:");
+		ReplicationController plain=estimate(false,false);
+		System.out.println("  independent replications: "+plain.getMean("system_time")/60
+				+" +/- "+plain.getHalfWidth("system_time")/60);
+		ReplicationController antithetic=estimate(true,false);
+		System.out.println("  antithetic pairs:         "+antithetic.getMean("system_time")/60
+				+" +/- "+antithetic.getHalfWidth("system_time")/60);
+		ReplicationController control=estimate(false,true);
+		System.out.println("  control variate:          "+control.getMean("system_time")/60
+				+" +/- "+control.getHalfWidth("system_time")/60
+				+" (correlation="+control.getEstimator(0).getCorrelation()+")");
+		System.out.println("Reduction (mn) of the time in the laboratory with 6 mn examinations:");
+		ScenarioComparison independent=compare(new long[] {seed,seed+1000000});
+		System.out.println("  independent random numbers: "+(-independent.getDifference(1)/60)
+				+" +/- "+independent.getDifferenceHalfWidth(1,0.95)/60);
+		ScenarioComparison common=compare(new long[] {seed,seed});
+		System.out.println("  common random numbers:      "+(-common.getDifference(1)/60)
+				+" +/- "+common.getDifferenceHalfWidth(1,0.95)/60);
+	}
+
+}
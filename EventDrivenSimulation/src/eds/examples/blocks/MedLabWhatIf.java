@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package eds.examples.blocks;
+
+import java.io.IOException;
+
+import eds.blocks.EntityPool;
+import eds.blocks.Queue;
+import eds.blocks.Server;
+import eds.core.ADistribution;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+import eds.core.SimulatorFactory;
+import eds.core.SourceUnit;
+
+/**
+* What-if scenarios on the laboratory of MedLabBlocks: from 10:00 (2 hours
+* after the opening), the examination time of the nurses is reduced from
+* 7 minutes to 6 or 5 minutes. The morning is simulated once, then the
+* simulation is forked into nb_copies replications per scenario, which
+* continue from the same state with independent random streams and run
+* in parallel.
+* All times are expressed in seconds.
+ *
+ * @author Pierre E. Chauvet
+ * @see    MedLabBlocks, EDSimulator
+ *
+ */
+public final class MedLabWhatIf {
+
+	// System parameters
+	static int nb_nurse=2; // number of nurses in the laboratory
+	static float duration_opening=8*60*60; // opening hours (1 working day)
+	static double fork_time=2*60*60; // time of the policy change
+	static double[] exam_means={7*60,6*60,5*60}; // mean examination time of each scenario
+	static int nb_copies=8; // number of replications per scenario
+
+	// The model of the laboratory
+	static final class Lab {
+		final EntityPool users=new EntityPool();
+		final Server exam=new Server(nb_nurse,ADistribution.normal(7*60,60),Queue.FIFO,users);
+		final Server admin=new Server(1,ADistribution.normal(4*60,60),Queue.FIFO,users);
+		final SourceUnit arrivals=new SourceUnit(ADistribution.uniform(2*60,5*60),duration_opening,admin,Server.ARRIVAL,1);
+		final EDSimulator simulator=new EDSimulator(0,duration_opening);
+		double systemTime; // mean time in the laboratory of the last run
+
+		Lab() {
+			admin.setNext(exam,60);
+			simulator.addSimUnit(exam);
+			simulator.addSimUnit(admin);
+			simulator.addSimUnit(arrivals);
+			simulator.setNbRuns(1);
+			simulator.addSimulatorListener(new EDSimulatorListener() {
+				@Override
+				public void simulationStepped(EDSimulatorEvt e) {
+				}
+				@Override
+				public void simulationTerminated(EDSimulatorEvt e) {
+				}
+				@Override
+				public void simulationRunEnded(EDSimulatorEvt e) {
+					systemTime=exam.getSystemTimes().getMean();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Main program
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		// Simulation of the morning, until the policy change
+		Lab morning=new Lab();
+		morning.simulator.setPauseTime(fork_time);
+		morning.simulator.start();
+		morning.simulator.join();
+		System.out.println("Morning simulated until "+morning.arrivals.getTime()/3600+"h: "
+				+morning.arrivals.getNbArrivals()+" users");
+		// One fork per scenario
+		for(int s=0;s<exam_means.length;s++) {
+			final Lab[] labs=new Lab[nb_copies];
+			EDSimulator[] copies=morning.simulator.fork(nb_copies,new SimulatorFactory() {
+				@Override
+				public EDSimulator create(int copy) {
+					labs[copy]=new Lab();
+					return labs[copy].simulator;
+				}
+			},1000*s);
+			for(int i=0;i<nb_copies;i++) {
+				labs[i].exam.setService(ADistribution.normal(exam_means[s],60));
+				copies[i].start();
+			}
+			double mean=0;
+			for(int i=0;i<nb_copies;i++) {
+				copies[i].join();
+				mean+=labs[i].systemTime/nb_copies;
+			}
+			System.out.println("Examination time "+exam_means[s]/60+" mn: mean time (mn) in the laboratory = "+mean/60);
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+/**
+ *
+ */
+package eds.examples.continuous;
+
+import java.io.IOException;
+import java.util.Random;
+
+import eds.core.ASimUnit;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+import eds.core.StateInput;
+import eds.core.StateOutput;
+import eds.continuous.AContinuousUnit;
+import eds.continuous.AIntegrator;
+import eds.continuous.DormandPrince;
+import eds.continuous.Rosenbrock;
+
+/**
+* A hybrid model: a water tank (continuous level h, with a leak 
+* proportional to sqrt(h)) filled by a pump which is switched off when
+* the level reaches 2 m and on when it falls to 0.5 m, and emptied by a
+* demand which changes at random times (discrete unit). The thresholds 
+* are state events located by the integrator; between the events of the
+* demand and of the pump, the level is not computed at all.
+* Usage: TankLevel [rosenbrock]
+* All times are expressed in seconds.
+ *
+ * @author Pierre E. Chauvet
+ * @see    AContinuousUnit
+ *
+ */
+public final class TankLevel {
+
+	// System parameters
+	static double area=10; // section of the tank (m2)
+	static double pump_flow=0.05; // flow of the pump (m3/s)
+	static double leak=0.005; // leak coefficient (m2.5/s)
+	static double high=2,low=0.5; // thresholds of the pump (m)
+	static double demand_max=0.03; // maximum demand (m3/s)
+	static double demand_interval=600; // mean time between demand changes (s)
+	static float duration=7*24*60*60; // simulated time (1 week)
+
+	// The tank
+	static final class Tank extends AContinuousUnit {
+		boolean pump; // true if the pump is running
+		double demand; // current demand (m3/s)
+		int nbStarts; // number of starts of the pump
+
+		Tank(AIntegrator integrator) {
+			super(1,2,integrator);
+		}
+
+		@Override
+		protected void initState(double beginTime,double[] y) {
+			y[0]=1;
+			pump=true;
+			demand=0;
+			nbStarts=0;
+		}
+
+		@Override
+		public void derivatives(double t,double[] y,double[] dydt) {
+			double h=Math.max(y[0],0);
+			dydt[0]=((pump ? pump_flow : 0)-demand-leak*Math.sqrt(h))/area;
+		}
+
+		@Override
+		protected double crossing(int k,double t,double[] y) {
+			return (k==0) ? y[0]-high : y[0]-low;
+		}
+
+		@Override
+		protected void crossed(int k) {
+			if((k==0)&&pump) {pump=false;}
+			else if((k==1)&&!pump) {pump=true;nbStarts++;}
+		}
+
+		// The demand changes at the current time
+		void setDemand(double demand) {
+			synchronize();
+			this.demand=demand;
+			changed();
+		}
+
+		@Override
+		public void saveState(StateOutput out) throws IOException {
+			out.writeBoolean(pump);
+			out.writeDouble(demand);
+			out.writeInt(nbStarts);
+			super.saveState(out);
+		}
+
+		@Override
+		public void loadState(StateInput in) throws IOException {
+			pump=in.readBoolean();
+			demand=in.readDouble();
+			nbStarts=in.readInt();
+			super.loadState(in);
+		}
+	}
+
+	// Random changes of the demand
+	static final class Demand extends ASimUnit {
+		private final Random random=newRandomStream();
+		private final Tank tank;
+		int nbChanges; // number of changes of the demand
+
+		Demand(Tank tank) {
+			this.tank=tank;
+		}
+
+		@Override
+		public boolean init(double beginTime,double endTime) {
+			nbChanges=0;
+			addEvent(-demand_interval*Math.log(1-random.nextDouble()),0);
+			return true;
+		}
+
+		@Override
+		public boolean play(int code) {
+			nbChanges++;
+			tank.setDemand(demand_max*random.nextDouble());
+			addEvent(-demand_interval*Math.log(1-random.nextDouble()),0);
+			return true;
+		}
+
+		@Override
+		public boolean play(String action) {
+			return false;
+		}
+
+		@Override
+		public void saveState(StateOutput out) throws IOException {
+			out.writeInt(nbChanges);
+		}
+
+		@Override
+		public void loadState(StateInput in) throws IOException {
+			nbChanges=in.readInt();
+		}
+	}
+
+	/**
+	 * Builds the simulator of one week of the tank (units: the tank, then
+	 * the demand)
+	 * @param integrator the integrator of the tank
+	 * @return the simulator
+	 */
+	public static EDSimulator newSimulator(AIntegrator integrator) {
+		integrator.setTolerances(1e-8,1e-6);
+		Tank tank=new Tank(integrator);
+		EDSimulator simulator=new EDSimulator(0,duration);
+		simulator.setStopForEndTime(true);
+		simulator.addSimUnit(tank);
+		simulator.addSimUnit(new Demand(tank));
+		simulator.setNbRuns(1);
+		return simulator;
+	}
+
+	/**
+	 * @param simulator a simulator built by newSimulator()
+	 * @return true if the level is between 0 and the high threshold (with 
+	 * the tolerance of the root finding)
+	 */
+	public static boolean isLevelValid(EDSimulator simulator) {
+		double level=((Tank)simulator.getSimUnit(0)).getValue(0);
+		return (level>=0)&&(level<=high+1e-6);
+	}
+
+	/**
+	 * @param simulator a simulator built by newSimulator()
+	 * @return the level, the state of the pump and the counters of the tank
+	 */
+	public static String getSummary(EDSimulator simulator) {
+		Tank tank=(Tank)simulator.getSimUnit(0);
+		Demand demand=(Demand)simulator.getSimUnit(1);
+		return "level="+tank.getValue(0)+" pump="+tank.pump+" starts="+tank.nbStarts+" changes="+demand.nbChanges;
+	}
+
+	/**
+	 * Main program
+	 */
+	public static void main(String[] args) {
+		boolean stiff=(args.length>0)&&args[0].equals("rosenbrock");
+		final EDSimulator simulator=newSimulator(stiff ? new Rosenbrock() : new DormandPrince());
+		final Tank tank=(Tank)simulator.getSimUnit(0);
+		final Demand demand=(Demand)simulator.getSimUnit(1);
+		simulator.addSimulatorListener(new EDSimulatorListener() {
+			@Override
+			public void simulationStepped(EDSimulatorEvt e) {
+				System.out.println("Day "+Math.round(e.getTime()/86400)+": level (m) = "+tank.getValue(0)
+						+", pump "+(tank.pump ? "on" : "off"));
+			}
+			@Override
+			public void simulationTerminated(EDSimulatorEvt e) {
+				System.out.println(e.getMessage());
+				System.out.println("Simulation duration = "+simulator.getDuration()+"s");
+			}
+			@Override
+			public void simulationRunEnded(EDSimulatorEvt e) {
+				AIntegrator integrator=tank.getIntegrator();
+				System.out.println(e.getMessage());
+				System.out.println("Demand changes = "+demand.nbChanges+", pump starts = "+tank.nbStarts);
+				System.out.println("Integration ("+integrator.getClass().getSimpleName()+"): "+integrator.getNbSteps()
+						+" steps, "+integrator.getNbRejected()+" rejected, "+integrator.getNbEvaluations()+" evaluations");
+			}
+		});
+		simulator.start();
+	}
+
+}
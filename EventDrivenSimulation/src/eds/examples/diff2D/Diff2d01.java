@@ -3,10 +3,14 @@
  */
 package eds.examples.diff2D;
 
+import java.io.IOException;
+
 import eds.core.ASimUnit;
 import eds.core.EDSimulator;
 import eds.core.EDSimulatorEvt;
 import eds.core.EDSimulatorListener;
+import eds.core.StateInput;
+import eds.core.StateOutput;
 import pde.PDE2dDiffA;
 
 /**
@@ -80,6 +84,21 @@ public class Diff2d01 extends ASimUnit {
 		return true;
 	}
 
+	// The grids are written in bulk (memory-mapped checkpoint)
+	@Override
+	public void saveState(StateOutput out) throws IOException {
+		out.writeGrid(VU);
+		out.writeGrid(Vsource);
+		out.writeGrid(pde.getLastSource());
+	}
+
+	@Override
+	public void loadState(StateInput in) throws IOException {
+		in.readGrid(VU);
+		in.readGrid(Vsource);
+		in.readGrid(pde.getLastSource());
+	}
+
 	/**
 	 * The main program
 	 * @param args
@@ -0,0 +1,175 @@
+/**
+ * 
+ */
+package eds.examples.diff2D;
+
+import java.util.Random;
+
+import eds.continuous.ALazyUnit;
+import eds.core.ASimUnit;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+import pde.PDE2dDiffA;
+
+/**
+ * Example of lazy simulation of a diffusion equation in 2D: matter is 
+ * emitted at the center of the map until emissionEnd, and the field is 
+ * read by a sensor at random times. Unlike Diff2d01, the field does not 
+ * play one event per time step: it is advanced only when the sensor 
+ * reads it or when the emission stops (state event), with implicit steps
+ * of at most maxStep.
+ *  
+ * @author Pierre E. Chauvet
+ * @version 1.0
+ * @see     Diff2d01 , ALazyUnit
+ *
+ */
+public class Diff2d02 extends ALazyUnit {
+
+	private static final int EMISSION_END=0; // code of the end of the emission
+
+	public float[][] VU=null;
+	private float[][] Vsource=null;
+	private PDE2dDiffA pde;
+	private double maxStep; // maximum time step of an advance
+	private double emissionEnd; // end time of the emission
+	private long nbSolves; // number of solves in the current run
+	
+	// Constructor
+	public Diff2d02(int nx, int ny, double maxStep, double emissionEnd) {
+		pde=new PDE2dDiffA(nx,ny);
+		VU=new float[nx+1][ny+1];
+		Vsource=new float[nx+1][ny+1];
+		this.maxStep=maxStep;
+		this.emissionEnd=emissionEnd;
+	}
+
+	@Override
+	public boolean init(double beginTime, double endTime) {
+		for(int i=0;i<=pde.getNx();i++) {
+			for(int j=0;j<=pde.getNy();j++) {
+				Vsource[i][j]=0f;
+				pde.Vd[i][j]=0;
+				VU[i][j]=0.1f;
+			}
+		}
+		Vsource[pde.getNx()/2][pde.getNy()/2]=500f;
+		nbSolves=0;
+		this.addEvent(emissionEnd-beginTime,EMISSION_END);
+		return super.init(beginTime,endTime);
+	}
+
+	// Implicit steps of equal length, at most maxStep
+	@Override
+	protected void advance(double from,double to) {
+		int n=(int)Math.ceil((to-from)/maxStep-1e-9);
+		float tau=(float)((to-from)/n);
+		if(tau!=pde.tau) {
+			pde.tau=tau;
+			pde.calculMat();
+		}
+		for(int k=0;k<n;k++) {
+			pde.solve(Vsource,VU);
+			nbSolves++;
+		}
+	}
+
+	// The emission stops (the field was advanced up to now)
+	@Override
+	protected boolean stateEvent(int code) {
+		Vsource[pde.getNx()/2][pde.getNy()/2]=0f;
+		return true;
+	}
+
+	// Value of the field at node (i,j) at the current time
+	public float getValue(int i,int j) {
+		synchronize();
+		return VU[i][j];
+	}
+
+	/**
+	 * @return the number of solves in the current run
+	 */
+	public long getNbSolves() {
+		return nbSolves;
+	}
+
+	// A sensor reading the field near the center at random times
+	static final class Sensor extends ASimUnit {
+		private final Random random=newRandomStream();
+		private final Diff2d02 diff;
+		private final double meanInterval; // mean time between readings
+		int nbReadings; // number of readings
+		float max; // maximum value read
+
+		Sensor(Diff2d02 diff,double meanInterval) {
+			this.diff=diff;
+			this.meanInterval=meanInterval;
+		}
+
+		@Override
+		public boolean init(double beginTime,double endTime) {
+			nbReadings=0;
+			max=0;
+			addEvent(-meanInterval*Math.log(1-random.nextDouble()),0);
+			return true;
+		}
+
+		@Override
+		public boolean play(int code) {
+			float v=diff.getValue(diff.pde.getNx()/2+1,diff.pde.getNy()/2);
+			nbReadings++;
+			max=Math.max(max,v);
+			addEvent(-meanInterval*Math.log(1-random.nextDouble()),0);
+			return true;
+		}
+
+		@Override
+		public boolean play(String action) {
+			return false;
+		}
+	}
+
+	/**
+	 * The main program
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		/* Model definition */
+		final float tau=0.01f; // time step of the eager simulation (Diff2d01)
+		final float duration=100*tau; // simulated time
+		int nx=10; // number of steps in space in the x direction
+		int ny=10; // number of steps in space in the y direction
+		final Diff2d02 diff=new Diff2d02(nx,ny,5*tau,40*tau);
+		final Sensor sensor=new Sensor(diff,20*tau);
+		/* Carrying out the simulation */
+		final EDSimulator simulator=new EDSimulator(0,duration);
+		simulator.addSimUnit(diff);
+		simulator.addSimUnit(sensor);
+		simulator.setNbRuns(1);
+		simulator.setStopForEndTime(true);
+		simulator.addSimulatorListener(new EDSimulatorListener() {
+			@Override
+			public void simulationStepped(EDSimulatorEvt e) {
+			}
+
+			@Override
+			public void simulationTerminated(EDSimulatorEvt e) {
+				System.out.println(e.getMessage());
+			}
+
+			@Override
+			public void simulationRunEnded(EDSimulatorEvt e) {
+				diff.synchronize();
+				System.out.println("Field at "+diff.getTime()+":");
+				Diff2d01.print(diff.VU);
+				System.out.println("Sensor readings = "+sensor.nbReadings+", maximum = "+sensor.max);
+				System.out.println("Advances of the field = "+diff.getNbAdvances()+", solves = "+diff.getNbSolves()
+						+" (Diff2d01 plays "+Math.round(duration/tau)+" events and solves)");
+			}			
+		});
+		simulator.start();
+	}
+
+}
@@ -0,0 +1,191 @@
+/**
+ *
+ */
+package eds.examples.network;
+
+import java.io.IOException;
+
+import eds.core.ASimUnit;
+import eds.core.SimRandom;
+import eds.parallel.Partition;
+import eds.parallel.PartitionCoordinator;
+import eds.parallel.PartitionedModel;
+
+/**
+* A network of nb_depots depots exchanging shipments: each depot handles
+* its shipments one at a time (FIFO), then ships each of them to another
+* depot, one of its nb_neighbours next depots with probability 
+* p_neighbour, any depot otherwise. A transport takes at least 
+* min_transport (the lookahead of the partitions). The depots are split 
+* in blocks of consecutive depots over nb_partitions worker processes; 
+* the results are compared with those of the whole network in this JVM.
+* All times are expressed in hours.
+ *
+ * @author Pierre E. Chauvet
+ * @see    PartitionCoordinator, Partition
+ *
+ */
+public final class SupplyNetwork implements PartitionedModel {
+
+	// System parameters
+	static int nb_depots=20000; // number of depots
+	static int nb_shipments=2; // initial number of shipments per depot
+	static int nb_neighbours=8; // number of next depots
+	static double p_neighbour=0.95; // probability to ship to a next depot
+	static double handling_mean=1.0; // mean handling time of a shipment (exponential)
+	static double min_transport=2.0; // minimum transport time
+	static double transport_mean=3.0; // mean transport time beyond the minimum (exponential)
+	static double end_time=400; // simulated time
+	static long seed=1; // seed of the depots (stream of depot d seeded from seed and d)
+	static int nb_partitions=3; // number of worker processes
+
+	// Action codes of the depots
+	static final int ARRIVAL=0;
+	static final int DONE=1;
+
+	// A depot: a single handler and a FIFO queue of the arrival times
+	static final class Depot extends ASimUnit {
+
+		private final int depot; // global id of the depot
+		private final Partition partition; // partition of the depot (to find the others)
+		private final SimRandom random=new SimRandom(); // random stream of the depot
+		private double[] arrivals=new double[8]; // ring buffer of the arrival times of the waiting shipments
+		private int head=0,size=0; // first waiting shipment and number of shipments waiting
+		private boolean busy=false; // a shipment is being handled
+		// Observation variables
+		private long handled=0; // number of shipments handled
+		private double waiting=0; // sum of the waiting times of the handled shipments
+
+		Depot(int depot,Partition partition) {
+			this.depot=depot;
+			this.partition=partition;
+			this.name="depot"+depot;
+		}
+
+		@Override
+		public boolean init(double beginTime,double endTime) {
+			random.setSeed(seed*0x9E3779B97F4A7C15L+depot);
+			head=0;
+			size=0;
+			busy=false;
+			handled=0;
+			waiting=0;
+			for(int i=0;i<nb_shipments;i++) {
+				addEvent(-handling_mean*Math.log(1-random.nextDouble()),ARRIVAL);
+			}
+			return true;
+		}
+
+		@Override
+		public boolean play(int code) {
+			if(code==ARRIVAL) {
+				if(size==arrivals.length) {grow();}
+				arrivals[(head+size)&(arrivals.length-1)]=getTime();
+				size++;
+			}
+			else {
+				// Shipment handled: sent to another depot
+				busy=false;
+				int to;
+				if(random.nextDouble()<p_neighbour) {to=(depot+1+random.nextInt(nb_neighbours))%nb_depots;}
+				else {to=random.nextInt(nb_depots);}
+				addEvent(min_transport-transport_mean*Math.log(1-random.nextDouble()),partition.getUnit(to),ARRIVAL);
+			}
+			if((!busy)&&(size>0)) {
+				waiting+=getTime()-arrivals[head];
+				head=(head+1)&(arrivals.length-1);
+				size--;
+				handled++;
+				busy=true;
+				addEvent(-handling_mean*Math.log(1-random.nextDouble()),DONE);
+			}
+			return true;
+		}
+
+		@Override
+		public boolean play(String action) {
+			return false;
+		}
+
+		private void grow() {
+			double[] a=new double[2*arrivals.length];
+			for(int i=0;i<size;i++) {a[i]=arrivals[(head+i)&(arrivals.length-1)];}
+			arrivals=a;
+			head=0;
+		}
+
+	}
+
+	@Override
+	public int getNbUnits() {
+		return nb_depots;
+	}
+
+	// Blocks of consecutive depots (most shipments stay in their block)
+	@Override
+	public int getPartition(int unit,int nbPartitions) {
+		return (int)((long)unit*nbPartitions/nb_depots);
+	}
+
+	@Override
+	public double getLookahead() {
+		return min_transport;
+	}
+
+	@Override
+	public double getBeginTime() {
+		return 0;
+	}
+
+	@Override
+	public double getEndTime() {
+		return end_time;
+	}
+
+	@Override
+	public ASimUnit newUnit(int unit,Partition partition) {
+		return new Depot(unit,partition);
+	}
+
+	// Shipments handled, sum of their waiting times
+	@Override
+	public int getNbOutputs() {
+		return 2;
+	}
+
+	@Override
+	public void observe(Partition partition,double[] values) {
+		for(int d=0;d<nb_depots;d++) {
+			if(partition.isLocal(d)) {
+				Depot depot=(Depot)partition.getUnit(d);
+				values[0]+=depot.handled;
+				values[1]+=depot.waiting;
+			}
+		}
+	}
+
+	/**
+	 * Main program
+	 * @param args [nb_partitions]
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length>0) {nb_partitions=Integer.parseInt(args[0]);}
+		// Whole network in this JVM
+		long begin=System.nanoTime();
+		Partition whole=new Partition(new SupplyNetwork());
+		double[] reference=whole.run();
+		double sequential=(System.nanoTime()-begin)/1e9;
+		System.out.println(nb_depots+" depots in this JVM: "+whole.getEventCount()+" events in "+sequential+"s");
+		System.out.println("  shipments handled: "+(long)reference[0]+", mean waiting time: "+reference[1]/reference[0]+"h");
+		// Partitions on worker processes
+		PartitionCoordinator coordinator=new PartitionCoordinator(SupplyNetwork.class,nb_partitions);
+		double[] values=coordinator.runLocal();
+		System.out.println(nb_depots+" depots on "+nb_partitions+" processes: "+coordinator.getEventCount()+" events in "+coordinator.getDuration()+"s ("
+				+coordinator.getWindows()+" windows, "+coordinator.getExchangedEvents()+" events exchanged)");
+		System.out.println("  shipments handled: "+(long)values[0]+", mean waiting time: "+values[1]/values[0]+"h");
+		// The waiting times of the partitions are summed in another order
+		System.out.println("Same results: "+((values[0]==reference[0])&&(Math.abs(values[1]-reference[1])<=1e-9*reference[1])));
+	}
+
+}
@@ -0,0 +1,111 @@
+/**
+ *
+ */
+package eds.examples.process;
+
+import java.util.Random;
+
+import eds.blocks.Tally;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+import eds.process.AProcess;
+import eds.process.AProcessUnit;
+import eds.process.Facility;
+
+/**
+* The medical analysis laboratory of MedLab written in the process-
+* interaction view: the life of each user (admission, walk to the 
+* examination, examination) is one process, instead of being split into
+* the actions of the Admission and Examination units.
+* All times are expressed in seconds.
+ *
+ * @author Pierre E. Chauvet
+ * @see    MedLab, AProcessUnit
+ *
+ */
+public final class MedLabProcess extends AProcessUnit {
+
+	// System parameters
+	static int nb_nurse=2; // number of nurses in the laboratory
+	static float duration_opening=8*60*60; // opening hours (1 working day)
+
+	private final Random random=newRandomStream();
+	private final Facility secretary=newFacility(1); // the secretary at the admission
+	private final Facility nurses=newFacility(nb_nurse); // the nurses
+	// Observation variables
+	private final Tally systemTimes=new Tally(); // times spent in the laboratory
+	private long nb_users_day; // number of users per day
+
+	// A user of the laboratory
+	private final class User extends AProcess {
+		@Override
+		protected void body() {
+			double arrival=getTime();
+			request(secretary);
+			hold(60*random.nextGaussian()+4*60);
+			release(secretary);
+			hold(60); // walk to the examination
+			request(nurses);
+			hold(60*random.nextGaussian()+7*60);
+			release(nurses);
+			systemTimes.add(getTime()-arrival);
+		}
+	}
+
+	// Arrivals of the users during the opening hours
+	private final class Arrivals extends AProcess {
+		@Override
+		protected void body() {
+			double dt=2*60+3*60*random.nextDouble();
+			while(getTime()+dt<=duration_opening) {
+				hold(dt);
+				nb_users_day++;
+				activate(new User(),0);
+				dt=2*60+3*60*random.nextDouble();
+			}
+		}
+	}
+
+	@Override
+	protected void start(double beginTime,double endTime) {
+		systemTimes.reset();
+		nb_users_day=0;
+		activate(new Arrivals(),0);
+	}
+
+	/**
+	 * Main program
+	 */
+	public static void main(String[] args) {
+		final MedLabProcess lab=new MedLabProcess();
+		final EDSimulator simulator=new EDSimulator(0,duration_opening);
+		simulator.addSimUnit(lab);
+		simulator.setNbRuns(5); // five runs
+		simulator.addSimulatorListener(new EDSimulatorListener() {
+			@Override
+			public void simulationStepped(EDSimulatorEvt e) {
+			}
+			@Override
+			public void simulationTerminated(EDSimulatorEvt e) {
+				System.out.println(e.getMessage());
+				System.out.println("Simulation duration = "+simulator.getDuration()+"s ("
+						+(AProcessUnit.isVirtual() ? "virtual" : "platform")+" threads)");
+				lab.terminate();
+			}
+			@Override
+			public void simulationRunEnded(EDSimulatorEvt e) {
+				double end=simulator.getLastEventTime();
+				System.out.println(e.getMessage());
+				System.out.println("Number of users per day = "+lab.nb_users_day);
+				System.out.println("Mean waiting time (mn) at admission = "+lab.secretary.getWaitingTimes().getMean()/60);
+				System.out.println("Mean waiting time (mn) at examination = "+lab.nurses.getWaitingTimes().getMean()/60);
+				System.out.println("Mean time (mn) in the laboratory = "+lab.systemTimes.getMean()/60);
+				System.out.println("Utilisation of the nurses = "+lab.nurses.getUtilisation(end));
+				System.out.println();
+			}
+		});
+		simulator.start();
+	}
+
+}
@@ -3,12 +3,15 @@
  */
 package eds.examples.simpleoffice;
 
+import java.io.IOException;
 import java.util.Random;
 
 import eds.core.ASimUnit;
 import eds.core.EDSimulator;
 import eds.core.EDSimulatorEvt;
 import eds.core.EDSimulatorListener;
+import eds.core.StateInput;
+import eds.core.StateOutput;
 
 /**
 * Consider a queue in front of an office, open for 8 hours a day.
@@ -23,7 +26,7 @@ import eds.core.EDSimulatorListener;
  */
 public final class SimpleOffice extends ASimUnit {
 
-	private transient Random random=new Random();
+	private transient Random random=newRandomStream();
 	private transient boolean closing;
 	// State variables
 	private boolean office; // office status (true=free, false=busy)
@@ -105,6 +108,34 @@ public final class SimpleOffice extends ASimUnit {
 		return true;
 	}
 
+	/* (non-Javadoc)
+	 * @see eds.core.ASimUnit#saveState(eds.core.StateOutput)
+	 */
+	@Override
+	public void saveState(StateOutput out) throws IOException {
+		out.writeBoolean(closing);
+		out.writeBoolean(office);
+		out.writeInt(queue);
+		out.writeInt(nb_users_day);
+		out.writeInt(nb_users_closing);
+		out.writeFloat(nb_users_day_mean);
+		out.writeFloat(nb_users_closing_mean);
+	}
+
+	/* (non-Javadoc)
+	 * @see eds.core.ASimUnit#loadState(eds.core.StateInput)
+	 */
+	@Override
+	public void loadState(StateInput in) throws IOException {
+		closing=in.readBoolean();
+		office=in.readBoolean();
+		queue=in.readInt();
+		nb_users_day=in.readInt();
+		nb_users_closing=in.readInt();
+		nb_users_day_mean=in.readFloat();
+		nb_users_closing_mean=in.readFloat();
+	}
+
 	/**
 	 * @return the duration_opening
 	 */
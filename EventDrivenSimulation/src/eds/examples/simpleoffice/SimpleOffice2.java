@@ -3,13 +3,18 @@
  */
 package eds.examples.simpleoffice;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
 import java.util.Random;
 
+import eds.blocks.TimeWeighted;
 import eds.core.ASimUnit;
 import eds.core.EDSimulator;
 import eds.core.EDSimulatorEvt;
 import eds.core.EDSimulatorListener;
+import eds.core.StateInput;
+import eds.core.StateOutput;
+import eds.io.ResultSink;
 
 /**
 * We consider a queue in front of an office with nres employees to provide the service, nres>0.
@@ -25,16 +30,7 @@ import eds.core.EDSimulatorListener;
  */
 public final class SimpleOffice2 extends ASimUnit {
 
-	private class TimeVal {
-		double time;
-		int value;
-		public TimeVal(double t, int v) {
-			this.time=t;
-			this.value=v;
-		}
-	}
-	
-	private transient Random random=new Random();
+	private transient Random random=newRandomStream();
 	private transient boolean closing;
 	// State variables
 	private int office; // current number of unoccupied employees
@@ -49,8 +45,9 @@ public final class SimpleOffice2 extends ASimUnit {
 	// Observation variables
 	private int nb_users_day; // number of users served per day
 	private int nb_users_closing; // number of users served after closing
-	private ArrayList<TimeVal> trace_employee_usage; // trace office value, i.e. the number of unoccupied employees 
+	private TimeWeighted employee_usage; // number of busy employees over time
 	private double[] percent_busy_employee; // percentage of time that n employees are busy, for n=0 to nres
+	private transient ResultSink trace=null; // optional trace of the state: run, time, busy employees
 	// Final statistics
 	private float nb_users_day_mean=0; // average number of users served per day
 	private float nb_users_closing_mean=0; // average number of users served after closing
@@ -81,9 +78,9 @@ public final class SimpleOffice2 extends ASimUnit {
 		  queue=0;
 		  nb_users_day=0;
 		  nb_users_closing=0;
-		  trace_employee_usage = new ArrayList<TimeVal>();
+		  employee_usage = new TimeWeighted(nres);
+		  employee_usage.reset(beginTime,0);
 		  percent_busy_employee=new double[nres+1];
-		  addTrace();
 		  // Initializing the event stack (the scheduler)
 		  addEvent(duration_opening,"Closing");
 		  addEvent(arrival_min+(arrival_max-arrival_min)*random.nextFloat(),"UserEntrance");
@@ -126,19 +123,49 @@ public final class SimpleOffice2 extends ASimUnit {
 	}
 
 	private void addTrace() {
-		trace_employee_usage.add(new TimeVal(this.getTime(), this.office));
+		employee_usage.update(this.getTime(), nres-this.office);
+		if(trace!=null) {trace.add(simulator.getRunsCount()+1,this.getTime(),nres-this.office);}
 	}
 	
 	private void computePercentBusy() {
-		TimeVal prev;
-		TimeVal current=trace_employee_usage.get(0);
-		for(int i=1; i<trace_employee_usage.size();i++) {
-			prev=current;
-			current=trace_employee_usage.get(i);
-			percent_busy_employee[nres-prev.value]+=(current.time-prev.time)/simulator.getLastEventTime();
+		for(int i=0;i<=nres;i++) {
+			percent_busy_employee[i]=employee_usage.getFraction(i,simulator.getLastEventTime());
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see eds.core.ASimUnit#saveState(eds.core.StateOutput)
+	 */
+	@Override
+	public void saveState(StateOutput out) throws IOException {
+		out.writeBoolean(closing);
+		out.writeInt(office);
+		out.writeInt(queue);
+		out.writeInt(nb_users_day);
+		out.writeInt(nb_users_closing);
+		employee_usage.save(out);
+		out.writeFloat(nb_users_day_mean);
+		out.writeFloat(nb_users_closing_mean);
+		for(int i=0;i<=nres;i++) {out.writeDouble(percent_busy_employee_mean[i]);}
+	}
+
+	/* (non-Javadoc)
+	 * @see eds.core.ASimUnit#loadState(eds.core.StateInput)
+	 */
+	@Override
+	public void loadState(StateInput in) throws IOException {
+		closing=in.readBoolean();
+		office=in.readInt();
+		queue=in.readInt();
+		nb_users_day=in.readInt();
+		nb_users_closing=in.readInt();
+		employee_usage.load(in);
+		nb_users_day_mean=in.readFloat();
+		nb_users_closing_mean=in.readFloat();
+		percent_busy_employee_mean=new double[nres+1];
+		for(int i=0;i<=nres;i++) {percent_busy_employee_mean[i]=in.readDouble();}
+	}
+
 	/**
 	 * @return the nres
 	 */
@@ -293,15 +320,26 @@ public final class SimpleOffice2 extends ASimUnit {
 		this.percent_busy_employee_mean = percent_busy_employee_mean;
 	}
 
+	/**
+	 * @param trace the sink receiving the state changes (run, time, busy employees), or null
+	 */
+	public final void setTrace(ResultSink trace) {
+		this.trace = trace;
+	}
+
 	/**
 	 * The main program
-	 * @param args
+	 * @param args optional: file of the state trace, file of the run results
+	 * @throws IOException 
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		final SimpleOffice2 model=new SimpleOffice2(2);
 		final EDSimulator simulator=new EDSimulator(0,model.getDuration_opening());
 		simulator.addSimUnit(model);
 		simulator.setNbRuns(2);
+		final ResultSink trace=(args.length>0) ? new ResultSink(new File(args[0]),"run","time","busy") : null;
+		final ResultSink results=(args.length>1) ? new ResultSink(new File(args[1]),"run","users","users_closing") : null;
+		model.setTrace(trace);
 		simulator.addSimulatorListener(new EDSimulatorListener() {
 			@Override
 			public void simulationStepped(EDSimulatorEvt e) {
@@ -325,6 +363,13 @@ public final class SimpleOffice2 extends ASimUnit {
 					System.out.println("Average duration (in %) with "+i+" employee(s) busy = "+model.percent_busy_employee_mean[i]);
 				}	
 				System.out.println("Simulation duration = "+simulator.getDuration()+"s");
+				try {
+					if(trace!=null) {trace.close();}
+					if(results!=null) {results.close();}
+				}
+				catch(IOException ex) {
+					ex.printStackTrace();
+				}
 			}
 			@Override
 			public void simulationRunEnded(EDSimulatorEvt e) {
@@ -333,9 +378,6 @@ public final class SimpleOffice2 extends ASimUnit {
 				System.out.println("Number of users per day = "+model.nb_users_day);
 				System.out.println("Number of users after closing = "+model.nb_users_closing);
 				System.out.println("Working time (mn) after closing = "+(simulator.getLastEventTime()-model.duration_opening)/60);
-				/*for(TimeVal tv:model.trace_employee_usage) 
-					System.out.println("t="+tv.time+" nb="+tv.value);
-				*/
 				model.computePercentBusy();
 				for(int i=0;i<=model.nres;i++) {
 					System.out.println("Duration (in %) with "+i+" employee(s) busy = "+model.percent_busy_employee[i]);
@@ -344,6 +386,7 @@ public final class SimpleOffice2 extends ASimUnit {
 				System.out.println();
 				model.nb_users_day_mean+=model.nb_users_day;
 				model.nb_users_closing_mean+=model.nb_users_closing;
+				if(results!=null) {results.add(e.getPercent(),model.nb_users_day,model.nb_users_closing);}
 			}	
 		});
 		model.setNb_users_day_mean(0);
@@ -0,0 +1,112 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+import java.util.Random;
+
+/**
+ * the ancestor abstract class for the designs of experiments run by an 
+ * ExperimentRunner: a design is a list of points, each point giving the 
+ * value of every factor (a parameter of the model) in one scenario.
+ * Provides the usual designs as static factories: full grids of levels,
+ * two-level factorial designs and Latin hypercube samples.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ExperimentRunner
+ */
+public abstract class ADesign {
+
+	private final String[] factors; // names of the factors
+
+	protected ADesign(String[] factors) {
+		this.factors=factors.clone();
+	}
+
+	// Number of points (scenarios) of the design
+	abstract public int size();
+
+	// Writes the value of each factor at point i in point
+	abstract public void getPoint(int i,double[] point);
+
+	public final double[] getPoint(int i) {
+		double[] point=new double[factors.length];
+		getPoint(i,point);
+		return point;
+	}
+
+	/**
+	 * @return the names of the factors
+	 */
+	public final String[] getFactors() {
+		return factors.clone();
+	}
+
+	public final int getNbFactors() {
+		return factors.length;
+	}
+
+	// All the combinations of the levels of the factors (the last factor 
+	// varies fastest); points are computed on demand
+	public static ADesign grid(String[] factors,final double[][] levels) {
+		if(levels.length!=factors.length) {
+			throw new IllegalArgumentException("One array of levels per factor expected");
+		}
+		long n=1;
+		for(double[] l:levels) {n*=l.length;}
+		if(n>Integer.MAX_VALUE) {throw new IllegalArgumentException("Grid too large: "+n+" points");}
+		final int size=(int)n;
+		return new ADesign(factors) {
+			@Override
+			public int size() {
+				return size;
+			}
+			@Override
+			public void getPoint(int i,double[] point) {
+				for(int k=levels.length-1;k>=0;k--) {
+					point[k]=levels[k][i%levels[k].length];
+					i/=levels[k].length;
+				}
+			}
+		};
+	}
+
+	// Two-level full factorial design: the 2^k combinations of the low 
+	// and high values of the k factors
+	public static ADesign factorial(String[] factors,double[] low,double[] high) {
+		double[][] levels=new double[factors.length][];
+		for(int k=0;k<factors.length;k++) {levels[k]=new double[] {low[k],high[k]};}
+		return grid(factors,levels);
+	}
+
+	// Latin hypercube sample of n points in the box [low,high]: the range 
+	// of each factor is cut into n strata, each stratum being sampled once
+	public static ADesign latinHypercube(String[] factors,double[] low,double[] high,int n,long seed) {
+		Random random=new Random(seed);
+		final double[][] points=new double[n][factors.length];
+		int[] strata=new int[n];
+		for(int k=0;k<factors.length;k++) {
+			for(int i=0;i<n;i++) {strata[i]=i;}
+			// Random permutation of the strata
+			for(int i=n-1;i>0;i--) {
+				int j=random.nextInt(i+1);
+				int t=strata[i];strata[i]=strata[j];strata[j]=t;
+			}
+			for(int i=0;i<n;i++) {
+				points[i][k]=low[k]+(high[k]-low[k])*(strata[i]+random.nextDouble())/n;
+			}
+		}
+		return new ADesign(factors) {
+			@Override
+			public int size() {
+				return points.length;
+			}
+			@Override
+			public void getPoint(int i,double[] point) {
+				System.arraycopy(points[i],0,point,0,point.length);
+			}
+		};
+	}
+
+}
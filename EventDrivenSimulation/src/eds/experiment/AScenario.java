@@ -0,0 +1,33 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+import eds.core.EDSimulator;
+
+/**
+ * the ancestor abstract class for the scenarios of an experiment: a 
+ * scenario is built by a ScenarioFactory for one point of a design (its
+ * constructor adds the units to the simulator), and reads the outputs 
+ * at the end of the run.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ExperimentRunner , ScenarioFactory
+ */
+public abstract class AScenario implements ReplicationObserver {
+
+	protected final EDSimulator simulator; // the simulator of the scenario
+
+	public AScenario(float beginTime,float endTime) {
+		this.simulator=new EDSimulator(beginTime,endTime);
+	}
+
+	/**
+	 * @return the simulator of the scenario
+	 */
+	public final EDSimulator getSimulator() {
+		return simulator;
+	}
+
+}
@@ -0,0 +1,113 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+import eds.blocks.Tally;
+
+/**
+ * Online batch means of a series of correlated observations (one long 
+ * steady-state run): the observations are averaged in consecutive 
+ * batches, whose means are nearly independent when the batches are long 
+ * enough. The number of batches is bounded: when nbBatches batches are 
+ * complete, they are merged pairwise and the batch size is doubled, so 
+ * that the memory is constant and the batches grow with the run.
+ * The confidence interval of the mean is computed from the complete 
+ * batches with the Student-t distribution.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     SteadyStateController
+ */
+public final class BatchMeans {
+
+	private final double[] means; // means of the complete batches
+	private int nbComplete; // number of complete batches
+	private long batchSize=1; // number of observations per batch
+	private double sum; // sum of the observations of the current batch
+	private long size; // number of observations of the current batch
+	private long count; // number of observations
+
+	// Keeps at most nbBatches batches (an even number, 40 for instance)
+	public BatchMeans(int nbBatches) {
+		if((nbBatches<4)||((nbBatches&1)!=0)) {
+			throw new IllegalArgumentException("Even number of batches (4 or more) expected: "+nbBatches);
+		}
+		means=new double[nbBatches];
+	}
+
+	public void add(double x) {
+		count++;
+		sum+=x;
+		if(++size<batchSize) {return;}
+		means[nbComplete++]=sum/size;
+		sum=0;
+		size=0;
+		if(nbComplete==means.length) {
+			// Merges the batches pairwise
+			for(int i=0;i<nbComplete/2;i++) {means[i]=(means[2*i]+means[2*i+1])/2;}
+			nbComplete/=2;
+			batchSize*=2;
+		}
+	}
+
+	public void reset() {
+		nbComplete=0;
+		batchSize=1;
+		sum=0;
+		size=0;
+		count=0;
+	}
+
+	// Statistics of the means of the complete batches
+	private Tally batches() {
+		Tally tally=new Tally();
+		for(int i=0;i<nbComplete;i++) {tally.add(means[i]);}
+		return tally;
+	}
+
+	// Mean of the observations of the complete batches
+	public double getMean() {
+		return batches().getMean();
+	}
+
+	// Half-width of the confidence interval of the mean
+	public double getHalfWidth(double confidence) {
+		return ScenarioComparison.halfWidth(batches(),confidence);
+	}
+
+	// Lag-1 autocorrelation of the batch means: close to 0 if the 
+	// batches are long enough to be independent
+	public double getLag1Correlation() {
+		if(nbComplete<3) {return Double.NaN;}
+		double mean=getMean(),num=0,den=0;
+		for(int i=0;i<nbComplete;i++) {
+			double d=means[i]-mean;
+			den+=d*d;
+			if(i>0) {num+=d*(means[i-1]-mean);}
+		}
+		return (den>0) ? num/den : 0;
+	}
+
+	/**
+	 * @return the number of complete batches
+	 */
+	public int getNbBatches() {
+		return nbComplete;
+	}
+
+	/**
+	 * @return the number of observations per batch
+	 */
+	public long getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return the number of observations
+	 */
+	public long getCount() {
+		return count;
+	}
+
+}
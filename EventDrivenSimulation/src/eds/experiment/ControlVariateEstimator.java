@@ -0,0 +1,95 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+/**
+ * Control variate estimator of the mean of an output Y, using a control 
+ * output C observed in the same replications, whose mean is known. The 
+ * estimator Y-beta*(C-mean(C)), with the optimal beta estimated from the 
+ * replications, has a variance reduced by the factor 1-rho^2, rho being 
+ * the correlation of Y and C. Moments are updated online (Welford).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ReplicationController
+ */
+public final class ControlVariateEstimator {
+
+	private final double controlMean; // known mean of the control
+	private long count; // number of replications
+	private double meanY; // mean of the output
+	private double meanC; // mean of the control
+	private double syy; // sum of squared deviations of the output
+	private double scc; // sum of squared deviations of the control
+	private double syc; // sum of cross deviations
+
+	public ControlVariateEstimator(double controlMean) {
+		this.controlMean=controlMean;
+	}
+
+	// Adds the output y and the control c of one replication
+	public void add(double y,double c) {
+		count++;
+		double dy=y-meanY;
+		double dc=c-meanC;
+		meanY+=dy/count;
+		meanC+=dc/count;
+		syy+=dy*(y-meanY);
+		scc+=dc*(c-meanC);
+		syc+=dy*(c-meanC);
+	}
+
+	public void reset() {
+		count=0;
+		meanY=0;
+		meanC=0;
+		syy=0;
+		scc=0;
+		syc=0;
+	}
+
+	// Estimated optimal coefficient of the control
+	public double getBeta() {
+		return (scc>0) ? syc/scc : 0;
+	}
+
+	// Controlled estimate of the mean of the output
+	public double getMean() {
+		return meanY-getBeta()*(meanC-controlMean);
+	}
+
+	// Mean of the output without control
+	public double getRawMean() {
+		return meanY;
+	}
+
+	// Half-width of the confidence interval of the controlled mean (n-2 degrees of freedom)
+	public double getHalfWidth(double confidence) {
+		if((count<3)||(scc<=0)) {return Double.POSITIVE_INFINITY;}
+		double residual=Math.max(syy-syc*syc/scc,0)/(count-2);
+		double d=meanC-controlMean;
+		double variance=residual*(1.0/count+d*d/scc);
+		return StudentT.quantile(0.5+confidence/2,(int)count-2)*Math.sqrt(variance);
+	}
+
+	// Correlation of the output and the control
+	public double getCorrelation() {
+		return ((syy>0)&&(scc>0)) ? syc/Math.sqrt(syy*scc) : 0;
+	}
+
+	/**
+	 * @return the number of replications
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the known mean of the control
+	 */
+	public double getControlMean() {
+		return controlMean;
+	}
+
+}
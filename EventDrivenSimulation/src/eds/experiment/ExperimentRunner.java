@@ -0,0 +1,295 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import eds.blocks.Tally;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+import eds.io.ResultSink;
+
+/**
+ * Runs a design of experiments: every point of the design (a scenario) 
+ * is replicated a number of times. Each replication of each scenario is 
+ * a task of a work-stealing pool (ForkJoinPool), which builds its own 
+ * scenario with the factory and runs it in the worker thread, so that 
+ * large experiments use all the processors.
+ * The random streams of a task are seeded from the seed of the runner 
+ * and the number of the replication: with common random numbers (the 
+ * default), replication r of every scenario uses the same seed, so that 
+ * the scenarios are compared with the same random numbers; otherwise 
+ * each task has its own seed.
+ * The outputs of each replication are summarized per scenario, in the 
+ * order of the replications whatever the order of completion of the 
+ * tasks (the statistics do not depend on the parallelism), and can be 
+ * streamed to a ResultSink, one row per replication with the columns
+ * scenario, replication, the factors and the outputs (in the order of 
+ * completion of the tasks).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ADesign , ScenarioFactory , ResultSink
+ */
+public final class ExperimentRunner {
+
+	private final ADesign design; // the points of the experiment
+	private final ScenarioFactory factory; // builds the scenarios
+	private final String[] outputs; // names of the outputs read by the scenarios
+	private int replications=1; // number of replications per scenario
+	private long seed=System.nanoTime(); // seed of the first replication
+	private boolean commonRandomNumbers=true; // same seeds in all the scenarios
+	private int parallelism=Runtime.getRuntime().availableProcessors(); // number of worker threads
+	// Results
+	private Tally[][] tallies; // statistics per scenario and output
+	private double[][] values; // outputs of each task (during an experiment)
+	private ResultSink sink; // rows of the replications (null: none)
+	private double duration; // duration of the last experiment (s)
+
+	public ExperimentRunner(ADesign design,ScenarioFactory factory,String... outputs) {
+		this.design=design;
+		this.factory=factory;
+		this.outputs=outputs.clone();
+	}
+
+	/**
+	 * @return the columns of the rows streamed to a sink: scenario, 
+	 * replication, the factors then the outputs
+	 */
+	public String[] getColumns() {
+		String[] factors=design.getFactors();
+		String[] columns=new String[2+factors.length+outputs.length];
+		columns[0]="scenario";
+		columns[1]="replication";
+		System.arraycopy(factors,0,columns,2,factors.length);
+		System.arraycopy(outputs,0,columns,2+factors.length,outputs.length);
+		return columns;
+	}
+
+	/**
+	 * Runs the experiment and waits for its end.
+	 * @param sink receives one row per replication (null for none); it 
+	 * is not closed
+	 */
+	public void run(ResultSink sink) {
+		long begin=System.nanoTime();
+		int n=design.size();
+		values=new double[n*replications][];
+		this.sink=sink;
+		ForkJoinPool pool=new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new Tasks(0,(long)n*replications));
+			tallies=summarize(values,n,replications,outputs.length);
+		}
+		finally {
+			pool.shutdown();
+			this.sink=null;
+			values=null;
+		}
+		duration=(System.nanoTime()-begin)/1e9;
+	}
+
+	/**
+	 * Runs the experiment and writes the rows of the replications in a 
+	 * result file.
+	 * @param file the result file
+	 * @throws IOException
+	 */
+	public void run(File file) throws IOException {
+		ResultSink sink=new ResultSink(file,getColumns());
+		try {
+			run(sink);
+		}
+		finally {
+			sink.close();
+		}
+	}
+
+	public void run() {
+		run((ResultSink)null);
+	}
+
+	// Tasks first to last-1 (task t: replication t%replications of scenario 
+	// t/replications), split in halves while they are several
+	private final class Tasks extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final long first,last;
+
+		Tasks(long first,long last) {
+			this.first=first;
+			this.last=last;
+		}
+
+		@Override
+		protected void compute() {
+			// No task (a design without points)
+			if(last-first<=0) {return;}
+			if(last-first==1) {
+				replicate((int)(first/replications),(int)(first%replications));
+			}
+			else {
+				long middle=(first+last)>>>1;
+				invokeAll(new Tasks(first,middle),new Tasks(middle,last));
+			}
+		}
+	}
+
+	// Runs replication r of scenario s in the calling thread
+	private void replicate(int s,int r) {
+		double[] point=design.getPoint(s);
+		double[] v=replicate(factory,point,outputs.length,seed(seed,commonRandomNumbers,s,r));
+		values[s*replications+r]=v;
+		record(s,r,point,v);
+	}
+
+	// Seed of replication r of scenario s
+	static long seed(long seed,boolean commonRandomNumbers,int s,int r) {
+		return commonRandomNumbers ? seed+r : seed+((long)s<<32)+r;
+	}
+
+	// Runs one replication of the scenario of point in the calling thread, 
+	// and returns its nbOutputs outputs
+	static double[] replicate(ScenarioFactory factory,double[] point,int nbOutputs,long seed) {
+		final AScenario scenario=factory.create(point);
+		final double[] values=new double[nbOutputs];
+		EDSimulator simulator=scenario.getSimulator();
+		simulator.setNbRuns(1);
+		simulator.setReplicationSeed(seed,false);
+		simulator.addSimulatorListener(new EDSimulatorListener() {
+			@Override
+			public void simulationStepped(EDSimulatorEvt e) {
+			}
+			@Override
+			public void simulationTerminated(EDSimulatorEvt e) {
+			}
+			@Override
+			public void simulationRunEnded(EDSimulatorEvt e) {
+				// The outputs are read before the units are initialized again
+				scenario.observe(values);
+			}
+		});
+		simulator.execute();
+		return values;
+	}
+
+	// Statistics per scenario and output of the outputs of the tasks, added 
+	// in the order of the replications
+	static Tally[][] summarize(double[][] values,int n,int replications,int nbOutputs) {
+		Tally[][] tallies=new Tally[n][nbOutputs];
+		for(int s=0;s<n;s++) {
+			for(int k=0;k<nbOutputs;k++) {
+				Tally tally=new Tally();
+				for(int r=0;r<replications;r++) {tally.add(values[s*replications+r][k]);}
+				tallies[s][k]=tally;
+			}
+		}
+		return tallies;
+	}
+
+	private void record(int s,int r,double[] point,double[] values) {
+		ResultSink sink=this.sink;
+		if(sink!=null) {
+			double[] row=new double[2+point.length+values.length];
+			row[0]=s;
+			row[1]=r;
+			System.arraycopy(point,0,row,2,point.length);
+			System.arraycopy(values,0,row,2+point.length,values.length);
+			synchronized(sink) {sink.add(row);}
+		}
+	}
+
+	private int indexOf(String output) {
+		for(int k=0;k<outputs.length;k++) {
+			if(outputs[k].equals(output)) {return k;}
+		}
+		throw new IllegalArgumentException("Unknown output: "+output);
+	}
+
+	// Statistics of an output in scenario s
+	public Tally getTally(int s,String output) {
+		return tallies[s][indexOf(output)];
+	}
+
+	// Mean of an output over the replications of scenario s
+	public double getMean(int s,String output) {
+		return getTally(s,output).getMean();
+	}
+
+	// Half-width of the confidence interval of the mean of an output in scenario s
+	public double getHalfWidth(int s,String output,double confidence) {
+		return ScenarioComparison.halfWidth(getTally(s,output),confidence);
+	}
+
+	/**
+	 * @return the design of the experiment
+	 */
+	public ADesign getDesign() {
+		return design;
+	}
+
+	/**
+	 * @param replications the number of replications per scenario (ignored
+	 * if not positive)
+	 */
+	public void setReplications(int replications) {
+		if(replications>0) this.replications=replications;
+	}
+
+	/**
+	 * @return the number of replications per scenario
+	 */
+	public int getReplications() {
+		return replications;
+	}
+
+	/**
+	 * @param seed the seed of the first replication
+	 */
+	public void setSeed(long seed) {
+		this.seed=seed;
+	}
+
+	/**
+	 * @param commonRandomNumbers true to use the same seeds in all the 
+	 * scenarios (default), false for independent scenarios
+	 */
+	public void setCommonRandomNumbers(boolean commonRandomNumbers) {
+		this.commonRandomNumbers=commonRandomNumbers;
+	}
+
+	/**
+	 * @return true if the scenarios use common random numbers
+	 */
+	public boolean isCommonRandomNumbers() {
+		return commonRandomNumbers;
+	}
+
+	/**
+	 * @param parallelism the number of worker threads (default: the 
+	 * number of processors)
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism=parallelism;
+	}
+
+	/**
+	 * @return the number of worker threads
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @return the duration (in s) of the last experiment
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+}
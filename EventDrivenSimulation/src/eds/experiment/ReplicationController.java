@@ -0,0 +1,322 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import eds.blocks.Tally;
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+
+/**
+ * A sequential replication controller: instead of a number of runs fixed
+ * in advance, replications are performed until the confidence interval of 
+ * each named output reaches its target precision (half-width, or 
+ * half-width relative to the mean), with a minimum and a maximum number 
+ * of replications.
+ * The controller observes the outputs at the end of each run of one or 
+ * several simulators (parallel workers, with their own units) and updates
+ * the Student-t intervals of the means. As soon as every target is met, 
+ * all the simulators are asked to stop: runs in progress are abandoned 
+ * and not counted.
+ * Variance reduction: the random streams of each run are seeded from the 
+ * seed of the controller (reproducible experiments, common random numbers
+ * between controllers with the same seed); runs can be performed in 
+ * antithetic pairs, each pair giving one observation (the mean of the 
+ * pair); and an output can be estimated with another output of known 
+ * mean as control variate.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ReplicationObserver , StudentT
+ */
+public final class ReplicationController {
+
+	private final double confidence; // confidence level of the intervals
+	private int minReplications=5; // no decision before this number of replications
+	private int maxReplications=1000; // stop after this number of replications
+	// Outputs
+	private final ArrayList<String> names=new ArrayList<String>();
+	private final ArrayList<Tally> tallies=new ArrayList<Tally>();
+	private double[] halfWidths=new double[0]; // target half-widths (0: none)
+	private double[] precisions=new double[0]; // target relative half-widths (0: none)
+	private int[] controls=new int[0]; // index of the control of each output (-1: none)
+	private ControlVariateEstimator[] estimators=new ControlVariateEstimator[0]; // controlled estimators
+	// Random numbers
+	private long seed=System.nanoTime(); // seed of the first run of the first simulator
+	private boolean antitheticPairs=false; // true to run antithetic pairs of replications
+	// Workers
+	private final ArrayList<EDSimulator> simulators=new ArrayList<EDSimulator>();
+	private int replications; // number of replications
+	private volatile boolean finished=false; // true when the simulators were asked to stop
+	private boolean reached=false; // true if the targets were met
+
+	public ReplicationController(double confidence) {
+		this.confidence=confidence;
+	}
+
+	public ReplicationController() {
+		this(0.95);
+	}
+
+	/**
+	 * Adds an output, whose value is read at the end of each run.
+	 * @param name the name of the output
+	 * @param halfWidth the target half-width of its interval (0 for none)
+	 * @param precision the target half-width relative to the mean (0 for none)
+	 * @return the index of the output in the observed values
+	 */
+	public synchronized int addOutput(String name,double halfWidth,double precision) {
+		names.add(name);
+		tallies.add(new Tally());
+		int n=names.size();
+		halfWidths=Arrays.copyOf(halfWidths,n);
+		precisions=Arrays.copyOf(precisions,n);
+		controls=Arrays.copyOf(controls,n);
+		estimators=Arrays.copyOf(estimators,n);
+		halfWidths[n-1]=halfWidth;
+		precisions[n-1]=precision;
+		controls[n-1]=-1;
+		return n-1;
+	}
+
+	/**
+	 * Estimates an output with a control variate: another output whose 
+	 * mean is known (the mean of sampled service times, for instance).
+	 * Must be set before the replications.
+	 * @param output the name of the controlled output
+	 * @param control the name of the control output
+	 * @param controlMean the known mean of the control
+	 */
+	public synchronized void setControl(String output,String control,double controlMean) {
+		int k=indexOf(output);
+		controls[k]=indexOf(control);
+		estimators[k]=new ControlVariateEstimator(controlMean);
+	}
+
+	/**
+	 * Attaches a simulator: its number of runs is set to the maximum 
+	 * number of replications, and the observer reads the outputs at 
+	 * the end of each run.
+	 * @param simulator the simulator (a worker)
+	 * @param observer reads the outputs of the simulator units
+	 */
+	public void attach(final EDSimulator simulator,final ReplicationObserver observer) {
+		synchronized(this) {
+			// Each simulator has its own range of seeds
+			simulator.setReplicationSeed(seed+((long)simulators.size()<<32),antitheticPairs);
+			simulator.setNbRuns(antitheticPairs ? 2*maxReplications : maxReplications);
+			simulators.add(simulator);
+		}
+		simulator.addSimulatorListener(new EDSimulatorListener() {
+			private double[] values=null;
+			private double[] first=null; // first run of an antithetic pair
+			@Override
+			public void simulationStepped(EDSimulatorEvt e) {
+			}
+			@Override
+			public void simulationTerminated(EDSimulatorEvt e) {
+			}
+			@Override
+			public void simulationRunEnded(EDSimulatorEvt e) {
+				if(finished) {return;}
+				if((values==null)||(values.length!=names.size())) {values=new double[names.size()];}
+				observer.observe(values);
+				if(!antitheticPairs) {
+					addReplication(values);
+				}
+				else if(first==null) {
+					first=values.clone();
+				}
+				else {
+					for(int k=0;k<values.length;k++) {values[k]=(values[k]+first[k])/2;}
+					first=null;
+					addReplication(values);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Adds the outputs of one replication (in the order of the outputs),
+	 * and stops the simulators if the targets are met.
+	 * @param values the outputs
+	 * @return true if the replications are finished
+	 */
+	public synchronized boolean addReplication(double[] values) {
+		if(finished) {return true;}
+		replications++;
+		for(int k=0;k<tallies.size();k++) {
+			tallies.get(k).add(values[k]);
+			if(controls[k]>=0) {estimators[k].add(values[k],values[controls[k]]);}
+		}
+		if(replications>=minReplications) {reached=targetsMet();}
+		if(reached||(replications>=maxReplications)) {
+			finished=true;
+			for(EDSimulator simulator:simulators) {simulator.requestStop();}
+		}
+		return finished;
+	}
+
+	private boolean targetsMet() {
+		for(int k=0;k<tallies.size();k++) {
+			double h=getHalfWidth(k);
+			if((halfWidths[k]>0)&&(h>halfWidths[k])) {return false;}
+			if((precisions[k]>0)&&(h>precisions[k]*Math.abs(getMean(k)))) {return false;}
+		}
+		return true;
+	}
+
+	/**
+	 * Starts the attached simulators and waits for their end.
+	 * @throws InterruptedException
+	 */
+	public void run() throws InterruptedException {
+		EDSimulator[] workers;
+		synchronized(this) {workers=simulators.toArray(new EDSimulator[simulators.size()]);}
+		for(EDSimulator simulator:workers) {
+			if(!finished) {simulator.start();}
+		}
+		for(EDSimulator simulator:workers) {simulator.join();}
+	}
+
+	// Forgets the replications (new experiment with the same outputs)
+	public synchronized void reset() {
+		for(Tally tally:tallies) {tally.reset();}
+		for(ControlVariateEstimator estimator:estimators) {
+			if(estimator!=null) {estimator.reset();}
+		}
+		replications=0;
+		finished=false;
+		reached=false;
+	}
+
+	// Half-width of the confidence interval of the mean of output k
+	// (controlled estimator if the output has a control)
+	public synchronized double getHalfWidth(int k) {
+		if(controls[k]>=0) {return estimators[k].getHalfWidth(confidence);}
+		return ScenarioComparison.halfWidth(tallies.get(k),confidence);
+	}
+
+	public synchronized double getHalfWidth(String name) {
+		return getHalfWidth(indexOf(name));
+	}
+
+	// Mean of output k over the replications (controlled estimator if 
+	// the output has a control)
+	public synchronized double getMean(int k) {
+		if(controls[k]>=0) {return estimators[k].getMean();}
+		return tallies.get(k).getMean();
+	}
+
+	public synchronized double getMean(String name) {
+		return getMean(indexOf(name));
+	}
+
+	// Statistics of output k over the replications (without control)
+	public synchronized Tally getTally(int k) {
+		return tallies.get(k);
+	}
+
+	// Control variate estimator of output k (null if it has no control)
+	public synchronized ControlVariateEstimator getEstimator(int k) {
+		return estimators[k];
+	}
+
+	private int indexOf(String name) {
+		int k=names.indexOf(name);
+		if(k<0) {throw new IllegalArgumentException("Unknown output: "+name);}
+		return k;
+	}
+
+	/**
+	 * @return the names of the outputs
+	 */
+	public synchronized String[] getOutputs() {
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * @return the number of replications
+	 */
+	public synchronized int getReplications() {
+		return replications;
+	}
+
+	/**
+	 * @return true if the replications are finished
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * @return true if every target precision was met
+	 */
+	public synchronized boolean isPrecisionReached() {
+		return reached;
+	}
+
+	/**
+	 * Must be set before the simulators are attached.
+	 * @param seed the seed of the random streams of the first run
+	 */
+	public synchronized void setSeed(long seed) {
+		this.seed=seed;
+	}
+
+	/**
+	 * Must be set before the simulators are attached.
+	 * @param antitheticPairs true to run antithetic pairs of replications
+	 */
+	public synchronized void setAntitheticPairs(boolean antitheticPairs) {
+		this.antitheticPairs=antitheticPairs;
+	}
+
+	/**
+	 * @return true if the replications are antithetic pairs of runs
+	 */
+	public synchronized boolean isAntitheticPairs() {
+		return antitheticPairs;
+	}
+
+	/**
+	 * @return the confidence level
+	 */
+	public double getConfidence() {
+		return confidence;
+	}
+
+	/**
+	 * @param minReplications the minimum number of replications
+	 */
+	public synchronized void setMinReplications(int minReplications) {
+		this.minReplications=Math.max(minReplications,2);
+	}
+
+	/**
+	 * @return the minimum number of replications
+	 */
+	public synchronized int getMinReplications() {
+		return minReplications;
+	}
+
+	/**
+	 * Must be set before the simulators are attached.
+	 * @param maxReplications the maximum number of replications
+	 */
+	public synchronized void setMaxReplications(int maxReplications) {
+		if(maxReplications>0) {this.maxReplications=maxReplications;}
+	}
+
+	/**
+	 * @return the maximum number of replications
+	 */
+	public synchronized int getMaxReplications() {
+		return maxReplications;
+	}
+
+}
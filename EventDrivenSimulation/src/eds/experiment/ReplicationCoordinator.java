@@ -0,0 +1,398 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import eds.blocks.Tally;
+
+/**
+ * Runs a design of experiments on ReplicationWorker processes (other 
+ * JVMs, on this machine or others): the workers connect to the server 
+ * socket of the coordinator, receive the name of the scenario factory 
+ * and the points of the design, then ranges of replications. Each 
+ * replication is seeded as in ExperimentRunner (from the seed of the 
+ * coordinator, the scenario and the replication number), whatever the 
+ * worker running it, and its outputs are streamed back in binary. The 
+ * replications of a worker whose connection is lost (or silent for 
+ * longer than the timeout) are given to the other workers, and a 
+ * replication that throws is given again: each replication is attempted
+ * at most getMaxAttempts() times. Beyond, or if no connected worker 
+ * remains after the loss of one, the experiment is aborted with an 
+ * IOException describing the last failure.
+ * The statistics are computed in the order of the replications: they 
+ * are identical, bit for bit, to those of an ExperimentRunner with the 
+ * same factory and seed.
+ * The factory class must have a public constructor without parameters,
+ * and be in the class path of the workers.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ReplicationWorker , ExperimentRunner , ScenarioFactory
+ */
+public final class ReplicationCoordinator {
+
+	private final ADesign design; // the points of the experiment
+	private final String factory; // class name of the scenario factory
+	private final String[] outputs; // names of the outputs read by the scenarios
+	private int replications=1; // number of replications per scenario
+	private long seed=System.nanoTime(); // seed of the first replication
+	private boolean commonRandomNumbers=true; // same seeds in all the scenarios
+	private int chunkSize=16; // number of tasks given at once to a worker
+	private int timeout=5*60*1000; // maximum silence of a worker (ms), 0 for none
+	private int maxAttempts=3; // maximum number of attempts of a replication (failed or lost)
+	// State of an experiment, guarded by the coordinator
+	private double[][] values; // outputs of each task (null: not done)
+	private final ArrayDeque<long[]> pending=new ArrayDeque<long[]>(); // ranges of tasks to give to the workers
+	private int remaining; // number of tasks not done
+	private int requeued; // number of tasks given again after the loss of a worker
+	private int workers; // number of workers that connected
+	private int connected; // number of workers currently connected
+	private int[] attempts; // number of failed or lost attempts of each task
+	private IOException failure; // cause of the abort of the experiment (null if none)
+	// Results
+	private Tally[][] tallies; // statistics per scenario and output
+	private double duration; // duration of the last experiment (s)
+
+	public ReplicationCoordinator(ADesign design,Class<? extends ScenarioFactory> factory,String... outputs) {
+		this(design,factory.getName(),outputs);
+	}
+
+	public ReplicationCoordinator(ADesign design,String factory,String... outputs) {
+		this.design=design;
+		this.factory=factory;
+		this.outputs=outputs.clone();
+	}
+
+	/**
+	 * Runs the experiment with the workers connecting to server, and 
+	 * waits for its end. The server socket is closed at the end.
+	 * @param server the server socket of the coordinator
+	 * @throws IOException if a replication fails getMaxAttempts() times, or
+	 * if no connected worker remains after the loss of a worker
+	 */
+	public void run(final ServerSocket server) throws IOException {
+		long begin=System.nanoTime();
+		int n=design.size()*replications;
+		synchronized(this) {
+			values=new double[n][];
+			pending.clear();
+			for(int first=0;first<n;first+=chunkSize) {pending.add(new long[] {first,Math.min(n,first+chunkSize)});}
+			remaining=n;
+			requeued=0;
+			workers=0;
+			connected=0;
+			attempts=new int[n];
+			failure=null;
+		}
+		final ArrayList<Thread> handlers=new ArrayList<Thread>();
+		Thread acceptor=new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while(true) {
+						final Socket socket=server.accept();
+						Thread handler=new Thread(new Runnable() {
+							@Override
+							public void run() {
+								serve(socket);
+							}
+						},"ReplicationCoordinator-worker");
+						handler.setDaemon(true);
+						synchronized(handlers) {handlers.add(handler);}
+						handler.start();
+					}
+				}
+				catch(IOException e) {
+					// Server socket closed at the end of the experiment
+				}
+			}
+		},"ReplicationCoordinator-accept");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		try {
+			synchronized(this) {
+				while((remaining>0)&&(failure==null)) {wait();}
+				// The handlers still running end at their next range
+				if(failure!=null) {throw failure;}
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Experiment interrupted");
+		}
+		finally {
+			server.close();
+		}
+		// The workers receive END
+		synchronized(handlers) {
+			for(Thread handler:handlers) {
+				try {
+					handler.join(1000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		tallies=ExperimentRunner.summarize(values,design.size(),replications,outputs.length);
+		values=null;
+		duration=(System.nanoTime()-begin)/1e9;
+	}
+
+	// Dialog with one worker
+	private void serve(Socket socket) {
+		long[] range=null;
+		boolean[] received=null;
+		boolean handshake=false;
+		try {
+			socket.setSoTimeout(timeout);
+			socket.setTcpNoDelay(true);
+			DataInputStream in=new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out=new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			if((in.readInt()!=ReplicationProtocol.MAGIC)||(in.readInt()!=ReplicationProtocol.VERSION)) {
+				throw new IOException("Not a replication worker");
+			}
+			synchronized(this) {
+				workers++;
+				connected++;
+			}
+			handshake=true;
+			writeJob(out);
+			double[] results=new double[outputs.length];
+			while((range=nextRange())!=null) {
+				out.writeByte(ReplicationProtocol.TASKS);
+				out.writeLong(range[0]);
+				out.writeLong(range[1]);
+				out.flush();
+				received=new boolean[(int)(range[1]-range[0])];
+				for(int k=0;k<received.length;k++) {
+					byte message=in.readByte();
+					if((message!=ReplicationProtocol.RESULT)&&(message!=ReplicationProtocol.FAILED)) {throw new IOException("Unexpected message");}
+					int t=in.readInt();
+					if((t<range[0])||(t>=range[1])||received[(int)(t-range[0])]) {throw new IOException("Unexpected task "+t);}
+					received[(int)(t-range[0])]=true;
+					if(message==ReplicationProtocol.FAILED) {
+						failed(t,in.readUTF());
+					}
+					else {
+						for(int i=0;i<results.length;i++) {results[i]=in.readDouble();}
+						done(t,results.clone());
+					}
+				}
+				range=null;
+			}
+			out.writeByte(ReplicationProtocol.END);
+			out.flush();
+		}
+		catch(IOException e) {
+			// Lost worker: its tasks not done are given to the other workers
+			if(handshake) {lost(range,received,e);}
+		}
+		finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Already closed
+			}
+		}
+	}
+
+	private void writeJob(DataOutputStream out) throws IOException {
+		out.writeByte(ReplicationProtocol.JOB);
+		out.writeUTF(factory);
+		out.writeInt(outputs.length);
+		out.writeInt(replications);
+		out.writeLong(seed);
+		out.writeBoolean(commonRandomNumbers);
+		int n=design.size();
+		double[] point=new double[design.getFactors().length];
+		out.writeInt(n);
+		out.writeInt(point.length);
+		for(int s=0;s<n;s++) {
+			design.getPoint(s,point);
+			for(double x:point) {out.writeDouble(x);}
+		}
+	}
+
+	// Next range of tasks to give to a worker (null when all the tasks are 
+	// done or the experiment is aborted)
+	private synchronized long[] nextRange() throws IOException {
+		try {
+			while(pending.isEmpty()&&(remaining>0)&&(failure==null)) {wait();}
+		}
+		catch(InterruptedException e) {
+			throw new IOException("Interrupted");
+		}
+		return (failure==null) ? pending.poll() : null;
+	}
+
+	private synchronized void done(int t,double[] results) {
+		if(values[t]!=null) {return;}
+		values[t]=results;
+		remaining--;
+		if(remaining==0) {notifyAll();}
+	}
+
+	// Task t threw the exception described by description in a worker
+	private synchronized void failed(int t,String description) {
+		if(values[t]!=null) {return;}
+		retry(t,"Replication "+(t%replications)+" of scenario "+(t/replications)+" failed "+(attempts[t]+1)+" time(s): "+description,null);
+		notifyAll();
+	}
+
+	// A worker was lost while running the tasks of range not received: they
+	// are given to the other workers, unless none remains connected
+	private synchronized void lost(long[] range,boolean[] received,IOException e) {
+		connected--;
+		if(range!=null) {
+			for(long t=range[0];t<range[1];t++) {
+				if(((received==null)||!received[(int)(t-range[0])])&&(values[(int)t]==null)) {
+					retry((int)t,"Replication "+(t%replications)+" of scenario "+(t/replications)+" lost "+(attempts[(int)t]+1)+" time(s) with its worker",e);
+				}
+			}
+		}
+		if((connected==0)&&(remaining>0)&&(failure==null)) {
+			failure=new IOException("No worker left, the last one was lost: "+e,e);
+		}
+		notifyAll();
+	}
+
+	// Gives task t again, or aborts the experiment after maxAttempts attempts
+	private void retry(int t,String message,IOException cause) {
+		attempts[t]++;
+		if(attempts[t]>=maxAttempts) {
+			if(failure==null) {failure=new IOException(message,cause);}
+		}
+		else {
+			pending.add(new long[] {t,t+1});
+			requeued++;
+		}
+	}
+
+	private int indexOf(String output) {
+		for(int k=0;k<outputs.length;k++) {
+			if(outputs[k].equals(output)) {return k;}
+		}
+		throw new IllegalArgumentException("Unknown output: "+output);
+	}
+
+	// Statistics of an output in scenario s
+	public Tally getTally(int s,String output) {
+		return tallies[s][indexOf(output)];
+	}
+
+	// Mean of an output over the replications of scenario s
+	public double getMean(int s,String output) {
+		return getTally(s,output).getMean();
+	}
+
+	// Half-width of the confidence interval of the mean of an output in scenario s
+	public double getHalfWidth(int s,String output,double confidence) {
+		return ScenarioComparison.halfWidth(getTally(s,output),confidence);
+	}
+
+	/**
+	 * @return the number of replications done in the current experiment
+	 */
+	public synchronized int getCompleted() {
+		return (values!=null) ? values.length-remaining : design.size()*replications;
+	}
+
+	/**
+	 * @return the number of replications given again to other workers 
+	 * after the loss of a worker (last experiment)
+	 */
+	public synchronized int getRequeued() {
+		return requeued;
+	}
+
+	/**
+	 * @return the number of workers that connected (last experiment)
+	 */
+	public synchronized int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * @return the design of the experiment
+	 */
+	public ADesign getDesign() {
+		return design;
+	}
+
+	/**
+	 * @param replications the number of replications per scenario
+	 */
+	public void setReplications(int replications) {
+		this.replications=replications;
+	}
+
+	/**
+	 * @return the number of replications per scenario
+	 */
+	public int getReplications() {
+		return replications;
+	}
+
+	/**
+	 * @param seed the seed of the first replication
+	 */
+	public void setSeed(long seed) {
+		this.seed=seed;
+	}
+
+	/**
+	 * @param commonRandomNumbers true to use the same seeds in all the 
+	 * scenarios (default), false for independent scenarios
+	 */
+	public void setCommonRandomNumbers(boolean commonRandomNumbers) {
+		this.commonRandomNumbers=commonRandomNumbers;
+	}
+
+	/**
+	 * @param chunkSize the number of replications given at once to a worker
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize=Math.max(1,chunkSize);
+	}
+
+	/**
+	 * @param timeout the maximum time (ms) between two results of a worker 
+	 * before it is considered lost (0 for none)
+	 */
+	public void setTimeout(int timeout) {
+		this.timeout=timeout;
+	}
+
+	/**
+	 * @param maxAttempts the maximum number of attempts of a replication 
+	 * that throws or whose worker is lost, before the experiment is aborted
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts=Math.max(1,maxAttempts);
+	}
+
+	/**
+	 * @return the maximum number of attempts of a replication
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * @return the duration (in s) of the last experiment
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+}
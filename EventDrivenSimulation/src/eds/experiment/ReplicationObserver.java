@@ -0,0 +1,20 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+/**
+ * Reads the outputs of a replication, at the end of each run of a 
+ * simulator controlled by a ReplicationController.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ReplicationController
+ */
+public interface ReplicationObserver {
+
+	// Writes the value of each output of the run that just ended in values
+	// (in the order the outputs were added to the controller)
+	public void observe(double[] values);
+
+}
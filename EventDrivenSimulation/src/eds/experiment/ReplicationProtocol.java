@@ -0,0 +1,39 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+/**
+ * Messages between a ReplicationCoordinator and its ReplicationWorker 
+ * processes (DataOutput encoding over a socket). The worker sends MAGIC 
+ * and VERSION, then receives the JOB: the class name of the scenario factory, the 
+ * number of outputs and of replications, the seeding of the replications
+ * and the points of the design. The coordinator then sends ranges of 
+ * tasks (TASKS first last, task t being replication t%replications of 
+ * scenario t/replications), the worker answering one RESULT per task 
+ * (task, outputs) as soon as it is done, or FAILED (task, exception of
+ * the replication) if it throws, until END.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ReplicationCoordinator , ReplicationWorker
+ */
+final class ReplicationProtocol {
+
+	static final int MAGIC=0x45445252; // 'EDRR'
+	static final int VERSION=2;
+
+	// Message codes
+	static final byte JOB=1; // factory, nbOutputs, replications, seed, commonRandomNumbers, points
+	static final byte TASKS=2; // first task, last task (excluded)
+	static final byte RESULT=3; // task, outputs
+	static final byte END=4; // no more tasks
+	static final byte FAILED=5; // task, description of the exception
+
+	// Maximum length of the description of an exception (writeUTF limit)
+	static final int MAX_DESCRIPTION=8000;
+
+	private ReplicationProtocol() {
+	}
+
+}
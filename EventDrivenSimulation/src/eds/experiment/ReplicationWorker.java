@@ -0,0 +1,176 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A process running replications for a ReplicationCoordinator: connects
+ * to the coordinator, builds the scenario factory from its class name,
+ * then runs the ranges of replications it receives on parallelism threads 
+ * and sends the outputs of each replication as soon as it is done (or
+ * the exception it threw, the worker going on with the next ones).
+ * launch() starts workers in new JVMs of this machine, with the class 
+ * path of the current JVM.
+ *
+ * Usage: java eds.experiment.ReplicationWorker host port [parallelism]
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ReplicationCoordinator
+ */
+public final class ReplicationWorker {
+
+	private ReplicationWorker() {
+	}
+
+	/**
+	 * Runs the replications given by the coordinator until its END message.
+	 * @param host the host of the coordinator
+	 * @param port the port of the coordinator
+	 * @param parallelism number of replications run in parallel
+	 * @throws IOException
+	 */
+	public static void serve(String host,int port,int parallelism) throws IOException {
+		ExecutorService pool=Executors.newFixedThreadPool(parallelism);
+		try(Socket socket=new Socket(host,port)) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in=new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			final DataOutputStream out=new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeInt(ReplicationProtocol.MAGIC);
+			out.writeInt(ReplicationProtocol.VERSION);
+			out.flush();
+			// Job
+			if(in.readByte()!=ReplicationProtocol.JOB) {throw new IOException("Unexpected message");}
+			final ScenarioFactory factory=newFactory(in.readUTF());
+			final int nbOutputs=in.readInt();
+			final int replications=in.readInt();
+			final long seed=in.readLong();
+			final boolean commonRandomNumbers=in.readBoolean();
+			final double[][] points=new double[in.readInt()][in.readInt()];
+			for(double[] point:points) {
+				for(int i=0;i<point.length;i++) {point[i]=in.readDouble();}
+			}
+			// Ranges of tasks
+			while(in.readByte()==ReplicationProtocol.TASKS) {
+				long first=in.readLong();
+				long last=in.readLong();
+				ArrayList<Future<?>> futures=new ArrayList<Future<?>>();
+				for(long t=first;t<last;t++) {
+					final int task=(int)t;
+					futures.add(pool.submit(new Runnable() {
+						@Override
+						public void run() {
+							int s=task/replications;
+							int r=task%replications;
+							double[] values=null;
+							String failure=null;
+							try {
+								values=ExperimentRunner.replicate(factory,points[s],nbOutputs,ExperimentRunner.seed(seed,commonRandomNumbers,s,r));
+							}
+							catch(RuntimeException|Error e) {
+								failure=describe(e);
+							}
+							try {
+								synchronized(out) {
+									if(failure==null) {
+										out.writeByte(ReplicationProtocol.RESULT);
+										out.writeInt(task);
+										for(double v:values) {out.writeDouble(v);}
+									}
+									else {
+										out.writeByte(ReplicationProtocol.FAILED);
+										out.writeInt(task);
+										out.writeUTF(failure);
+									}
+									out.flush();
+								}
+							}
+							catch(IOException e) {
+								throw new RuntimeException(e);
+							}
+						}
+					}));
+				}
+				for(Future<?> future:futures) {
+					try {
+						future.get();
+					}
+					catch(InterruptedException e) {
+						throw new IOException("Interrupted");
+					}
+					catch(ExecutionException e) {
+						throw new IOException("Replication failed",e.getCause());
+					}
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// Stack trace of an exception thrown by a replication, sent to the coordinator
+	private static String describe(Throwable e) {
+		StringWriter trace=new StringWriter();
+		e.printStackTrace(new PrintWriter(trace));
+		String s=trace.toString();
+		return (s.length()>ReplicationProtocol.MAX_DESCRIPTION) ? s.substring(0,ReplicationProtocol.MAX_DESCRIPTION) : s;
+	}
+
+	private static ScenarioFactory newFactory(String name) throws IOException {
+		try {
+			return (ScenarioFactory)Class.forName(name).getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException|ClassCastException e) {
+			throw new IOException("Cannot build the scenario factory "+name,e);
+		}
+	}
+
+	/**
+	 * Starts n workers in new JVMs of this machine (same Java runtime and 
+	 * class path as the current JVM).
+	 * @param n the number of workers
+	 * @param host the host of the coordinator
+	 * @param port the port of the coordinator
+	 * @param parallelism number of replications run in parallel by each worker
+	 * @return the processes of the workers
+	 * @throws IOException
+	 */
+	public static Process[] launch(int n,String host,int port,int parallelism) throws IOException {
+		String java=System.getProperty("java.home")+File.separator+"bin"+File.separator+"java";
+		Process[] processes=new Process[n];
+		for(int i=0;i<n;i++) {
+			ProcessBuilder builder=new ProcessBuilder(java,"-cp",System.getProperty("java.class.path"),
+					ReplicationWorker.class.getName(),host,Integer.toString(port),Integer.toString(parallelism));
+			builder.inheritIO();
+			processes[i]=builder.start();
+		}
+		return processes;
+	}
+
+	/**
+	 * The main program
+	 * @param args host port [parallelism]
+	 * @throws IOException 
+	 */
+	public static void main(String[] args) throws IOException {
+		int parallelism=(args.length>2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		serve(args[0],Integer.parseInt(args[1]),parallelism);
+	}
+
+}
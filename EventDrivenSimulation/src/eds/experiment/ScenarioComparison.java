@@ -0,0 +1,91 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import eds.blocks.Tally;
+
+/**
+ * Paired comparison of an output between scenario variants of a system,
+ * simulated with common random numbers: the replication r of each 
+ * scenario uses the same random numbers (EDSimulator.setReplicationSeed()
+ * with the same seed), so the differences with scenario 0 are computed 
+ * replication by replication. Their confidence intervals are much 
+ * narrower than with independent replications when the output responds
+ * in the same way to the random numbers in each scenario.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ReplicationController , StudentT
+ */
+public final class ScenarioComparison {
+
+	private final int nbScenarios;
+	private final Tally[] values; // output of each scenario
+	private final Tally[] differences; // difference of each scenario with scenario 0
+	private final HashMap<Integer,double[]> pending=new HashMap<Integer,double[]>(); // incomplete replications
+
+	public ScenarioComparison(int nbScenarios) {
+		this.nbScenarios=nbScenarios;
+		values=new Tally[nbScenarios];
+		differences=new Tally[nbScenarios];
+		for(int s=0;s<nbScenarios;s++) {
+			values[s]=new Tally();
+			differences[s]=new Tally();
+		}
+	}
+
+	// Adds the output of replication r of scenario s. The differences 
+	// are updated when replication r is known for all the scenarios
+	public synchronized void add(int s,int r,double value) {
+		double[] outputs=pending.get(r);
+		if(outputs==null) {
+			outputs=new double[nbScenarios];
+			Arrays.fill(outputs,Double.NaN);
+			pending.put(r,outputs);
+		}
+		outputs[s]=value;
+		for(double v:outputs) {
+			if(Double.isNaN(v)) {return;}
+		}
+		pending.remove(r);
+		for(int k=0;k<nbScenarios;k++) {
+			values[k].add(outputs[k]);
+			differences[k].add(outputs[k]-outputs[0]);
+		}
+	}
+
+	// Number of replications known for all the scenarios
+	public synchronized long getReplications() {
+		return values[0].getCount();
+	}
+
+	// Mean of the output of scenario s
+	public synchronized double getMean(int s) {
+		return values[s].getMean();
+	}
+
+	// Half-width of the confidence interval of the mean of scenario s
+	public synchronized double getHalfWidth(int s,double confidence) {
+		return halfWidth(values[s],confidence);
+	}
+
+	// Mean difference between scenario s and scenario 0
+	public synchronized double getDifference(int s) {
+		return differences[s].getMean();
+	}
+
+	// Half-width of the confidence interval of the difference between scenario s and scenario 0
+	public synchronized double getDifferenceHalfWidth(int s,double confidence) {
+		return halfWidth(differences[s],confidence);
+	}
+
+	static double halfWidth(Tally tally,double confidence) {
+		if(tally.getCount()<2) {return Double.POSITIVE_INFINITY;}
+		return StudentT.quantile(0.5+confidence/2,(int)tally.getCount()-1)*tally.getStd()/Math.sqrt(tally.getCount());
+	}
+
+}
@@ -0,0 +1,21 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+/**
+ * Builds the scenarios of an experiment: each replication of each point 
+ * of the design runs in a scenario with new instances of the units, so 
+ * that replications can run in parallel.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ExperimentRunner , AScenario
+ */
+public interface ScenarioFactory {
+
+	// Builds a scenario whose parameters are the values of the factors 
+	// at one point (in the order of the factors of the design)
+	public AScenario create(double[] point);
+
+}
@@ -0,0 +1,255 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import eds.core.EDSimulator;
+import eds.core.EDSimulatorEvt;
+import eds.core.EDSimulatorListener;
+
+/**
+ * A steady-state controller: the outputs of a non-terminating system are
+ * estimated in one long run instead of independent replications, so the 
+ * transient period is simulated only once.
+ * The outputs are observed at regular intervals of simulated time (the 
+ * progress steps of the simulator): the observer writes the value of 
+ * each output over the last interval (the mean time in the system of the
+ * users who left, for instance), then the statistics of the units are 
+ * restarted (ASimUnit.resetStatistics()).
+ * The warm-up period is detected with the MSER-5 rule: until it is found,
+ * the observations are kept; at truncation the observations of the 
+ * warm-up are dropped and the following ones feed batch means, whose 
+ * confidence intervals are updated online. The simulator is asked to 
+ * stop as soon as every target precision is met, or at its end time.
+ * The listeners of the simulator must be synchronous (no asynchronous 
+ * notification), and its progress steps are set by the controller.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     WarmupDetector , BatchMeans , ReplicationObserver
+ */
+public final class SteadyStateController {
+
+	private final double confidence; // confidence level of the intervals
+	private int nbBatches=40; // maximum number of batches
+	private int minBatches=20; // no decision before this number of batches
+	// Outputs
+	private final ArrayList<String> names=new ArrayList<String>();
+	private double[] halfWidths=new double[0]; // target half-widths (0: none)
+	private double[] precisions=new double[0]; // target relative half-widths (0: none)
+	private BatchMeans[] batchMeans; // batch means of the outputs after warm-up
+	// Warm-up detection
+	private double[][] series; // observations of the outputs during warm-up detection
+	private double[] times; // times of the observations
+	private int nbObservations; // number of observations
+	private int nextCheck=100; // number of observations of the next detection
+	private double warmupTime=Double.NaN; // end of the warm-up period (NaN: not detected)
+	private int truncation; // number of observations dropped
+	// Run
+	private EDSimulator simulator=null; // the simulator of the long run
+	private boolean reached=false; // true if the targets were met
+
+	public SteadyStateController(double confidence) {
+		this.confidence=confidence;
+	}
+
+	public SteadyStateController() {
+		this(0.95);
+	}
+
+	/**
+	 * Adds an output, whose value over each interval is observed.
+	 * @param name the name of the output
+	 * @param halfWidth the target half-width of its interval (0 for none)
+	 * @param precision the target half-width relative to the mean (0 for none)
+	 * @return the index of the output in the observed values
+	 */
+	public synchronized int addOutput(String name,double halfWidth,double precision) {
+		names.add(name);
+		int n=names.size();
+		halfWidths=Arrays.copyOf(halfWidths,n);
+		precisions=Arrays.copyOf(precisions,n);
+		halfWidths[n-1]=halfWidth;
+		precisions[n-1]=precision;
+		return n-1;
+	}
+
+	/**
+	 * Attaches the simulator of the long run (one run, whose end time is 
+	 * the maximum duration of the simulation).
+	 * @param simulator the simulator
+	 * @param interval the simulated time between two observations
+	 * @param observer reads the outputs over the last interval
+	 */
+	public void attach(final EDSimulator simulator,double interval,final ReplicationObserver observer) {
+		synchronized(this) {
+			this.simulator=simulator;
+			series=new double[names.size()][1024];
+			times=new double[1024];
+			batchMeans=new BatchMeans[names.size()];
+			for(int k=0;k<batchMeans.length;k++) {batchMeans[k]=new BatchMeans(nbBatches);}
+		}
+		simulator.setNbRuns(1);
+		simulator.setProgress(EDSimulator.PROGRESS_SIMULATED_TIME,interval);
+		simulator.addSimulatorListener(new EDSimulatorListener() {
+			private final double[] values=new double[names.size()];
+			@Override
+			public void simulationStepped(EDSimulatorEvt e) {
+				observer.observe(values);
+				simulator.resetStatistics();
+				observe(e.getTime(),values);
+			}
+			@Override
+			public void simulationTerminated(EDSimulatorEvt e) {
+			}
+			@Override
+			public void simulationRunEnded(EDSimulatorEvt e) {
+			}
+		});
+	}
+
+	// Adds the observation of the outputs at time
+	private synchronized void observe(double time,double[] values) {
+		if(reached) {return;}
+		if(Double.isNaN(warmupTime)) {
+			if(nbObservations==times.length) {
+				times=Arrays.copyOf(times,2*nbObservations);
+				for(int k=0;k<series.length;k++) {series[k]=Arrays.copyOf(series[k],2*nbObservations);}
+			}
+			times[nbObservations]=time;
+			for(int k=0;k<series.length;k++) {series[k][nbObservations]=values[k];}
+			nbObservations++;
+			if(nbObservations>=nextCheck) {
+				nextCheck+=nextCheck/2;
+				detectWarmup();
+			}
+		}
+		else {
+			nbObservations++;
+			for(int k=0;k<values.length;k++) {batchMeans[k].add(values[k]);}
+		}
+		if((!Double.isNaN(warmupTime))&&targetsMet()) {
+			reached=true;
+			simulator.requestStop();
+		}
+	}
+
+	// Truncates the warm-up period if the MSER-5 rule finds it for every output
+	private void detectWarmup() {
+		int d=0;
+		for(int k=0;k<series.length;k++) {
+			int dk=WarmupDetector.mser(series[k],nbObservations,5);
+			if(dk<0) {return;}
+			d=Math.max(d,dk);
+		}
+		truncation=d;
+		warmupTime=(d>0) ? times[d-1] : simulator.getBeginTime();
+		for(int k=0;k<series.length;k++) {
+			for(int i=d;i<nbObservations;i++) {batchMeans[k].add(series[k][i]);}
+		}
+		series=null;
+		times=null;
+	}
+
+	private boolean targetsMet() {
+		for(int k=0;k<batchMeans.length;k++) {
+			if(batchMeans[k].getNbBatches()<minBatches) {return false;}
+			double h=getHalfWidth(k);
+			if((halfWidths[k]>0)&&(h>halfWidths[k])) {return false;}
+			if((precisions[k]>0)&&(h>precisions[k]*Math.abs(getMean(k)))) {return false;}
+		}
+		return true;
+	}
+
+	/**
+	 * Starts the simulator and waits for its end.
+	 * @throws InterruptedException
+	 */
+	public void run() throws InterruptedException {
+		simulator.start();
+		simulator.join();
+	}
+
+	private int indexOf(String name) {
+		int k=names.indexOf(name);
+		if(k<0) {throw new IllegalArgumentException("Unknown output: "+name);}
+		return k;
+	}
+
+	// Steady-state mean of output k (NaN before the end of the warm-up)
+	public synchronized double getMean(int k) {
+		if(Double.isNaN(warmupTime)) {return Double.NaN;}
+		return batchMeans[k].getMean();
+	}
+
+	public synchronized double getMean(String name) {
+		return getMean(indexOf(name));
+	}
+
+	// Half-width of the confidence interval of the mean of output k
+	public synchronized double getHalfWidth(int k) {
+		return batchMeans[k].getHalfWidth(confidence);
+	}
+
+	public synchronized double getHalfWidth(String name) {
+		return getHalfWidth(indexOf(name));
+	}
+
+	// Batch means of output k
+	public synchronized BatchMeans getBatchMeans(String name) {
+		return batchMeans[indexOf(name)];
+	}
+
+	/**
+	 * @return the end of the warm-up period (NaN if it was not detected)
+	 */
+	public synchronized double getWarmupTime() {
+		return warmupTime;
+	}
+
+	/**
+	 * @return the number of observations dropped with the warm-up
+	 */
+	public synchronized int getTruncation() {
+		return truncation;
+	}
+
+	/**
+	 * @return the number of observations
+	 */
+	public synchronized int getNbObservations() {
+		return nbObservations;
+	}
+
+	/**
+	 * @return true if the target precisions were met
+	 */
+	public synchronized boolean isPrecisionReached() {
+		return reached;
+	}
+
+	/**
+	 * @param nbBatches the maximum number of batches (even), before attach()
+	 */
+	public synchronized void setNbBatches(int nbBatches) {
+		this.nbBatches=nbBatches;
+	}
+
+	/**
+	 * @param minBatches the number of batches before any decision
+	 */
+	public synchronized void setMinBatches(int minBatches) {
+		this.minBatches=minBatches;
+	}
+
+	/**
+	 * @return the confidence level
+	 */
+	public double getConfidence() {
+		return confidence;
+	}
+
+}
@@ -0,0 +1,84 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+/**
+ * Quantiles of the Student t and standard normal distributions, used to
+ * compute confidence intervals. The normal quantile uses the rational 
+ * approximation of P. J. Acklam (relative error below 1.2e-9), the t 
+ * quantile the algorithm of G. W. Hill (Algorithm 396, CACM 1970).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ReplicationController
+ */
+public final class StudentT {
+
+	// Coefficients of the normal quantile approximation
+	private static final double[] A={-3.969683028665376e+01,2.209460984245205e+02,-2.759285104469687e+02,
+		1.383577518672690e+02,-3.066479806614716e+01,2.506628277459239e+00};
+	private static final double[] B={-5.447609879822406e+01,1.615858368580409e+02,-1.556989798598866e+02,
+		6.680131188771972e+01,-1.328068155288572e+01};
+	private static final double[] C={-7.784894002430293e-03,-3.223964580411365e-01,-2.400758277161838e+00,
+		-2.549732539343734e+00,4.374664141464968e+00,2.938163982698783e+00};
+	private static final double[] D={7.784695709041462e-03,3.224671290700398e-01,2.445134137142996e+00,
+		3.754408661907416e+00};
+
+	private StudentT() {
+	}
+
+	// Quantile of order p (0<p<1) of the standard normal distribution
+	public static double normalQuantile(double p) {
+		if((p<=0)||(p>=1)) {throw new IllegalArgumentException("Probability out of (0,1): "+p);}
+		double q,r;
+		if(p<0.02425) {
+			q=Math.sqrt(-2*Math.log(p));
+			return (((((C[0]*q+C[1])*q+C[2])*q+C[3])*q+C[4])*q+C[5])/((((D[0]*q+D[1])*q+D[2])*q+D[3])*q+1);
+		}
+		if(p>1-0.02425) {
+			q=Math.sqrt(-2*Math.log(1-p));
+			return -(((((C[0]*q+C[1])*q+C[2])*q+C[3])*q+C[4])*q+C[5])/((((D[0]*q+D[1])*q+D[2])*q+D[3])*q+1);
+		}
+		q=p-0.5;
+		r=q*q;
+		return (((((A[0]*r+A[1])*r+A[2])*r+A[3])*r+A[4])*r+A[5])*q/(((((B[0]*r+B[1])*r+B[2])*r+B[3])*r+B[4])*r+1);
+	}
+
+	// Quantile of order p (0.5<=p<1) of the Student t distribution with df degrees of freedom
+	public static double quantile(double p,int df) {
+		if((p<0.5)||(p>=1)) {throw new IllegalArgumentException("Probability out of [0.5,1): "+p);}
+		if(df<1) {throw new IllegalArgumentException("Degrees of freedom must be positive: "+df);}
+		double P=2*(1-p); // two-sided tail probability
+		if(P==1) {return 0;}
+		if(df==1) {
+			P*=Math.PI/2;
+			return Math.cos(P)/Math.sin(P);
+		}
+		if(df==2) {
+			return Math.sqrt(2/(P*(2-P))-2);
+		}
+		double n=df;
+		double a=1/(n-0.5);
+		double b=48/(a*a);
+		double c=((20700*a/b-98)*a-16)*a+96.36;
+		double d=((94.5/(b+c)-3)/b+1)*Math.sqrt(a*Math.PI/2)*n;
+		double x=d*P;
+		double y=Math.pow(x,2/n);
+		if(y>0.05+a) {
+			// Asymptotic inverse expansion about the normal
+			x=normalQuantile(0.5*P);
+			y=x*x;
+			if(df<5) {c+=0.3*(n-4.5)*(x+0.6);}
+			c=(((0.05*d*x-5)*x-7)*x-2)*x+b+c;
+			y=(((((0.4*y+6.3)*y+36)*y+94.5)/c-y-3)/b+1)*x;
+			y=a*y*y;
+			y=(y>0.002) ? Math.exp(y)-1 : 0.5*y*y+y;
+		}
+		else {
+			y=((1/(((n+6)/(n*y)-0.089*d-0.822)*(n+2)*3)+0.5/(n+4))*y-1)*(n+1)/(n+2)+1/y;
+		}
+		return Math.sqrt(n*y);
+	}
+
+}
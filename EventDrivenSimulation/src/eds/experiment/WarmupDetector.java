@@ -0,0 +1,57 @@
+/**
+ * 
+ */
+package eds.experiment;
+
+/**
+ * Detection of the warm-up period of a steady-state simulation with the 
+ * MSER-m rule (Marginal Standard Error Rule, m=5 usually): the 
+ * observations are averaged in batches of m, and the truncation point d 
+ * minimizes the squared standard error of the mean of the remaining 
+ * batches, sum((Z_i-mean_d)^2)/(n-d)^2 for i>=d. It is searched in the 
+ * first half of the series only: a minimum found at the limit means 
+ * that the series is too short.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     SteadyStateController
+ */
+public final class WarmupDetector {
+
+	private WarmupDetector() {
+	}
+
+	/**
+	 * @param x the observations
+	 * @param n the number of observations
+	 * @param m the size of the batches (5 for MSER-5)
+	 * @return the number of observations to truncate, or -1 if the 
+	 * series is too short to decide
+	 */
+	public static int mser(double[] x,int n,int m) {
+		int k=n/m;
+		if(k<10) {return -1;}
+		double[] z=new double[k];
+		for(int i=0;i<k;i++) {
+			double s=0;
+			for(int j=0;j<m;j++) {s+=x[i*m+j];}
+			z[i]=s/m;
+		}
+		// Sums of the batches from the end
+		double s1=0,s2=0;
+		int best=-1;
+		double min=Double.POSITIVE_INFINITY;
+		for(int d=k-1;d>=0;d--) {
+			s1+=z[d];
+			s2+=z[d]*z[d];
+			if(d<=k/2) {
+				int r=k-d;
+				double mser=Math.max(0,s2-s1*s1/r)/((double)r*r);
+				if(mser<=min) {min=mser;best=d;}
+			}
+		}
+		if(best>=k/2) {return -1;}
+		return best*m;
+	}
+
+}
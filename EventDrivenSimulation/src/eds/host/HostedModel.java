@@ -0,0 +1,21 @@
+/**
+ * 
+ */
+package eds.host;
+
+import eds.core.EDSimulator;
+
+/**
+ * Builds a simulation submitted to a SimulationHost: adds its units to 
+ * the simulator given by the host (and its listeners, number of runs...).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     SimulationHost , HostedSimulation
+ */
+public interface HostedModel {
+
+	// Adds the units of the simulation to simulator
+	public void build(EDSimulator simulator);
+
+}
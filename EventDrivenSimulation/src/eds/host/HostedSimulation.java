@@ -0,0 +1,144 @@
+/**
+ * 
+ */
+package eds.host;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import eds.core.AEventQueue;
+import eds.core.EDSimulator;
+
+/**
+ * A simulation run by a SimulationHost, by slices of events on the 
+ * threads of the host. Records the resources used by the simulation: 
+ * number of slices and events, CPU time and memory allocated by its 
+ * construction and its slices. Once completed, the results are read from 
+ * the units of the simulation; the simulator must not be started again, 
+ * since its event queue is reused by the host.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     SimulationHost
+ */
+public final class HostedSimulation {
+
+	private final EDSimulator simulator;
+	private AEventQueue queue; // pooled event queue of the simulator (null when released)
+	private final CompletableFuture<HostedSimulation> completion=new CompletableFuture<HostedSimulation>();
+	private volatile boolean cancelled=false;
+	// Accounting, updated by the thread running the slices
+	private long slices; // number of slices
+	private long cpuNanos; // CPU time of the slices
+	private long allocatedBytes; // memory allocated by the construction and the slices
+	private final long submitNanos; // submission time
+	private long endNanos; // completion time
+
+	HostedSimulation(EDSimulator simulator,AEventQueue queue,long allocatedBytes) {
+		this.simulator=simulator;
+		this.queue=queue;
+		this.allocatedBytes=allocatedBytes;
+		this.submitNanos=System.nanoTime();
+	}
+
+	// Plays the next slice of at most quantum events in the calling thread, 
+	// returns false if the simulation is completed
+	boolean slice(long quantum) {
+		if(cancelled) {
+			simulator.stop();
+			completion.completeExceptionally(new CancellationException());
+			return false;
+		}
+		long cpu=SimulationHost.cpuTime();
+		long bytes=SimulationHost.allocatedBytes();
+		try {
+			int state=simulator.execute(quantum);
+			account(cpu,bytes);
+			if(state==EDSimulator.STOPPED_STATE) {
+				completion.complete(this);
+				return false;
+			}
+			return true;
+		}
+		catch(RuntimeException|Error e) {
+			account(cpu,bytes);
+			completion.completeExceptionally(e);
+			return false;
+		}
+	}
+
+	private void account(long cpu,long bytes) {
+		slices++;
+		cpuNanos+=SimulationHost.cpuTime()-cpu;
+		allocatedBytes+=SimulationHost.allocatedBytes()-bytes;
+		endNanos=System.nanoTime();
+	}
+
+	// Returns the event queue to the pool of the host (once completed)
+	AEventQueue release() {
+		AEventQueue q=queue;
+		queue=null;
+		if(q!=null) {q.clear();}
+		return q;
+	}
+
+	/**
+	 * Cancels the simulation: it is stopped before its next slice, and its
+	 * future completes with a CancellationException.
+	 */
+	public void cancel() {
+		cancelled=true;
+	}
+
+	/**
+	 * @return the future of the simulation, completed when it is terminated
+	 */
+	public CompletableFuture<HostedSimulation> getCompletion() {
+		return completion;
+	}
+
+	/**
+	 * @return the simulator (read only once completed)
+	 */
+	public EDSimulator getSimulator() {
+		return simulator;
+	}
+
+	/**
+	 * @return the number of slices played
+	 */
+	public long getSlices() {
+		return slices;
+	}
+
+	/**
+	 * @return the number of events played
+	 */
+	public long getEvents() {
+		return simulator.getTotalEventCount();
+	}
+
+	/**
+	 * @return the CPU time of the slices in ns (0 if not supported by the JVM)
+	 */
+	public long getCpuTime() {
+		return cpuNanos;
+	}
+
+	/**
+	 * @return the memory allocated by the construction and the slices in bytes
+	 * (0 if not supported by the JVM)
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * @return the time between the submission and the completion in ns
+	 * (or the end of the last slice)
+	 */
+	public long getLatency() {
+		return endNanos-submitNanos;
+	}
+
+}
@@ -0,0 +1,185 @@
+/**
+ * 
+ */
+package eds.host;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eds.core.AEventQueue;
+import eds.core.EDSimulator;
+import eds.core.SortedEventQueue;
+
+/**
+ * Runs many small simulations on a fixed number of worker threads: each
+ * submitted simulation is played by slices of at most quantum events 
+ * (EDSimulator.execute(nbEvents)), the simulations waiting for a worker 
+ * in a FIFO ready queue (round robin). A long simulation thus cannot 
+ * hold a worker while short ones wait, and no thread is created per 
+ * simulation. The event queues of the completed simulations are cleared 
+ * and reused by the next submissions. The CPU time and the memory 
+ * allocated by each simulation are measured on the worker threads 
+ * (HotSpot thread allocation counters).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     HostedSimulation , HostedModel , EDSimulator
+ */
+public final class SimulationHost {
+
+	public static final long DEFAULT_QUANTUM=1000; // default number of events per slice
+
+	private static final ThreadMXBean THREADS=ManagementFactory.getThreadMXBean();
+
+	private final long quantum; // number of events per slice
+	private final Thread[] workers;
+	private final LinkedBlockingQueue<HostedSimulation> ready=new LinkedBlockingQueue<HostedSimulation>(); // simulations waiting for a slice
+	private final ConcurrentLinkedQueue<AEventQueue> queues=new ConcurrentLinkedQueue<AEventQueue>(); // event queues to reuse
+	private volatile boolean shutdown=false;
+	// Counters
+	private final AtomicLong submitted=new AtomicLong();
+	private final AtomicLong completed=new AtomicLong();
+	private final AtomicLong reused=new AtomicLong(); // number of reused event queues
+
+	/**
+	 * @param nbWorkers number of worker threads
+	 * @param quantum number of events per slice
+	 */
+	public SimulationHost(int nbWorkers,long quantum) {
+		if(quantum<=0) {throw new IllegalArgumentException("Invalid quantum: "+quantum);}
+		this.quantum=quantum;
+		workers=new Thread[nbWorkers];
+		for(int i=0;i<nbWorkers;i++) {
+			workers[i]=new Thread(new Runnable() {
+				@Override
+				public void run() {
+					work();
+				}
+			},"SimulationHost-"+i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * A host with one worker per processor.
+	 */
+	public SimulationHost() {
+		this(Runtime.getRuntime().availableProcessors(),DEFAULT_QUANTUM);
+	}
+
+	/**
+	 * Submits a simulation: a simulator of the time window is built by 
+	 * model, then queued for its first slice.
+	 * @param beginTime
+	 * @param endTime
+	 * @param model builder of the units of the simulation
+	 * @return the hosted simulation
+	 */
+	public HostedSimulation submit(double beginTime,double endTime,HostedModel model) {
+		if(shutdown) {throw new IllegalStateException("The host is shut down");}
+		long bytes=allocatedBytes();
+		AEventQueue queue=queues.poll();
+		if(queue==null) {queue=new SortedEventQueue();}
+		else {reused.incrementAndGet();}
+		EDSimulator simulator=new EDSimulator(beginTime,endTime,queue);
+		model.build(simulator);
+		HostedSimulation simulation=new HostedSimulation(simulator,queue,allocatedBytes()-bytes);
+		submitted.incrementAndGet();
+		ready.add(simulation);
+		return simulation;
+	}
+
+	// Loop of the worker threads
+	private void work() {
+		while(!shutdown) {
+			HostedSimulation simulation;
+			try {
+				simulation=ready.take();
+			} catch (InterruptedException e) {
+				break;
+			}
+			if(simulation.slice(quantum)) {
+				ready.add(simulation);
+			}
+			else {
+				queues.add(simulation.release());
+				completed.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Stops the workers after their current slice; the simulations which
+	 * are not completed are cancelled.
+	 */
+	public void shutdown() {
+		shutdown=true;
+		for(Thread worker:workers) {worker.interrupt();}
+		for(Thread worker:workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		HostedSimulation simulation;
+		while((simulation=ready.poll())!=null) {
+			simulation.cancel();
+			simulation.slice(quantum);
+		}
+	}
+
+	// CPU time of the current thread in ns (0 if not supported)
+	static long cpuTime() {
+		return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+	}
+
+	// Memory allocated by the current thread in bytes (0 if not supported)
+	static long allocatedBytes() {
+		if(THREADS instanceof com.sun.management.ThreadMXBean) {
+			long bytes=((com.sun.management.ThreadMXBean)THREADS).getCurrentThreadAllocatedBytes();
+			return (bytes>0) ? bytes : 0;
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the number of events per slice
+	 */
+	public long getQuantum() {
+		return quantum;
+	}
+
+	/**
+	 * @return the number of worker threads
+	 */
+	public int getNbWorkers() {
+		return workers.length;
+	}
+
+	/**
+	 * @return the number of submitted simulations
+	 */
+	public long getSubmitted() {
+		return submitted.get();
+	}
+
+	/**
+	 * @return the number of completed simulations
+	 */
+	public long getCompleted() {
+		return completed.get();
+	}
+
+	/**
+	 * @return the number of simulations built with a reused event queue
+	 */
+	public long getReusedQueues() {
+		return reused.get();
+	}
+
+}
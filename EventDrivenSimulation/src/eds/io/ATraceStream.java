@@ -0,0 +1,32 @@
+/**
+ * 
+ */
+package eds.io;
+
+/**
+ * the ancestor abstract class for the streams of event times read 
+ * from a trace (the arrival times of one production log, for instance).
+ * Times are read one at a time, in the order of the trace.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     TraceSource
+ */
+public abstract class ATraceStream {
+
+	// Returns true if the stream has at least one remaining time
+	abstract public boolean hasNext();
+
+	// Returns the next time of the stream
+	abstract public double next();
+
+	// Goes back to the beginning of the stream (new replication)
+	abstract public void rewind();
+
+	// Skips the n next times (restored checkpoint): streams that can seek
+	// override this method
+	public void skip(long n) {
+		for(long i=0;(i<n)&&hasNext();i++) {next();}
+	}
+
+}
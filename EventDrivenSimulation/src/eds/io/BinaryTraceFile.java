@@ -0,0 +1,131 @@
+/**
+ * 
+ */
+package eds.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A compact binary columnar trace file, read through memory-mapped buffers.
+ * The file contains several streams of times (one column per stream):
+ *   int    magic number ('EDST')
+ *   int    version
+ *   int    number of streams
+ *   long[] number of times of each stream
+ *   double[] times of stream 0, then times of stream 1, etc.
+ * All values are big-endian (DataOutputStream format). Each column is 
+ * mapped separately, so only the pages actually read are loaded in memory.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ATraceStream , TraceSource
+ */
+public final class BinaryTraceFile {
+
+	public static final int MAGIC=0x45445354; // 'EDST'
+	public static final int VERSION=1;
+
+	private final File file;
+	private final long[] counts; // number of times of each stream
+	private final long[] offsets; // file position of each column
+
+	public BinaryTraceFile(File file) throws IOException {
+		this.file=file;
+		try(RandomAccessFile raf=new RandomAccessFile(file,"r")) {
+			if(raf.readInt()!=MAGIC) {throw new IOException("Not a binary trace file: "+file);}
+			if(raf.readInt()!=VERSION) {throw new IOException("Unsupported binary trace version: "+file);}
+			int n=raf.readInt();
+			counts=new long[n];
+			offsets=new long[n];
+			long offset=12+8L*n;
+			for(int k=0;k<n;k++) {
+				counts[k]=raf.readLong();
+				offsets[k]=offset;
+				offset+=8*counts[k];
+			}
+			if(offset>raf.length()) {throw new IOException("Truncated binary trace file: "+file);}
+		}
+	}
+
+	/**
+	 * @return the number of streams
+	 */
+	public int getNbStreams() {
+		return counts.length;
+	}
+
+	/**
+	 * @return the number of times of stream k
+	 */
+	public long getCount(int k) {
+		return counts[k];
+	}
+
+	// Maps the column of stream k (at most 2^28 times per stream)
+	public ATraceStream getStream(int k) throws IOException {
+		if(counts[k]>Integer.MAX_VALUE/8) {throw new IOException("Stream too large to be mapped: "+k);}
+		try(RandomAccessFile raf=new RandomAccessFile(file,"r")) {
+			MappedByteBuffer buffer=raf.getChannel().map(FileChannel.MapMode.READ_ONLY,offsets[k],8*counts[k]);
+			return new MappedStream(buffer.asDoubleBuffer());
+		}
+	}
+
+	// Maps all the streams of the file
+	public ATraceStream[] getStreams() throws IOException {
+		ATraceStream[] streams=new ATraceStream[counts.length];
+		for(int k=0;k<counts.length;k++) {streams[k]=getStream(k);}
+		return streams;
+	}
+
+	// Writes a binary trace file, times[k] being the times of stream k
+	public static void write(File file,double[][] times) throws IOException {
+		try(DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),1<<16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(times.length);
+			for(double[] column:times) {out.writeLong(column.length);}
+			for(double[] column:times) {
+				for(double t:column) {out.writeDouble(t);}
+			}
+		}
+	}
+
+	// A stream reading one mapped column
+	private static final class MappedStream extends ATraceStream {
+
+		private final DoubleBuffer column;
+
+		MappedStream(DoubleBuffer column) {
+			this.column=column;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return column.hasRemaining();
+		}
+
+		@Override
+		public double next() {
+			return column.get();
+		}
+
+		@Override
+		public void rewind() {
+			column.rewind();
+		}
+
+		@Override
+		public void skip(long n) {
+			column.position((int)Math.min(column.limit(),column.position()+n));
+		}
+	}
+
+}
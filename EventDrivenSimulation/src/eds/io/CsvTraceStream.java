@@ -0,0 +1,157 @@
+/**
+ *
+ */
+package eds.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A stream of times read from one column of a CSV file (fields separated by
+ * ',' or ';', lines by '\n' or "\r\n"). The file is memory-mapped and the
+ * numbers are parsed directly from the mapped bytes, without creating any
+ * String, except for the rare values with more than 15 significant digits
+ * (fallback to Double.parseDouble, to keep exact values).
+ * Lines whose field is not a number (header, empty lines) are skipped.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ATraceStream , TraceSource
+ */
+public final class CsvTraceStream extends ATraceStream {
+
+	// Exact powers of ten (fast path of the number parsing)
+	private static final double[] POW10={1e0,1e1,1e2,1e3,1e4,1e5,1e6,1e7,1e8,1e9,1e10,
+		1e11,1e12,1e13,1e14,1e15,1e16,1e17,1e18,1e19,1e20,1e21,1e22};
+
+	private final MappedByteBuffer buffer; // the mapped file
+	private final int column; // index of the column of times
+	private double nextTime; // next time to be returned
+	private boolean hasNext; // false at the end of the file
+
+	public CsvTraceStream(File file,int column) throws IOException {
+		this.column=column;
+		try(RandomAccessFile raf=new RandomAccessFile(file,"r")) {
+			if(raf.length()>Integer.MAX_VALUE) {throw new IOException("CSV file too large to be mapped: "+file);}
+			buffer=raf.getChannel().map(FileChannel.MapMode.READ_ONLY,0,raf.length());
+		}
+		rewind();
+	}
+
+	public CsvTraceStream(File file) throws IOException {
+		this(file,0);
+	}
+
+	@Override
+	public boolean hasNext() {
+		return hasNext;
+	}
+
+	@Override
+	public double next() {
+		double t=nextTime;
+		advance();
+		return t;
+	}
+
+	@Override
+	public void rewind() {
+		buffer.rewind();
+		advance();
+	}
+
+	// Reads lines until a line with a number in the column is found
+	private void advance() {
+		while(buffer.hasRemaining()) {
+			int field=0;
+			// Skips the fields before the column
+			while(field<column && buffer.hasRemaining()) {
+				byte b=buffer.get();
+				if(b=='\n') {break;}
+				if((b==',')||(b==';')) {field++;}
+			}
+			if(field==column) {
+				if(parseField()) {
+					skipLine();
+					hasNext=true;
+					return;
+				}
+			}
+			else if(buffer.position()>0 && buffer.get(buffer.position()-1)=='\n') {
+				continue; // short line: already at the next line
+			}
+			skipLine();
+		}
+		hasNext=false;
+	}
+
+	private void skipLine() {
+		while(buffer.hasRemaining()) {
+			if(buffer.get()=='\n') {return;}
+		}
+	}
+
+	// Parses the number starting at the current position into nextTime.
+	// The position is left on the first character after the number.
+	private boolean parseField() {
+		int start=buffer.position();
+		int limit=buffer.limit();
+		int p=start;
+		while((p<limit)&&(buffer.get(p)==' ')) {p++;}
+		boolean negative=false;
+		if((p<limit)&&((buffer.get(p)=='-')||(buffer.get(p)=='+'))) {
+			negative=(buffer.get(p)=='-');
+			p++;
+		}
+		long mantissa=0;
+		int digits=0,scale=0;
+		boolean any=false;
+		byte b;
+		while((p<limit)&&((b=buffer.get(p))>='0')&&(b<='9')) {
+			if(digits<18) {mantissa=10*mantissa+(b-'0');if(mantissa!=0) digits++;}
+			else {scale++;}
+			any=true;p++;
+		}
+		if((p<limit)&&(buffer.get(p)=='.')) {
+			p++;
+			while((p<limit)&&((b=buffer.get(p))>='0')&&(b<='9')) {
+				if(digits<18) {mantissa=10*mantissa+(b-'0');if(mantissa!=0) digits++;scale--;}
+				any=true;p++;
+			}
+		}
+		if(!any) {return false;}
+		if((p<limit)&&((buffer.get(p)=='e')||(buffer.get(p)=='E'))) {
+			int q=p+1;
+			boolean negExp=false;
+			if((q<limit)&&((buffer.get(q)=='-')||(buffer.get(q)=='+'))) {negExp=(buffer.get(q)=='-');q++;}
+			int exp=0;
+			boolean expDigits=false;
+			while((q<limit)&&((b=buffer.get(q))>='0')&&(b<='9')) {
+				if(exp<100000) {exp=10*exp+(b-'0');}
+				expDigits=true;q++;
+			}
+			if(expDigits) {
+				scale+=negExp ? -exp : exp;
+				p=q;
+			}
+		}
+		if((digits<=15)&&(scale>=-22)&&(scale<=22)) {
+			// Exact operands: the result is correctly rounded
+			double value=(scale>=0) ? mantissa*POW10[scale] : mantissa/POW10[-scale];
+			nextTime=negative ? -value : value;
+		}
+		else {
+			byte[] bytes=new byte[p-start];
+			buffer.position(start);
+			buffer.get(bytes);
+			nextTime=Double.parseDouble(new String(bytes,StandardCharsets.US_ASCII).trim());
+		}
+		buffer.position(p);
+		return true;
+	}
+
+}
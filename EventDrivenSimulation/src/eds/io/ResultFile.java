@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package eds.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+/**
+ * A binary columnar result file written by a ResultSink. Only the block
+ * headers are read when the file is opened; the columns are read on demand
+ * through memory-mapped buffers. A file whose sink was not closed (crash
+ * of the simulation) is read up to its last complete block.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ResultSink
+ */
+public final class ResultFile {
+
+	private final File file;
+	private final String[] columns; // names of the columns
+	private final long[] blockOffsets; // file position of the values of each block
+	private final int[] blockRows; // number of rows of each block
+	private final long rowCount; // total number of rows
+	private final boolean complete; // false if the end of the file is missing
+
+	public ResultFile(File file) throws IOException {
+		this.file=file;
+		ArrayList<long[]> blocks=new ArrayList<long[]>();
+		boolean ended=false;
+		long rows=0;
+		try(RandomAccessFile raf=new RandomAccessFile(file,"r")) {
+			if(raf.readInt()!=ResultSink.MAGIC) {throw new IOException("Not a result file: "+file);}
+			if(raf.readInt()!=ResultSink.VERSION) {throw new IOException("Unsupported result file version: "+file);}
+			columns=new String[raf.readInt()];
+			for(int k=0;k<columns.length;k++) {columns[k]=raf.readUTF();}
+			long position=raf.getFilePointer();
+			long length=raf.length();
+			while(position+4<=length) {
+				raf.seek(position);
+				int n=raf.readInt();
+				if(n==0) {ended=true;break;}
+				long next=position+4+8L*n*columns.length;
+				if((n<0)||(next>length)) {break;}
+				blocks.add(new long[] {position+4,n});
+				rows+=n;
+				position=next;
+			}
+		}
+		blockOffsets=new long[blocks.size()];
+		blockRows=new int[blocks.size()];
+		for(int b=0;b<blocks.size();b++) {
+			blockOffsets[b]=blocks.get(b)[0];
+			blockRows[b]=(int)blocks.get(b)[1];
+		}
+		rowCount=rows;
+		complete=ended;
+	}
+
+	/**
+	 * @return the names of the columns
+	 */
+	public String[] getColumns() {
+		return columns.clone();
+	}
+
+	// Returns the index of the column name (-1 if not found)
+	public int getColumnIndex(String name) {
+		for(int k=0;k<columns.length;k++) {
+			if(columns[k].equals(name)) {return k;}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return false if the sink was not closed (the last rows may be lost)
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	// Reads column k (at most 2^31-1 rows)
+	public double[] readColumn(int k) throws IOException {
+		if(rowCount>Integer.MAX_VALUE) {throw new IOException("Column too large to be read: "+columns[k]);}
+		double[] values=new double[(int)rowCount];
+		int p=0;
+		try(RandomAccessFile raf=new RandomAccessFile(file,"r")) {
+			FileChannel channel=raf.getChannel();
+			for(int b=0;b<blockOffsets.length;b++) {
+				int n=blockRows[b];
+				DoubleBuffer block=channel.map(FileChannel.MapMode.READ_ONLY,blockOffsets[b]+8L*n*k,8L*n).asDoubleBuffer();
+				block.get(values,p,n);
+				p+=n;
+			}
+		}
+		return values;
+	}
+
+	public double[] readColumn(String name) throws IOException {
+		int k=getColumnIndex(name);
+		if(k<0) {throw new IOException("No column "+name+" in "+file);}
+		return readColumn(k);
+	}
+
+}
@@ -0,0 +1,246 @@
+/**
+ *
+ */
+package eds.io;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A sink streaming rows of numbers (per-event state changes, per-run
+ * summaries...) to a compact binary columnar file, read by ResultFile:
+ *   int    magic number ('EDSR')
+ *   int    version
+ *   int    number of columns
+ *   UTF[]  names of the columns
+ *   blocks of rows: int number of rows n (n>0), then the n values of
+ *          column 0, then the n values of column 1, etc.
+ *   int    0 (end of the file)
+ * All values are big-endian. Rows are batched column by column in a few
+ * recycled buffers, written by a background thread: adding a row only
+ * copies numbers, and the heap does not grow with the number of rows.
+ * When the writer is late, add() waits for a free buffer.
+ * A sink must be closed to write the end of the file (its writer is a 
+ * daemon thread, which does not keep the JVM alive: the rows of a sink 
+ * which is not closed are lost).
+ * Each row must have one value per column.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ResultFile
+ */
+public final class ResultSink implements Closeable {
+
+	public static final int MAGIC=0x45445352; // 'EDSR'
+	public static final int VERSION=1;
+
+	private static final int NB_BUFFERS=3; // number of recycled batches
+
+	private final File file;
+	private final String[] columns; // names of the columns
+	private final int batchSize; // number of rows per block
+	private final FileChannel channel;
+	private final ArrayBlockingQueue<Batch> free=new ArrayBlockingQueue<Batch>(NB_BUFFERS);
+	private final ArrayBlockingQueue<Batch> full=new ArrayBlockingQueue<Batch>(NB_BUFFERS+1);
+	private final Batch end=new Batch(0,0); // marks the end of the stream for the writer
+	private final Thread writer;
+	private Batch batch; // batch being filled
+	private long rowCount; // number of rows added
+	private volatile IOException error=null; // first error of the writer
+	private boolean closed=false;
+
+	public ResultSink(File file,int batchSize,String... columns) throws IOException {
+		if(columns.length==0) {throw new IllegalArgumentException("A result sink needs at least one column");}
+		this.file=file;
+		this.columns=columns.clone();
+		this.batchSize=Math.max(batchSize,1);
+		FileOutputStream out=new FileOutputStream(file);
+		channel=out.getChannel();
+		DataOutputStream header=new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeInt(VERSION);
+		header.writeInt(columns.length);
+		for(String name:columns) {header.writeUTF(name);}
+		header.flush();
+		for(int i=0;i<NB_BUFFERS;i++) {free.add(new Batch(columns.length,this.batchSize));}
+		batch=free.poll();
+		writer=new Thread(new Runnable() {
+			@Override
+			public void run() {
+				write();
+			}
+		},"ResultSink-"+file.getName());
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public ResultSink(File file,String... columns) throws IOException {
+		this(file,8192,columns);
+	}
+
+	// Adds a row (one value per column)
+	public void add(double[] row) {
+		check(row.length);
+		Batch b=batch;
+		for(int k=0;k<columns.length;k++) {b.values[k][b.rows]=row[k];}
+		added(b);
+	}
+
+	public void add(double c0) {
+		check(1);
+		Batch b=batch;
+		b.values[0][b.rows]=c0;
+		added(b);
+	}
+
+	public void add(double c0,double c1) {
+		check(2);
+		Batch b=batch;
+		b.values[0][b.rows]=c0;
+		b.values[1][b.rows]=c1;
+		added(b);
+	}
+
+	public void add(double c0,double c1,double c2) {
+		check(3);
+		Batch b=batch;
+		b.values[0][b.rows]=c0;
+		b.values[1][b.rows]=c1;
+		b.values[2][b.rows]=c2;
+		added(b);
+	}
+
+	// A row of n values must fill all the columns
+	private void check(int n) {
+		if(n!=columns.length) {throw new IllegalArgumentException("Row of "+n+" values in a sink of "+columns.length+" columns: "+file);}
+	}
+
+	private void added(Batch b) {
+		rowCount++;
+		if(++b.rows==batchSize) {submit();}
+	}
+
+	// Hands the current batch to the writer and takes a free one
+	private void submit() {
+		if(closed) {throw new IllegalStateException("Result sink closed: "+file);}
+		try {
+			full.put(batch);
+			batch=free.take();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while writing "+file,e);
+		}
+	}
+
+	// Hands the rows added so far to the writer (they are written asynchronously)
+	public void flush() {
+		if(batch.rows>0) {submit();}
+	}
+
+	// Writes the remaining rows and the end of the file, and waits for the writer
+	@Override
+	public void close() throws IOException {
+		if(closed) {return;}
+		flush();
+		closed=true;
+		try {
+			full.put(end);
+			writer.join();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing "+file,e);
+		}
+		finally {
+			channel.close();
+		}
+		if(error!=null) {throw error;}
+	}
+
+	// Background writer: writes the full batches and recycles them
+	private void write() {
+		ByteBuffer buffer=ByteBuffer.allocateDirect(4+8*batchSize);
+		DoubleBuffer doubles=buffer.position(4).slice().asDoubleBuffer();
+		buffer.clear();
+		try {
+			while(true) {
+				Batch b=full.take();
+				if(b==end) {
+					buffer.clear();
+					buffer.putInt(0).flip();
+					writeFully(buffer);
+					return;
+				}
+				if(error==null) {
+					try {
+						buffer.clear();
+						buffer.putInt(b.rows).flip();
+						writeFully(buffer);
+						for(double[] column:b.values) {
+							doubles.clear();
+							doubles.put(column,0,b.rows);
+							buffer.position(4).limit(4+8*b.rows);
+							writeFully(buffer);
+						}
+					}
+					catch(IOException e) {
+						error=e;
+					}
+				}
+				b.rows=0;
+				free.put(b);
+			}
+		}
+		catch(IOException e) {
+			if(error==null) {error=e;}
+		}
+		catch(InterruptedException e) {
+			if(error==null) {error=new IOException("Result writer interrupted: "+file,e);}
+		}
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {channel.write(buffer);}
+	}
+
+	/**
+	 * @return the names of the columns
+	 */
+	public String[] getColumns() {
+		return columns.clone();
+	}
+
+	/**
+	 * @return the number of rows added
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return the file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	// A block of rows, stored column by column
+	private static final class Batch {
+
+		final double[][] values;
+		int rows;
+
+		Batch(int nbColumns,int size) {
+			values=new double[nbColumns][size];
+		}
+	}
+
+}
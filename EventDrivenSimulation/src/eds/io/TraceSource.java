@@ -0,0 +1,118 @@
+/**
+ *
+ */
+package eds.io;
+
+import java.io.IOException;
+
+import eds.core.ASimUnit;
+import eds.core.StateInput;
+import eds.core.StateOutput;
+
+/**
+ * A simulation unit replaying the arrival times of one or several traces
+ * (ATraceStream) instead of sampling them: at each time read in a stream,
+ * the action of the target unit is played.
+ * The streams are read lazily: only the next arrival of each stream is
+ * pending in the schedule, so the memory used does not depend on the
+ * length of the traces. Arrival events use action codes (the stream
+ * index), so they bypass the String dispatch. Trace times are absolute
+ * times, shifted by an optional offset; a time lower than the current
+ * time is played at once. The checkpoints save the number of times read
+ * in each stream: a restored source skips them.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     ATraceStream , BinaryTraceFile , CsvTraceStream
+ */
+public final class TraceSource extends ASimUnit {
+
+	private final ATraceStream[] streams; // the traces to replay
+	private final ASimUnit target; // unit receiving the arrivals
+	private final String targetAction; // action played by the target unit
+	private double offset=0; // time shift applied to the trace times
+	private long nbArrivals; // number of arrivals replayed in the current run
+	private final long[] nbRead; // number of times read in each stream in the current run
+
+	public TraceSource(ASimUnit target,String targetAction,ATraceStream... streams) {
+		this.target=target;
+		this.targetAction=targetAction;
+		this.streams=streams;
+		this.nbRead=new long[streams.length];
+	}
+
+	@Override
+	public boolean init(double beginTime, double endTime) {
+		nbArrivals=0;
+		for(int k=0;k<streams.length;k++) {
+			streams[k].rewind();
+			nbRead[k]=0;
+			scheduleNext(k);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean play(int code) {
+		nbArrivals++;
+		target.play(targetAction);
+		scheduleNext(code);
+		return true;
+	}
+
+	@Override
+	public boolean play(String action) {
+		return false;
+	}
+
+	// Schedules the next arrival of stream k, if any
+	private void scheduleNext(int k) {
+		if(streams[k].hasNext()) {
+			double step=streams[k].next()+offset-getTime();
+			nbRead[k]++;
+			addEvent(Math.max(step,0),k);
+		}
+	}
+
+	@Override
+	public void saveState(StateOutput out) throws IOException {
+		out.writeLong(nbArrivals);
+		out.writeInt(streams.length);
+		for(long n:nbRead) {out.writeLong(n);}
+	}
+
+	// Called after init(), which rewound the streams: the times read before
+	// the checkpoint (the pending arrivals included) are skipped
+	@Override
+	public void loadState(StateInput in) throws IOException {
+		nbArrivals=in.readLong();
+		if(in.readInt()!=streams.length) {throw new IOException("Number of trace streams different from the checkpoint");}
+		for(int k=0;k<streams.length;k++) {
+			nbRead[k]=in.readLong();
+			streams[k].rewind();
+			streams[k].skip(nbRead[k]);
+		}
+	}
+
+	/**
+	 * @return the offset
+	 */
+	public final double getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @param offset the time shift applied to the trace times
+	 */
+	public final void setOffset(double offset) {
+		this.offset = offset;
+	}
+
+	/**
+	 * @return the number of arrivals replayed in the current run
+	 */
+	public final long getNbArrivals() {
+		return nbArrivals;
+	}
+
+}
@@ -0,0 +1,46 @@
+/**
+ * 
+ */
+package eds.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event committed at the end of each run by an instrumented simulator,
+ * with the counters of the event loop.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ */
+@Name("eds.EventLoopStats")
+@Label("Event Loop Statistics")
+@Category({"Simulation","Event Loop"})
+@Description("Counters of the event loop of a simulator, at the end of a run")
+public class EventLoopStatsEvent extends Event {
+
+	@Label("Run")
+	public int run;
+
+	@Label("Events Dispatched")
+	public long eventsDispatched;
+
+	@Label("Events Per Second")
+	public double eventsPerSecond;
+
+	@Label("Schedule High Water")
+	public int scheduleHighWater;
+
+	@Label("Insert Latency P99")
+	@Timespan(Timespan.NANOSECONDS)
+	public long insertP99;
+
+	@Label("Pop Latency P99")
+	@Timespan(Timespan.NANOSECONDS)
+	public long popP99;
+
+}
@@ -0,0 +1,31 @@
+/**
+ * 
+ */
+package eds.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event committed each time the number of pending events of a 
+ * schedule doubles (from 1024 events) during a run.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ */
+@Name("eds.ScheduleGrowth")
+@Label("Schedule Growth")
+@Category("Simulation")
+@Description("The number of pending events of a schedule doubled")
+public class ScheduleGrowthEvent extends Event {
+
+	@Label("Schedule Size")
+	public int size;
+
+	@Label("Simulated Time")
+	public double time;
+
+}
@@ -0,0 +1,42 @@
+/**
+ * 
+ */
+package eds.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+
+/**
+ * JFR event committed at each progress step of a simulator, to correlate 
+ * the simulated time with GC pauses and CPU samples.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ */
+@Name("eds.SimulationProgress")
+@Label("Simulation Progress")
+@Category("Simulation")
+@Description("Progress step of a simulator")
+public class SimulationProgressEvent extends Event {
+
+	@Label("Run")
+	public int run;
+
+	@Label("Simulated Time")
+	public double time;
+
+	@Label("Progress")
+	@Percentage
+	public double progress;
+
+	@Label("Schedule Size")
+	public int scheduleSize;
+
+	@Label("Events")
+	public long events;
+
+}
@@ -0,0 +1,40 @@
+/**
+ * 
+ */
+package eds.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning one run (replication) of a simulator, from its 
+ * initialization to its last event.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ */
+@Name("eds.SimulationRun")
+@Label("Simulation Run")
+@Category("Simulation")
+@Description("One run (replication) of a simulator")
+public class SimulationRunEvent extends Event {
+
+	@Label("Run")
+	public int run;
+
+	@Label("Number of Runs")
+	public int nbRuns;
+
+	@Label("Simulated Begin Time")
+	public double beginTime;
+
+	@Label("Simulated End Time")
+	public double endTime;
+
+	@Label("Events")
+	public long events;
+
+}
@@ -0,0 +1,299 @@
+/**
+ * 
+ */
+package eds.parallel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+
+import eds.core.AEventRouter;
+import eds.core.ASimUnit;
+import eds.core.EDSimulator;
+import eds.core.Event;
+
+/**
+ * One partition of a PartitionedModel: a simulator with the units owned
+ * by this partition, and proxies of the units of the other partitions 
+ * they send events to. The events of the proxies are routed to batches,
+ * one per destination partition, exchanged by the PartitionCoordinator 
+ * at the end of each window. The synchronisation is conservative, by 
+ * windows (YAWNS): if T is the time of the earliest event of all the 
+ * partitions (pending or in a batch), no partition can receive an event 
+ * before T+lookahead, so each partition plays its events before 
+ * T+lookahead independently, then the batches are exchanged and the next
+ * window is computed. An event sent to another partition before the end
+ * of the window breaks the declared lookahead (IllegalStateException).
+ * A partition of a model in a single partition runs the whole model
+ * without windows (run()), the sequential reference of the parallel runs.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     PartitionedModel , PartitionCoordinator , PartitionWorker
+ */
+public final class Partition {
+
+	private final PartitionedModel model;
+	private final int index; // index of this partition (0 to nbPartitions-1)
+	private final int nbPartitions;
+	private final EDSimulator simulator; // simulator of the local units
+	private final int[] owners; // partition of each unit (by global id)
+	private final ASimUnit[] units; // local units and proxies of the remote units (by global id, null if not used)
+	private final Outbox[] outboxes; // events sent to each partition (null for this one)
+	private final ArrayList<ArrayList<String>> received=new ArrayList<ArrayList<String>>(); // actions received from each partition
+	private double windowEnd; // end of the current window: no event can be sent before
+	private long sentEvents=0; // number of events sent to other partitions
+	private long receivedEvents=0; // number of events received from other partitions
+
+	/**
+	 * Builds the whole model in a single partition.
+	 * @param model the model
+	 */
+	public Partition(PartitionedModel model) {
+		this(model,0,1);
+	}
+
+	/**
+	 * Builds the units of partition index of model.
+	 * @param model the model
+	 * @param index the index of this partition (0 to nbPartitions-1)
+	 * @param nbPartitions the number of partitions
+	 */
+	public Partition(PartitionedModel model,int index,int nbPartitions) {
+		if((index<0)||(index>=nbPartitions)) {throw new IllegalArgumentException("Invalid partition: "+index);}
+		this.model=model;
+		this.index=index;
+		this.nbPartitions=nbPartitions;
+		this.windowEnd=model.getBeginTime();
+		simulator=new EDSimulator(model.getBeginTime(),model.getEndTime());
+		simulator.setNbRuns(1);
+		// The local schedule may be empty until events are received
+		simulator.setOpen(true);
+		// Windows are played in the calling thread
+		simulator.setExecutor(new Executor() {
+			@Override
+			public void execute(Runnable task) {
+				task.run();
+			}
+		});
+		int n=model.getNbUnits();
+		owners=new int[n];
+		units=new ASimUnit[n];
+		for(int u=0;u<n;u++) {
+			owners[u]=model.getPartition(u,nbPartitions);
+			if((owners[u]<0)||(owners[u]>=nbPartitions)) {throw new IllegalArgumentException("Invalid partition of unit "+u+": "+owners[u]);}
+		}
+		for(int u=0;u<n;u++) {
+			if(owners[u]==index) {
+				units[u]=model.newUnit(u,this);
+				simulator.addSimUnit(units[u]);
+			}
+		}
+		outboxes=new Outbox[nbPartitions];
+		for(int p=0;p<nbPartitions;p++) {
+			if(p!=index) {outboxes[p]=new Outbox();}
+			received.add(new ArrayList<String>());
+		}
+		if(nbPartitions>1) {
+			simulator.setEventRouter(new AEventRouter() {
+				@Override
+				public boolean route(Event evt) {
+					if(!(evt.getUnit() instanceof RemoteUnit)) {return false;}
+					send((RemoteUnit)evt.getUnit(),evt);
+					return true;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Runs the whole model (single partition) from its begin time to its 
+	 * end time, the events at the end time included.
+	 * @return the outputs of the model
+	 */
+	public double[] run() {
+		if(nbPartitions!=1) {throw new IllegalStateException("The model has "+nbPartitions+" partitions");}
+		simulator.runUntil(model.getEndTime());
+		return observe();
+	}
+
+	// Initializes the units (events sent at the begin time at the earliest)
+	// and returns the time of the next local event
+	double start() {
+		simulator.runUntil(Math.nextDown(model.getBeginTime()));
+		return simulator.getNextEventTime();
+	}
+
+	// Plays the events of the window ending at windowEnd, up to until, and
+	// returns the time of the next local event
+	double advance(double windowEnd,double until) {
+		this.windowEnd=windowEnd;
+		simulator.runUntil(until);
+		return simulator.getNextEventTime();
+	}
+
+	// Event for the proxy of a unit of another partition
+	private void send(RemoteUnit unit,Event evt) {
+		if(evt.getTime()<windowEnd) {
+			throw new IllegalStateException("Lookahead violated: event at "+evt.getTime()+" for unit "+unit.unit+" before the end of the window ("+windowEnd+")");
+		}
+		outboxes[unit.partition].write(evt,unit.unit);
+		sentEvents++;
+	}
+
+	// Writes the batch of each other partition (in index order) and empties it
+	void writeBatches(DataOutputStream out) throws IOException {
+		for(int p=0;p<nbPartitions;p++) {
+			if(p!=index) {outboxes[p].writeTo(out);}
+		}
+	}
+
+	// Reads the batch of each other partition (in index order) and schedules its events
+	void readBatches(DataInputStream in) throws IOException {
+		for(int p=0;p<nbPartitions;p++) {
+			if(p==index) {continue;}
+			int n=in.readInt();
+			in.readInt(); // length of the batch
+			ArrayList<String> actions=received.get(p);
+			for(int i=0;i<n;i++) {
+				double time=in.readDouble();
+				ASimUnit unit=units[in.readInt()];
+				int code=in.readInt();
+				if(code<-1) {
+					int a=-2-code;
+					if(a==actions.size()) {actions.add(in.readUTF());}
+					simulator.addEvent(new Event(time,unit,actions.get(a)));
+				}
+				else if(code==-1) {
+					simulator.addEvent(new Event(time,unit,(String)null));
+				}
+				else {
+					simulator.addEvent(new Event(time,unit,code));
+				}
+			}
+			receivedEvents+=n;
+		}
+	}
+
+	// Outputs of the local units
+	double[] observe() {
+		double[] values=new double[model.getNbOutputs()];
+		model.observe(this,values);
+		return values;
+	}
+
+	/**
+	 * @param unit the global id of a unit
+	 * @return the unit if it is local, else its proxy (to send it events)
+	 */
+	public ASimUnit getUnit(int unit) {
+		if((units[unit]==null)&&(owners[unit]!=index)) {units[unit]=new RemoteUnit(unit,owners[unit]);}
+		return units[unit];
+	}
+
+	/**
+	 * @param unit the global id of a unit
+	 * @return true if the unit belongs to this partition
+	 */
+	public boolean isLocal(int unit) {
+		return owners[unit]==index;
+	}
+
+	/**
+	 * @return the index of this partition
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the number of partitions of the model
+	 */
+	public int getNbPartitions() {
+		return nbPartitions;
+	}
+
+	/**
+	 * @return the simulator of the local units
+	 */
+	public EDSimulator getSimulator() {
+		return simulator;
+	}
+
+	/**
+	 * @return the number of events played by the local units
+	 */
+	public long getEventCount() {
+		return simulator.getTotalEventCount();
+	}
+
+	/**
+	 * @return the number of events sent to other partitions
+	 */
+	public long getSentEvents() {
+		return sentEvents;
+	}
+
+	/**
+	 * @return the number of events received from other partitions
+	 */
+	public long getReceivedEvents() {
+		return receivedEvents;
+	}
+
+	// Batch of the events sent to one partition during a window
+	private static final class Outbox {
+
+		private final ByteArrayOutputStream bytes=new ByteArrayOutputStream(); // encoded events
+		private final DataOutputStream data=new DataOutputStream(bytes);
+		private final HashMap<String,Integer> actions=new HashMap<String,Integer>(); // numbers of the actions already sent
+		private int size=0; // number of events of the batch
+		private double minTime=Double.POSITIVE_INFINITY; // time of the earliest event of the batch
+
+		void write(Event evt,int unit) {
+			try {
+				data.writeDouble(evt.getTime());
+				data.writeInt(unit);
+				// Routed events are not inserted: a String action has no code yet
+				String action=evt.getAction();
+				if(action!=null) {
+					Integer a=actions.get(action);
+					if(a==null) {
+						a=actions.size();
+						actions.put(action,a);
+						data.writeInt(-2-a);
+						data.writeUTF(action);
+					}
+					else {
+						data.writeInt(-2-a);
+					}
+				}
+				else {
+					data.writeInt(evt.getCode());
+				}
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			size++;
+			minTime=Math.min(minTime,evt.getTime());
+		}
+
+		void writeTo(DataOutputStream out) throws IOException {
+			out.writeInt(size);
+			out.writeDouble(minTime);
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+			bytes.reset();
+			size=0;
+			minTime=Double.POSITIVE_INFINITY;
+		}
+
+	}
+
+}
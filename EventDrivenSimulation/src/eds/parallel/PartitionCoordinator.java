@@ -0,0 +1,226 @@
+/**
+ * 
+ */
+package eds.parallel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Runs one replication of a PartitionedModel on PartitionWorker processes
+ * (other JVMs, on this machine or others), one per partition: the workers
+ * connect to the server socket of the coordinator, which numbers their
+ * partitions in connection order and synchronises them by windows. At 
+ * the end of a window, each worker reports the time of its next event 
+ * and the batches of events sent to the other partitions; the coordinator
+ * forwards the batches and starts the next window, from the earliest 
+ * event T of all the partitions to T+lookahead. The simulation ends when
+ * no event remains before the end time of the model. The exchanges go 
+ * through the coordinator (one round trip per window): a model with a 
+ * large lookahead, relative to the mean time between two events of a 
+ * partition, gives large windows and few exchanges.
+ * The outputs are the sums of the outputs of the partitions. With the 
+ * units seeded from their global id, they do not depend on the number
+ * of partitions (but for events of different partitions at identical 
+ * times).
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     PartitionWorker , Partition , PartitionedModel
+ */
+public final class PartitionCoordinator {
+
+	private final String modelClass; // class name of the model, built by the workers
+	private final PartitionedModel model; // the model, for its lookahead, end time and outputs
+	private final int nbPartitions;
+	private int timeout=5*60*1000; // maximum silence of a worker (ms), 0 for none
+	// Statistics of the last run
+	private long windows=0; // number of windows
+	private long exchangedEvents=0; // number of events sent between partitions
+	private long eventCount=0; // number of events played by all the partitions
+	private double duration=0; // duration (s)
+
+	public PartitionCoordinator(Class<? extends PartitionedModel> modelClass,int nbPartitions) {
+		this(modelClass.getName(),nbPartitions);
+	}
+
+	public PartitionCoordinator(String modelClass,int nbPartitions) {
+		if(nbPartitions<1) {throw new IllegalArgumentException("Invalid number of partitions: "+nbPartitions);}
+		this.modelClass=modelClass;
+		this.model=PartitionWorker.newModel(modelClass);
+		this.nbPartitions=nbPartitions;
+		if(!(model.getLookahead()>0)) {throw new IllegalArgumentException("Invalid lookahead: "+model.getLookahead());}
+	}
+
+	/**
+	 * Starts one worker per partition in new JVMs of this machine, and runs
+	 * the model.
+	 * @return the outputs of the model
+	 * @throws IOException
+	 */
+	public double[] runLocal() throws IOException {
+		try(ServerSocket server=new ServerSocket(0,nbPartitions,InetAddress.getLoopbackAddress())) {
+			Process[] processes=PartitionWorker.launch(nbPartitions,server.getInetAddress().getHostAddress(),server.getLocalPort());
+			try {
+				double[] values=run(server);
+				for(Process process:processes) {process.waitFor();}
+				return values;
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted");
+			}
+			finally {
+				for(Process process:processes) {process.destroy();}
+			}
+		}
+	}
+
+	/**
+	 * Waits for one worker per partition on server, and runs the model.
+	 * @param server the server socket the workers connect to
+	 * @return the outputs of the model
+	 * @throws IOException if a worker fails or is lost
+	 */
+	public double[] run(ServerSocket server) throws IOException {
+		long begin=System.nanoTime();
+		windows=0;
+		exchangedEvents=0;
+		eventCount=0;
+		Socket[] sockets=new Socket[nbPartitions];
+		DataInputStream[] ins=new DataInputStream[nbPartitions];
+		DataOutputStream[] outs=new DataOutputStream[nbPartitions];
+		try {
+			server.setSoTimeout(timeout);
+			for(int p=0;p<nbPartitions;p++) {
+				sockets[p]=server.accept();
+				sockets[p].setSoTimeout(timeout);
+				sockets[p].setTcpNoDelay(true);
+				ins[p]=new DataInputStream(new BufferedInputStream(sockets[p].getInputStream(),1<<16));
+				outs[p]=new DataOutputStream(new BufferedOutputStream(sockets[p].getOutputStream(),1<<16));
+				if((ins[p].readInt()!=PartitionProtocol.MAGIC)||(ins[p].readInt()!=PartitionProtocol.VERSION)) {
+					throw new IOException("Not a partition worker");
+				}
+				outs[p].writeByte(PartitionProtocol.SETUP);
+				outs[p].writeUTF(modelClass);
+				outs[p].writeInt(p);
+				outs[p].writeInt(nbPartitions);
+				outs[p].flush();
+			}
+			double lookahead=model.getLookahead();
+			double endTime=model.getEndTime();
+			int[][] sizes=new int[nbPartitions][nbPartitions]; // number of events sent by a partition to another
+			byte[][][] batches=new byte[nbPartitions][nbPartitions][]; // events sent by a partition to another
+			while(true) {
+				// Reports: the earliest event of all the partitions starts the window
+				double t=Double.POSITIVE_INFINITY;
+				for(int p=0;p<nbPartitions;p++) {
+					DataInputStream in=ins[p];
+					if(in.readByte()!=PartitionProtocol.REPORT) {throw new IOException("Unexpected message of partition "+p);}
+					t=Math.min(t,in.readDouble());
+					for(int q=0;q<nbPartitions;q++) {
+						if(q==p) {continue;}
+						sizes[p][q]=in.readInt();
+						t=Math.min(t,in.readDouble());
+						batches[p][q]=new byte[in.readInt()];
+						in.readFully(batches[p][q]);
+						exchangedEvents+=sizes[p][q];
+					}
+				}
+				if(!(t<=endTime)) {break;}
+				// Window [t,t+lookahead), the events at the end time included
+				double windowEnd=t+lookahead;
+				double until=Math.min(Math.nextDown(windowEnd),endTime);
+				windows++;
+				for(int q=0;q<nbPartitions;q++) {
+					DataOutputStream out=outs[q];
+					out.writeByte(PartitionProtocol.WINDOW);
+					out.writeDouble(windowEnd);
+					out.writeDouble(until);
+					for(int p=0;p<nbPartitions;p++) {
+						if(p==q) {continue;}
+						out.writeInt(sizes[p][q]);
+						out.writeInt(batches[p][q].length);
+						out.write(batches[p][q]);
+					}
+					out.flush();
+				}
+			}
+			// Outputs
+			for(DataOutputStream out:outs) {
+				out.writeByte(PartitionProtocol.END);
+				out.flush();
+			}
+			double[] values=new double[model.getNbOutputs()];
+			for(int p=0;p<nbPartitions;p++) {
+				DataInputStream in=ins[p];
+				if(in.readByte()!=PartitionProtocol.RESULT) {throw new IOException("Unexpected message of partition "+p);}
+				eventCount+=in.readLong();
+				for(int i=0;i<values.length;i++) {values[i]+=in.readDouble();}
+			}
+			return values;
+		}
+		finally {
+			for(Socket socket:sockets) {
+				if(socket!=null) {socket.close();}
+			}
+			duration=(System.nanoTime()-begin)/1e9;
+		}
+	}
+
+	/**
+	 * @param timeout the maximum time (ms) to wait for a worker (0 for none)
+	 */
+	public void setTimeout(int timeout) {
+		this.timeout=timeout;
+	}
+
+	/**
+	 * @return the maximum time (ms) to wait for a worker
+	 */
+	public int getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * @return the number of partitions
+	 */
+	public int getNbPartitions() {
+		return nbPartitions;
+	}
+
+	/**
+	 * @return the number of windows of the last run
+	 */
+	public long getWindows() {
+		return windows;
+	}
+
+	/**
+	 * @return the number of events sent between partitions during the last run
+	 */
+	public long getExchangedEvents() {
+		return exchangedEvents;
+	}
+
+	/**
+	 * @return the number of events played by all the partitions during the last run
+	 */
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * @return the duration (in s) of the last run
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+}
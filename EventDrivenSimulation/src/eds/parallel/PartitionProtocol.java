@@ -0,0 +1,42 @@
+/**
+ * 
+ */
+package eds.parallel;
+
+/**
+ * Messages between a PartitionCoordinator and its PartitionWorker 
+ * processes (DataOutput encoding over a socket). The worker sends MAGIC and VERSION,
+ * then receives SETUP: the class name of the model, the index of its 
+ * partition and the number of partitions. It then initializes its 
+ * partition and sends a REPORT: the time of its next local event, and 
+ * for each other partition (in index order) the number of events sent,
+ * the time of the earliest one, the length and the bytes of the batch.
+ * The coordinator answers a WINDOW: the end of the window, the time to
+ * run until, and for each other partition (in index order) the number
+ * of events received, the length and the bytes of the batch. The worker
+ * plays its window and sends its next REPORT, until END: it then sends
+ * its RESULT (number of events played, outputs of its units).
+ * The events of a batch are encoded as time, global unit id and code; 
+ * String actions are numbered per pair of partitions, their name 
+ * following their first use.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     PartitionCoordinator , PartitionWorker , Partition
+ */
+final class PartitionProtocol {
+
+	static final int MAGIC=0x45445050; // 'EDPP'
+	static final int VERSION=1;
+
+	// Message codes
+	static final byte SETUP=1; // model class, partition, number of partitions
+	static final byte REPORT=2; // next local time, batches sent
+	static final byte WINDOW=3; // window end, run until, batches received
+	static final byte END=4; // no more windows
+	static final byte RESULT=5; // number of events, outputs
+
+	private PartitionProtocol() {
+	}
+
+}
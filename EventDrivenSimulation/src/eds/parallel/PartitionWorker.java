@@ -0,0 +1,116 @@
+/**
+ * 
+ */
+package eds.parallel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * A process running one partition of a model for a PartitionCoordinator:
+ * connects to the coordinator, builds the model from its class name and 
+ * the units of its partition, then plays the windows given by the 
+ * coordinator, sending the events of the units of the other partitions
+ * in batches at the end of each window. launch() starts workers in new 
+ * JVMs of this machine, with the class path of the current JVM.
+ *
+ * Usage: java eds.parallel.PartitionWorker host port
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     PartitionCoordinator , Partition
+ */
+public final class PartitionWorker {
+
+	private PartitionWorker() {
+	}
+
+	/**
+	 * Runs the partition given by the coordinator until its END message.
+	 * @param host the host of the coordinator
+	 * @param port the port of the coordinator
+	 * @throws IOException
+	 */
+	public static void serve(String host,int port) throws IOException {
+		try(Socket socket=new Socket(host,port)) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in=new DataInputStream(new BufferedInputStream(socket.getInputStream(),1<<16));
+			DataOutputStream out=new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),1<<16));
+			out.writeInt(PartitionProtocol.MAGIC);
+			out.writeInt(PartitionProtocol.VERSION);
+			out.flush();
+			// Setup
+			if(in.readByte()!=PartitionProtocol.SETUP) {throw new IOException("Unexpected message");}
+			PartitionedModel model=newModel(in.readUTF());
+			int index=in.readInt();
+			int nbPartitions=in.readInt();
+			Partition partition=new Partition(model,index,nbPartitions);
+			double next=partition.start();
+			// Windows
+			while(true) {
+				out.writeByte(PartitionProtocol.REPORT);
+				out.writeDouble(next);
+				partition.writeBatches(out);
+				out.flush();
+				byte message=in.readByte();
+				if(message==PartitionProtocol.END) {break;}
+				if(message!=PartitionProtocol.WINDOW) {throw new IOException("Unexpected message");}
+				double windowEnd=in.readDouble();
+				double until=in.readDouble();
+				partition.readBatches(in);
+				next=partition.advance(windowEnd,until);
+			}
+			// Outputs
+			out.writeByte(PartitionProtocol.RESULT);
+			out.writeLong(partition.getEventCount());
+			for(double v:partition.observe()) {out.writeDouble(v);}
+			out.flush();
+		}
+	}
+
+	// Builds a model from the name of its class
+	static PartitionedModel newModel(String name) {
+		try {
+			return (PartitionedModel)Class.forName(name).getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException|ClassCastException e) {
+			throw new IllegalArgumentException("Cannot build the model "+name,e);
+		}
+	}
+
+	/**
+	 * Starts n workers in new JVMs of this machine (same Java runtime and 
+	 * class path as the current JVM).
+	 * @param n the number of workers
+	 * @param host the host of the coordinator
+	 * @param port the port of the coordinator
+	 * @return the processes of the workers
+	 * @throws IOException
+	 */
+	public static Process[] launch(int n,String host,int port) throws IOException {
+		String java=System.getProperty("java.home")+File.separator+"bin"+File.separator+"java";
+		Process[] processes=new Process[n];
+		for(int i=0;i<n;i++) {
+			ProcessBuilder builder=new ProcessBuilder(java,"-cp",System.getProperty("java.class.path"),
+					PartitionWorker.class.getName(),host,Integer.toString(port));
+			builder.inheritIO();
+			processes[i]=builder.start();
+		}
+		return processes;
+	}
+
+	/**
+	 * The main program
+	 * @param args host port
+	 * @throws IOException 
+	 */
+	public static void main(String[] args) throws IOException {
+		serve(args[0],Integer.parseInt(args[1]));
+	}
+
+}
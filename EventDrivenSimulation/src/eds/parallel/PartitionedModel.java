@@ -0,0 +1,48 @@
+/**
+ * 
+ */
+package eds.parallel;
+
+import eds.core.ASimUnit;
+
+/**
+ * A model whose units are spread over the partitions of a parallel 
+ * simulation (Partition). The units have global ids, from 0 to 
+ * getNbUnits()-1, and each partition only builds its own units. An event
+ * sent to a unit of another partition must occur at least getLookahead()
+ * after the current time (the minimum delay between two units of 
+ * different partitions: transport or communication times...).
+ * The class must have a public constructor without parameters, and be
+ * in the class path of the PartitionWorker processes.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     Partition , PartitionCoordinator
+ */
+public interface PartitionedModel {
+
+	// Number of units of the whole model
+	public int getNbUnits();
+
+	// Partition (0 to nbPartitions-1) of the unit of global id unit
+	public int getPartition(int unit,int nbPartitions);
+
+	// Minimum delay of the events sent to the units of another partition (>0)
+	public double getLookahead();
+
+	public double getBeginTime();
+
+	public double getEndTime();
+
+	// Builds the unit of global id unit, owned by partition. The other units
+	// are found by partition.getUnit() once all are built (in init(), for instance)
+	public ASimUnit newUnit(int unit,Partition partition);
+
+	// Number of outputs of the model
+	public int getNbOutputs();
+
+	// Adds the outputs of the local units of partition to values (the 
+	// outputs of the whole model are the sums over the partitions)
+	public void observe(Partition partition,double[] values);
+
+}
@@ -0,0 +1,38 @@
+/**
+ * 
+ */
+package eds.parallel;
+
+import eds.core.ASimUnit;
+
+/**
+ * The proxy of a unit of another partition: the events of a proxy are
+ * taken by the router of its Partition and sent to the partition of the
+ * unit, they are never played locally.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     Partition
+ */
+final class RemoteUnit extends ASimUnit {
+
+	final int unit; // global id of the unit
+	final int partition; // partition of the unit
+
+	RemoteUnit(int unit,int partition) {
+		this.unit=unit;
+		this.partition=partition;
+		this.name="remote"+unit;
+	}
+
+	@Override
+	public boolean play(String action) {
+		throw new IllegalStateException("Event of a remote unit played locally: "+name);
+	}
+
+	@Override
+	public boolean init(double beginTime,double endTime) {
+		return true;
+	}
+
+}
@@ -0,0 +1,176 @@
+/**
+ * 
+ */
+package eds.process;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * the ancestor abstract class for the processes of the process-interaction
+ * view: the whole life of an entity is written in body(), as a sequence 
+ * of hold(dt), request(facility) and release(facility) calls, instead of
+ * being split into the actions of a unit.
+ * Each process runs on its own thread (a virtual thread when available), 
+ * but the threads never run concurrently: the event schedule remains the 
+ * only scheduler. When the event of a process is played, the simulation 
+ * thread hands the control over to the process and waits until the 
+ * process holds, waits or ends; the process then hands the control back.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     AProcessUnit , Facility
+ */
+public abstract class AProcess {
+
+	// States of a process
+	public static final int NEW=0; // not activated yet
+	public static final int SCHEDULED=1; // an event will resume it
+	public static final int RUNNING=2; // running (has the control)
+	public static final int PASSIVE=3; // waiting for a facility or an activation
+	public static final int TERMINATED=4; // body() returned (or killed)
+
+	// Thrown in a process killed at the end of a simulation, to unwind its body
+	private static final class Kill extends Error {
+		private static final long serialVersionUID = 1L;
+		Kill() {super(null,null,false,false);}
+	}
+	private static final Kill KILL=new Kill();
+
+	AProcessUnit unit=null; // unit which schedules the process
+	int id=-1; // event code of the process in its unit
+	int state=NEW; // state of the process
+	double queueTime; // time of entrance in the queue of a facility
+	private Thread thread=null; // thread running the body
+	private Thread scheduler=null; // simulation thread waiting for the process
+	private volatile boolean running=false; // true when the process has the control
+	private boolean killed=false; // true if the process must unwind
+	private Throwable failure=null; // exception thrown by body()
+
+	// The life of the process
+	protected abstract void body();
+
+	// Called by the simulation thread: runs the process until it holds, 
+	// waits or ends
+	final void resume() {
+		state=RUNNING;
+		handOver();
+		if(failure!=null) {
+			Throwable t=failure;
+			failure=null;
+			if(t instanceof RuntimeException) {throw (RuntimeException)t;}
+			if(t instanceof Error) {throw (Error)t;}
+			throw new IllegalStateException(t);
+		}
+	}
+
+	// Called by the simulation thread: unwinds a suspended process
+	final void kill() {
+		if((thread!=null)&&(state!=TERMINATED)) {
+			killed=true;
+			handOver();
+			failure=null;
+		}
+		state=TERMINATED;
+	}
+
+	private void handOver() {
+		scheduler=Thread.currentThread();
+		running=true;
+		if(thread==null) {
+			thread=ProcessThreads.newThread(new Runnable() {
+				@Override
+				public void run() {
+					live();
+				}
+			},getClass().getSimpleName()+"-"+id);
+			thread.start();
+		}
+		else {
+			LockSupport.unpark(thread);
+		}
+		while(running) {LockSupport.park(this);}
+	}
+
+	// Body of the thread of the process
+	private void live() {
+		try {
+			if(!killed) {body();}
+		}
+		catch(Kill k) {
+			// Killed at the end of the simulation
+		}
+		catch(Throwable t) {
+			failure=t;
+		}
+		finally {
+			state=TERMINATED;
+			if(!killed) {unit.terminated(this);}
+			thread=null;
+			running=false;
+			LockSupport.unpark(scheduler);
+		}
+	}
+
+	// Called by the process: gives the control back to the simulation 
+	// thread, and waits until it is resumed
+	final void suspend() {
+		running=false;
+		LockSupport.unpark(scheduler);
+		while(!running) {LockSupport.park(this);}
+		if(killed) {throw KILL;}
+	}
+
+	/**
+	 * @return the current simulated time
+	 */
+	protected final double getTime() {
+		return unit.getTime();
+	}
+
+	// Waits during the simulated time dt
+	protected final void hold(double dt) {
+		unit.schedule(this,dt);
+		suspend();
+	}
+
+	// Seizes one unit of the facility, waiting in its queue if none is free
+	protected final void request(Facility facility) {
+		if(!facility.seize(this,getTime())) {
+			state=PASSIVE;
+			suspend();
+		}
+	}
+
+	// Releases one unit of the facility, which is given to the first 
+	// waiting process if any
+	protected final void release(Facility facility) {
+		facility.release(getTime());
+	}
+
+	// Waits until another process activates this one
+	protected final void passivate() {
+		state=PASSIVE;
+		suspend();
+	}
+
+	// Starts a new process (or resumes a passive one) after delay, in the 
+	// unit of this process
+	protected final void activate(AProcess process,double delay) {
+		unit.activate(process,delay);
+	}
+
+	/**
+	 * @return the state of the process
+	 */
+	public final int getState() {
+		return state;
+	}
+
+	/**
+	 * @return the unit which schedules the process
+	 */
+	public final AProcessUnit getUnit() {
+		return unit;
+	}
+
+}
@@ -0,0 +1,157 @@
+/**
+ * 
+ */
+package eds.process;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import eds.core.ASimUnit;
+import eds.core.StateOutput;
+
+/**
+ * the ancestor abstract class for the units of process-interaction models:
+ * the unit schedules its processes on the event schedule (the event code 
+ * of a process is its number in the unit) and owns the facilities they 
+ * share. At the beginning of each run the processes of the previous run 
+ * are killed, the facilities are reset and start() activates the initial 
+ * processes of the model (a generator of entities, for instance).
+ * The stacks of the processes cannot be saved: the unit does not support
+ * checkpoints.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     AProcess , Facility
+ */
+public abstract class AProcessUnit extends ASimUnit {
+
+	private AProcess[] processes=new AProcess[64]; // live processes, by number
+	private int[] free=new int[64]; // free numbers
+	private int nbFree=0; // number of free numbers
+	private int nbUsed=0; // numbers 0 to nbUsed-1 were given
+	private int nbProcesses=0; // number of live processes
+	private final ArrayList<Facility> facilities=new ArrayList<Facility>();
+
+	// Activates the initial processes of a run
+	abstract protected void start(double beginTime,double endTime);
+
+	@Override
+	public boolean init(double beginTime,double endTime) {
+		killAll();
+		for(Facility facility:facilities) {facility.reset(beginTime);}
+		start(beginTime,endTime);
+		return true;
+	}
+
+	@Override
+	public boolean play(int code) {
+		processes[code].resume();
+		return true;
+	}
+
+	@Override
+	public boolean play(String action) {
+		return false;
+	}
+
+	// Creates a facility of this unit, reset at the beginning of each run
+	protected Facility newFacility(int capacity) {
+		Facility facility=new Facility(capacity);
+		facilities.add(facility);
+		return facility;
+	}
+
+	/**
+	 * Starts a new process after delay, or resumes a passive one.
+	 * @param process the process
+	 * @param delay the delay of its activation
+	 */
+	public void activate(AProcess process,double delay) {
+		if(process.state==AProcess.NEW) {
+			if(process.unit!=null) {throw new IllegalStateException("Process already activated");}
+			process.unit=this;
+			process.id=register(process);
+			schedule(process,delay);
+		}
+		else if(process.state==AProcess.PASSIVE) {
+			if(process.unit!=this) {throw new IllegalStateException("Process of another unit");}
+			schedule(process,delay);
+		}
+		else {
+			throw new IllegalStateException("Process neither new nor passive");
+		}
+	}
+
+	// Resumes the process after delay
+	final void schedule(AProcess process,double delay) {
+		process.state=AProcess.SCHEDULED;
+		addEvent(delay,process.id);
+	}
+
+	private int register(AProcess process) {
+		int id;
+		if(nbFree>0) {id=free[--nbFree];}
+		else {
+			id=nbUsed++;
+			if(id==processes.length) {processes=Arrays.copyOf(processes,2*id);}
+		}
+		processes[id]=process;
+		nbProcesses++;
+		return id;
+	}
+
+	// The body of the process returned
+	final void terminated(AProcess process) {
+		processes[process.id]=null;
+		if(nbFree==free.length) {free=Arrays.copyOf(free,2*nbFree);}
+		free[nbFree++]=process.id;
+		nbProcesses--;
+	}
+
+	// Kills the live processes (end of a run)
+	private void killAll() {
+		for(int i=0;i<nbUsed;i++) {
+			if(processes[i]!=null) {
+				processes[i].kill();
+				processes[i]=null;
+			}
+		}
+		nbUsed=0;
+		nbFree=0;
+		nbProcesses=0;
+	}
+
+	/**
+	 * Kills the live processes and frees their threads, after the end of 
+	 * the simulation.
+	 */
+	public void terminate() {
+		killAll();
+	}
+
+	@Override
+	public void resetStatistics(double time) {
+		for(Facility facility:facilities) {facility.resetStatistics(time);}
+	}
+
+	@Override
+	public void saveState(StateOutput out) throws IOException {
+		throw new IOException("The processes of a process unit cannot be saved in a checkpoint");
+	}
+
+	/**
+	 * @return the number of live processes
+	 */
+	public int getNbProcesses() {
+		return nbProcesses;
+	}
+
+	/**
+	 * @return true if the processes run on virtual threads
+	 */
+	public static boolean isVirtual() {
+		return ProcessThreads.isVirtual();
+	}
+
+}
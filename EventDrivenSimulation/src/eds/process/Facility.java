@@ -0,0 +1,107 @@
+/**
+ * 
+ */
+package eds.process;
+
+import java.util.ArrayDeque;
+
+import eds.blocks.Tally;
+import eds.blocks.TimeWeighted;
+
+/**
+ * A facility shared by processes: capacity identical units (servers, 
+ * nurses...) which are requested and released by the processes. A 
+ * process requesting a busy facility waits in its FIFO queue; a released 
+ * unit is handed over directly to the first waiting process.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     AProcess , AProcessUnit
+ */
+public final class Facility {
+
+	private final int capacity; // number of units
+	private int busy; // number of busy units
+	private final ArrayDeque<AProcess> queue=new ArrayDeque<AProcess>(); // waiting processes
+	// Observation variables
+	private final TimeWeighted usage; // number of busy units over time
+	private final Tally waitingTimes=new Tally(); // waiting times, zero waits included
+
+	Facility(int capacity) {
+		this.capacity=capacity;
+		usage=new TimeWeighted(capacity);
+	}
+
+	// All units are free at time
+	void reset(double time) {
+		busy=0;
+		queue.clear();
+		usage.reset(time,0);
+		waitingTimes.reset();
+	}
+
+	void resetStatistics(double time) {
+		usage.restart(time);
+		waitingTimes.reset();
+	}
+
+	// Seizes one unit at time, or puts the process in the queue
+	boolean seize(AProcess process,double time) {
+		if(busy<capacity) {
+			busy++;
+			usage.update(time,busy);
+			waitingTimes.add(0);
+			return true;
+		}
+		process.queueTime=time;
+		queue.add(process);
+		return false;
+	}
+
+	// Releases one unit at time, handed over to the first waiting process
+	void release(double time) {
+		AProcess next=queue.poll();
+		if(next!=null) {
+			waitingTimes.add(time-next.queueTime);
+			next.unit.schedule(next,0);
+		}
+		else if(busy>0) {
+			busy--;
+			usage.update(time,busy);
+		}
+	}
+
+	/**
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of busy units
+	 */
+	public int getBusy() {
+		return busy;
+	}
+
+	/**
+	 * @return the number of waiting processes
+	 */
+	public int getQueueLength() {
+		return queue.size();
+	}
+
+	// Mean fraction of busy units until time
+	public double getUtilisation(double time) {
+		return (capacity>0) ? usage.getMean(time)/capacity : 0;
+	}
+
+	/**
+	 * @return the waiting times
+	 */
+	public Tally getWaitingTimes() {
+		return waitingTimes;
+	}
+
+}
@@ -0,0 +1,66 @@
+/**
+ * 
+ */
+package eds.process;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates the threads of the processes: virtual threads when the Java 
+ * runtime provides them (Java 21 and later, found by reflection so that 
+ * the framework still runs on older runtimes), platform threads with a 
+ * small stack otherwise. Only virtual threads make hundreds of thousands 
+ * of concurrent processes practical.
+ *
+ * @author  Pierre E. Chauvet
+ * @version 1.0
+ * @see     AProcess
+ */
+final class ProcessThreads {
+
+	private static final long STACK_SIZE=256*1024; // stack of the platform threads
+	private static final Object builder; // virtual thread builder (null: not available)
+	private static final Method unstarted; // Thread.Builder.unstarted(Runnable)
+
+	static {
+		Object b=null;
+		Method m=null;
+		try {
+			b=Thread.class.getMethod("ofVirtual").invoke(null);
+			m=Class.forName("java.lang.Thread$Builder").getMethod("unstarted",Runnable.class);
+		}
+		catch(Exception e) {
+			// No virtual threads (or preview not enabled)
+			b=null;
+			m=null;
+		}
+		builder=b;
+		unstarted=m;
+	}
+
+	private ProcessThreads() {
+	}
+
+	// True if the processes run on virtual threads
+	static boolean isVirtual() {
+		return builder!=null;
+	}
+
+	// A new (unstarted) thread running runnable
+	static Thread newThread(Runnable runnable,String name) {
+		if(builder!=null) {
+			try {
+				Thread thread=(Thread)unstarted.invoke(builder,runnable);
+				thread.setName(name);
+				return thread;
+			}
+			catch(Exception e) {
+				throw new IllegalStateException("Cannot create a virtual thread",e);
+			}
+		}
+		Thread thread=new Thread(null,runnable,name,STACK_SIZE);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+}
@@ -36,6 +36,8 @@
    
       protected int nx=0;   // number of space steps along the x direction
       protected int ny=0;   // number of space steps along the y direction
+      protected int lastIterations=0; // number of iterations of the last solve
+      protected float lastResidual=0; // residual of the last solve
    
       public float[] Valfa_bottom;// coefficient Cond.Lim. on the bottom edge
       public float[] Valfa_top;   // coefficient Cond.Lim. on the top edge
@@ -134,6 +136,14 @@
       	return ny;
       }
 
+      public int getLastIterations() {
+      	return lastIterations;
+      }
+
+      public float getLastResidual() {
+      	return lastResidual;
+      }
+
      /* Calculation of the MA matrix, the system to be solved 
         being of the form:
             MA.VU(t+tau)=Vf(t,t+tau) ;
@@ -220,6 +230,8 @@
          if((nx<=0)||(ny<=0)) {
             return false;}
          else {
+            PDESolveEvent jfrEvent=new PDESolveEvent();
+            jfrEvent.begin();
             int i,j,k=0;
             float s1=0,s2;
             // Saving VFtau in VF0
@@ -276,6 +288,17 @@
                      s1=s1+Math.abs(VU[i][j]) ;
                   }}
             } while((Math.abs(s2-s1)>eps)|(k<max_iter)) ;
+            lastIterations=k;
+            lastResidual=Math.abs(s2-s1);
+            if(jfrEvent.shouldCommit()) {
+               jfrEvent.solver="PDE2d";
+               jfrEvent.nx=nx;
+               jfrEvent.ny=ny;
+               jfrEvent.tau=tau;
+               jfrEvent.iterations=k;
+               jfrEvent.residual=lastResidual;
+               jfrEvent.commit();
+            }
             return true;
          }
       }
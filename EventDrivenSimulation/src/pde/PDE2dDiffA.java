@@ -39,6 +39,8 @@ public final class PDE2dDiffA {
 
     protected int nx=0;   // number of space steps along the x direction
     protected int ny=0;   // number of space steps along the y direction
+    protected int lastIterations=0; // number of iterations of the last solve
+    protected float lastResidual=0; // residual of the last solve
  
     public float[] Valfa_bottom;// coefficient Cond.Lim. on the bottom edge
     public float[] Valfa_top;   // coefficient Cond.Lim. on the top edge
@@ -118,6 +120,19 @@ public final class PDE2dDiffA {
     public int getNy() {
     	return ny;
     }
+
+    public int getLastIterations() {
+    	return lastIterations;
+    }
+
+    public float getLastResidual() {
+    	return lastResidual;
+    }
+
+    // Source term of the last solve, used by the next one (state of the scheme)
+    public float[][] getLastSource() {
+    	return VFtau;
+    }
  
     /* Calculation of the MA matrix, the system to be solved 
     being of the form:
@@ -198,6 +213,8 @@ public final class PDE2dDiffA {
        if((nx<=0)||(ny<=0)) {
           return false;}
        else {
+          PDESolveEvent jfrEvent=new PDESolveEvent();
+          jfrEvent.begin();
           int i,j,k=0;
           float s1=0,s2;
           // Saving VFtau in VF0
@@ -254,6 +271,17 @@ public final class PDE2dDiffA {
                    s1=s1+Math.abs(VU[i][j]) ;
                 }}
           } while((Math.abs(s2-s1)>eps)|(k<max_iter)) ;
+          lastIterations=k;
+          lastResidual=Math.abs(s2-s1);
+          if(jfrEvent.shouldCommit()) {
+             jfrEvent.solver="PDE2dDiffA";
+             jfrEvent.nx=nx;
+             jfrEvent.ny=ny;
+             jfrEvent.tau=tau;
+             jfrEvent.iterations=k;
+             jfrEvent.residual=lastResidual;
+             jfrEvent.commit();
+          }
           return true;
        }
     }
@@ -0,0 +1,42 @@
+/**
+ * 
+ */
+package pde;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event spanning one call of the solve method of a PDE solver.
+ *
+ * @author Pierre E. Chauvet
+ * @version 1.1
+ */
+@Name("eds.PDESolve")
+@Label("PDE Solve")
+@Category({"Simulation","PDE"})
+@Description("One time step of a PDE solver")
+public class PDESolveEvent extends Event {
+
+	@Label("Solver")
+	public String solver;
+
+	@Label("Nx")
+	public int nx;
+
+	@Label("Ny")
+	public int ny;
+
+	@Label("Time Step")
+	public float tau;
+
+	@Label("Iterations")
+	public int iterations;
+
+	@Label("Residual")
+	public float residual;
+
+}